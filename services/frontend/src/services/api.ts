@@ -18,18 +18,30 @@ api.interceptors.request.use(async (config) => {
     return config;
 });
 
+export type ShipmentView = "summary" | "latest-checkpoint" | "full";
+
 export const shipmentService = {
     create: (data: { sender: string; receiver: string; receiverStreet: string, receiverCity: string; expectedDelivery: string }) =>
         api.post('/shipment/create', data),
 
-    getById: (id: string) =>
-        api.get(`/shipment/${id}`),
+    // "summary" lässt die Timeline weg, "latest-checkpoint" liefert nur den neuesten Checkpoint
+    getById: (id: string, view?: ShipmentView) =>
+        api.get(`/shipment/${id}`, { params: { view } }),
+
+    // nächste Seite über den Header X-Next-Cursor der vorherigen Antwort
+    getMyShipments: (params?: { cursor?: string; limit?: number; status?: string; sort?: "createdAt" | "updatedAt" }) =>
+        api.get(`/shipment`, { params }),
+
+    trackPublic: (trackingId: string, view?: ShipmentView) =>
+        api.get(`/shipment/track/${trackingId}`, { params: { view } }),
 
-    getMyShipments: () =>
-        api.get(`/shipment`),
+    // unbekannte Tracking-IDs fehlen in der Antwort
+    trackBatch: (trackingIds: string[], latest?: number) =>
+        api.post(`/shipment/track/batch`, trackingIds, { params: { latest } }),
 
-    trackPublic: (trackingId: string) =>
-        api.get(`/shipment/track/${trackingId}`),
+    // neue Checkpoints als "checkpoint"-Events, EventSource verbindet sich selbst neu
+    streamPublic: (trackingId: string) =>
+        new EventSource(`${API_BASE}/shipment/track/${trackingId}/stream`),
 };
 
 export const trackingService = {
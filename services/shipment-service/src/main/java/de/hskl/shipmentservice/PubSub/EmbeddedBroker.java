@@ -0,0 +1,210 @@
+package de.hskl.shipmentservice.PubSub;
+
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Timestamp;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.PubsubMessage;
+import de.hskl.shipmentservice.config.PubSubSubscriberProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * In-memory stand-in for Pub/Sub in the {@code embedded} profile, so the tracking → shipment pipeline runs
+ * without the emulator. One topic feeds one subscription. Messages stay in the broker until acked: a nack,
+ * an exception in the receiver or an expired ack deadline redelivers them ahead of new messages. At most
+ * {@code flow-control.max-outstanding-messages} are handed out at once, and publishing blocks for up to
+ * {@code embedded.broker.publish-timeout-ms} while {@code embedded.broker.capacity} messages are unacked.
+ */
+@Slf4j
+@Component
+@Profile("embedded")
+public class EmbeddedBroker {
+    private final String topic;
+    private final String subscription;
+    private final int dispatcherThreads;
+    private final long ackDeadlineMs;
+    private final long publishTimeoutMs;
+
+    private final Semaphore capacity;
+    private final Semaphore outstandingPermits;
+    private final LinkedBlockingDeque<PubsubMessage> queue = new LinkedBlockingDeque<>();
+    private final Map<String, EmbeddedMessage> outstanding = new ConcurrentHashMap<>();
+    private final AtomicLong messageIds = new AtomicLong();
+    private final ScheduledExecutorService deadlineSweeper;
+
+    private volatile boolean running = true;
+    private ExecutorService dispatchers;
+
+    public EmbeddedBroker(
+            PubSubSubscriberProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${pubsub.topic.tracking-updates}") String topic,
+            @Value("${embedded.broker.capacity:10000}") int capacity,
+            @Value("${embedded.broker.ack-deadline-ms:600000}") long ackDeadlineMs,
+            @Value("${embedded.broker.publish-timeout-ms:5000}") long publishTimeoutMs
+    ) {
+        this.topic = topic;
+        this.subscription = properties.trackingUpdates();
+        this.dispatcherThreads = Math.max(properties.executorThreads(), 1);
+        this.ackDeadlineMs = ackDeadlineMs;
+        this.publishTimeoutMs = publishTimeoutMs;
+        this.capacity = new Semaphore(capacity);
+        this.outstandingPermits = new Semaphore((int) Math.min(properties.flowControl().maxOutstandingMessages(), Integer.MAX_VALUE));
+        this.deadlineSweeper = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("embedded-broker-deadlines").daemon().factory());
+        this.deadlineSweeper.scheduleWithFixedDelay(this::expireDeadlines, 1, 1, TimeUnit.SECONDS);
+
+        Gauge.builder("embedded.broker.backlog", queue, BlockingQueue::size).register(meterRegistry);
+        Gauge.builder("embedded.broker.outstanding", outstanding, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * @return id of the published message
+     * @throws IllegalArgumentException if the topic is unknown
+     * @throws IllegalStateException    if the broker stayed full for the publish timeout
+     */
+    public String publish(String topic, byte[] data) throws InterruptedException {
+        if (!this.topic.equals(topic)) {
+            throw new IllegalArgumentException("Unknown topic: " + topic);
+        }
+        if (!capacity.tryAcquire(publishTimeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Embedded broker is full");
+        }
+
+        Instant now = Instant.now();
+        String messageId = String.valueOf(messageIds.incrementAndGet());
+        queue.addLast(PubsubMessage.newBuilder()
+                .setMessageId(messageId)
+                .setData(ByteString.copyFrom(data))
+                .setPublishTime(Timestamp.newBuilder().setSeconds(now.getEpochSecond()).setNanos(now.getNano()))
+                .build());
+        return messageId;
+    }
+
+    /**
+     * Starts delivering the messages of the subscription to the receiver on
+     * {@code pubsub.subscription.executor-threads} threads.
+     */
+    public synchronized void subscribe(String subscription, Consumer<BasicAcknowledgeablePubsubMessage> receiver) {
+        if (!this.subscription.equals(subscription)) {
+            throw new IllegalArgumentException("Unknown subscription: " + subscription);
+        }
+        if (dispatchers != null) {
+            throw new IllegalStateException("Subscription " + subscription + " already has a receiver");
+        }
+        dispatchers = Executors.newFixedThreadPool(dispatcherThreads,
+                Thread.ofPlatform().name("embedded-broker-", 0).daemon().factory());
+        for (int i = 0; i < dispatcherThreads; i++) {
+            dispatchers.execute(() -> dispatch(receiver));
+        }
+        log.info("Embedded broker delivering {} -> {} on {} threads", topic, subscription, dispatcherThreads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        deadlineSweeper.shutdownNow();
+        if (dispatchers != null) {
+            dispatchers.shutdownNow();
+        }
+    }
+
+    public int backlog() {
+        return queue.size();
+    }
+
+    private void dispatch(Consumer<BasicAcknowledgeablePubsubMessage> receiver) {
+        while (running) {
+            PubsubMessage pubsubMessage;
+            try {
+                outstandingPermits.acquire();
+                pubsubMessage = queue.pollFirst(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (pubsubMessage == null) {
+                outstandingPermits.release();
+                continue;
+            }
+
+            EmbeddedMessage message = new EmbeddedMessage(pubsubMessage, System.currentTimeMillis() + ackDeadlineMs);
+            outstanding.put(pubsubMessage.getMessageId(), message);
+            try {
+                receiver.accept(message);
+            } catch (RuntimeException e) {
+                log.error("Receiver failed on message {}", pubsubMessage.getMessageId(), e);
+                message.nack();
+            }
+        }
+    }
+
+    private void expireDeadlines() {
+        long now = System.currentTimeMillis();
+        outstanding.values().stream()
+                .filter(message -> message.deadline < now)
+                .forEach(message -> {
+                    log.warn("Ack deadline of message {} expired, redelivering", message.getPubsubMessage().getMessageId());
+                    message.nack();
+                });
+    }
+
+    private final class EmbeddedMessage implements BasicAcknowledgeablePubsubMessage {
+        private final PubsubMessage pubsubMessage;
+        private final long deadline;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private EmbeddedMessage(PubsubMessage pubsubMessage, long deadline) {
+            this.pubsubMessage = pubsubMessage;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public ProjectSubscriptionName getProjectSubscriptionName() {
+            return ProjectSubscriptionName.of("embedded", subscription);
+        }
+
+        @Override
+        public PubsubMessage getPubsubMessage() {
+            return pubsubMessage;
+        }
+
+        @Override
+        public CompletableFuture<Void> ack() {
+            if (settle()) {
+                capacity.release();
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> nack() {
+            if (settle()) {
+                queue.addFirst(pubsubMessage);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        private boolean settle() {
+            if (!settled.compareAndSet(false, true)) {
+                return false;
+            }
+            outstanding.remove(pubsubMessage.getMessageId(), this);
+            outstandingPermits.release();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package de.hskl.shipmentservice.PubSub;
+
+public enum IngestMode {
+    /** Every message is applied in its own round trip on the Pub/Sub callback thread. */
+    INLINE,
+    /** Messages are collected into size/time bounded windows and applied in one transaction. */
+    BATCH,
+    /** Messages are spread over lanes by shipment id: ordered per shipment, parallel across shipments. */
+    PARTITIONED
+}
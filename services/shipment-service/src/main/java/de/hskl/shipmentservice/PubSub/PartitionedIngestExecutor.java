@@ -0,0 +1,290 @@
+package de.hskl.shipmentservice.PubSub;
+
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import de.hskl.shipmentservice.config.PubSubSubscriberProperties;
+import de.hskl.shipmentservice.entity.TrackingUpdate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Applies tracking updates on a fixed number of lanes. The lane of an update is picked by its shipment id,
+ * so all updates of one shipment are applied in arrival order by a single thread, while different shipments
+ * are applied in parallel. A full lane blocks the submitting Pub/Sub callback thread.
+ * <p>
+ * Each lane keeps status transitions apart from position-only updates (same status as the previous update
+ * of the shipment) and takes transitions first, so a {@code DELIVERED} does not wait behind thousands of
+ * GPS pings. Older pings of the same shipment are pulled forward and applied right before the transition.
+ * Once the ping backlog of a lane reaches {@code coalesce-threshold}, pings are applied in batches with one
+ * head update per shipment.
+ * <p>
+ * An update that fails with a retryable error is retried on its lane after the backoff of its attempt instead of
+ * being nacked, since a redelivery would arrive behind the later updates of its shipment. The lane waits
+ * meanwhile; once {@code retry.max-attempts} is reached the message is quarantined and the lane moves on.
+ */
+@Slf4j
+@Component
+@Profile("!prod")
+@ConditionalOnProperty(name = "pubsub.subscription.ingest-mode", havingValue = "partitioned")
+public class PartitionedIngestExecutor {
+    private static final int MAX_TRACKED_SHIPMENTS_PER_LANE = 10_000;
+
+    private final TrackingMessageProcessor processor;
+    private final List<Lane> lanes;
+    private final int queueDepth;
+    private final int coalesceThreshold;
+    private final int coalesceMaxSize;
+
+    private final Counter statusChanges;
+    private final Counter positionUpdates;
+    private final Counter coalesced;
+
+    private volatile boolean running;
+
+    public PartitionedIngestExecutor(
+            TrackingMessageProcessor processor,
+            MeterRegistry meterRegistry,
+            PubSubSubscriberProperties properties
+    ) {
+        PubSubSubscriberProperties.Partitions partitions = properties.partitions();
+        int laneCount = partitions.effectiveLanes();
+        this.processor = processor;
+        this.queueDepth = partitions.queueDepth();
+        this.coalesceThreshold = partitions.coalesceThreshold() > 0 ? partitions.coalesceThreshold() : Integer.MAX_VALUE;
+        this.coalesceMaxSize = Math.max(partitions.coalesceMaxSize(), 1);
+        this.lanes = new ArrayList<>(laneCount);
+        for (int i = 0; i < laneCount; i++) {
+            Lane lane = new Lane(i);
+            Gauge.builder("shipment.ingest.lane.backlog", lane.backlog, AtomicInteger::get)
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry);
+            this.lanes.add(lane);
+        }
+
+        this.statusChanges = meterRegistry.counter("shipment.ingest.updates", "priority", "high");
+        this.positionUpdates = meterRegistry.counter("shipment.ingest.updates", "priority", "low");
+        this.coalesced = meterRegistry.counter("shipment.ingest.coalesced");
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (Lane lane : lanes) {
+            lane.worker = Thread.ofPlatform().name("ingest-lane-" + lane.index).daemon().start(() -> run(lane));
+        }
+        log.info("Partitioned ingest enabled: {} lanes, queue depth {}", lanes.size(), queueDepth);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Lane lane : lanes) {
+            lane.worker.interrupt();
+        }
+        for (Lane lane : lanes) {
+            lane.worker.join(TimeUnit.SECONDS.toMillis(10));
+            lane.drain().forEach(work -> work.message().nack());
+        }
+    }
+
+    public int laneCount() {
+        return lanes.size();
+    }
+
+    public void submit(TrackingUpdate update, BasicAcknowledgeablePubsubMessage message) {
+        Lane lane = lanes.get(laneOf(update.getShipmentId()));
+        try {
+            boolean statusChange = lane.put(update, message);
+            (statusChange ? statusChanges : positionUpdates).increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            message.nack();
+        }
+    }
+
+    public int laneOf(UUID shipmentId) {
+        if (shipmentId == null) {
+            return 0;
+        }
+        int hash = shipmentId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.size());
+    }
+
+    private void run(Lane lane) {
+        while (running) {
+            List<Work> batch;
+            try {
+                batch = lane.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            apply(batch);
+        }
+    }
+
+    /**
+     * The batch is either a single update or position-only updates, possibly followed by the status change
+     * they were pulled forward for.
+     */
+    private void apply(List<Work> batch) {
+        Work last = batch.getLast();
+        List<Work> pings = last.statusChange() ? batch.subList(0, batch.size() - 1) : batch;
+
+        if (pings.size() > 1) {
+            coalesced.increment(pings.size());
+            if (processor.tryApplyAll(
+                    pings.stream().map(Work::message).toList(),
+                    pings.stream().map(Work::update).toList())) {
+                pings = List.of();
+            }
+        }
+
+        List<Work> remaining = new ArrayList<>(pings);
+        if (last.statusChange()) {
+            remaining.add(last);
+        }
+        for (int i = 0; i < remaining.size(); i++) {
+            if (!applyInOrder(remaining.get(i))) {
+                // beim Herunterfahren: die späteren Updates dürfen nicht vor der Neuzustellung angewendet werden
+                remaining.subList(i + 1, remaining.size()).forEach(work -> work.message().nack());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Applies the update, retrying it after the backoff of each attempt until it is settled.
+     *
+     * @return false if the lane was stopped while waiting and the message was nacked
+     */
+    private boolean applyInOrder(Work work) {
+        long backoffMs;
+        while ((backoffMs = processor.tryApply(work.message(), work.update())) >= 0) {
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                work.message().nack();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record Work(long sequence, TrackingUpdate update, BasicAcknowledgeablePubsubMessage message,
+                        boolean statusChange) {
+    }
+
+    private final class Lane {
+        private final int index;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+        private final Deque<Work> statusChanges = new ArrayDeque<>();
+        private final Deque<Work> positionUpdates = new ArrayDeque<>();
+        private final Map<UUID, String> lastStatus = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, String> eldest) {
+                return size() > MAX_TRACKED_SHIPMENTS_PER_LANE;
+            }
+        };
+        // Anzahl wartender Updates, wird unter dem Lock geändert und vom Gauge ohne Lock gelesen
+        private final AtomicInteger backlog = new AtomicInteger();
+        private long sequence;
+        private Thread worker;
+
+        private Lane(int index) {
+            this.index = index;
+        }
+
+        /**
+         * @return true if the update was queued as a status change
+         */
+        boolean put(TrackingUpdate update, BasicAcknowledgeablePubsubMessage message) throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (backlog.get() >= queueDepth) {
+                    notFull.await();
+                }
+                String previous = update.getShipmentId() == null
+                        ? null
+                        : lastStatus.put(update.getShipmentId(), update.getStatus());
+                boolean statusChange = previous == null || !previous.equals(update.getStatus());
+                Work work = new Work(sequence++, update, message, statusChange);
+                (statusChange ? statusChanges : positionUpdates).addLast(work);
+                backlog.incrementAndGet();
+                notEmpty.signal();
+                return statusChange;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Takes the next status change together with the older pings of its shipment, or otherwise the next
+         * ping, or a batch of pings if their backlog reached the coalesce threshold.
+         */
+        List<Work> take() throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (backlog.get() == 0) {
+                    notEmpty.await();
+                }
+                List<Work> batch = new ArrayList<>();
+                Work statusChange = statusChanges.pollFirst();
+                if (statusChange != null) {
+                    UUID shipmentId = statusChange.update().getShipmentId();
+                    Iterator<Work> pending = positionUpdates.iterator();
+                    while (pending.hasNext()) {
+                        Work ping = pending.next();
+                        if (ping.sequence() > statusChange.sequence()) {
+                            break;
+                        }
+                        if (Objects.equals(shipmentId, ping.update().getShipmentId())) {
+                            batch.add(ping);
+                            pending.remove();
+                        }
+                    }
+                    batch.add(statusChange);
+                } else {
+                    int count = positionUpdates.size() >= coalesceThreshold ? coalesceMaxSize : 1;
+                    while (batch.size() < count && !positionUpdates.isEmpty()) {
+                        batch.add(positionUpdates.pollFirst());
+                    }
+                }
+                backlog.addAndGet(-batch.size());
+                notFull.signalAll();
+                return batch;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<Work> drain() {
+            lock.lock();
+            try {
+                List<Work> pending = new ArrayList<>(statusChanges);
+                pending.addAll(positionUpdates);
+                statusChanges.clear();
+                positionUpdates.clear();
+                backlog.set(0);
+                return pending;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -1,42 +1,73 @@
 package de.hskl.shipmentservice.PubSub;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.cloud.spring.pubsub.core.PubSubTemplate;
-import de.hskl.shipmentservice.service.ShipmentService;
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import de.hskl.shipmentservice.config.PubSubSubscriberProperties;
+import de.hskl.shipmentservice.entity.TrackingUpdate;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
 
+import java.util.function.Consumer;
+
 @Component
 @Slf4j
 @Profile("!prod")
 public class PubSubSubscriber {
-    @Value("${pubsub.subscription.tracking-updates}")
-    private String subscription;
-
     @Autowired
-    private ShipmentService shipmentService;
+    private PubSubSubscriberProperties properties;
 
-    @Autowired
+    @Autowired(required = false)
     private PubSubTemplate pubSubTemplate;
 
+    @Autowired(required = false)
+    private EmbeddedBroker embeddedBroker;
+
+    @Autowired
+    private TrackingMessageProcessor processor;
+
+    @Autowired(required = false)
+    private TrackingUpdateBatcher batcher;
+
+    @Autowired(required = false)
+    private PartitionedIngestExecutor partitionedExecutor;
+
     @PostConstruct
     public void subscribe() {
-        pubSubTemplate.subscribe(subscription, message -> {
-            String payload = message.getPubsubMessage().getData().toStringUtf8();
-
-            log.info("Received message: {}", payload);
-            try {
-                shipmentService.updateShipment(payload);
-            } catch (JsonProcessingException e) {
-                throw new RuntimeException(e);
-            }
-
-            message.ack();
-        });
+        String subscription = properties.trackingUpdates();
+        log.info("Subscribing to {}: ingest-mode={}, max-outstanding-messages={}, max-outstanding-bytes={}, "
+                        + "parallel-pull-count={}, executor-threads={}",
+                subscription,
+                properties.ingestMode(),
+                properties.flowControl().maxOutstandingMessages(),
+                properties.flowControl().maxOutstandingBytes(),
+                properties.parallelPullCount(),
+                properties.executorThreads());
+
+        Consumer<BasicAcknowledgeablePubsubMessage> receiver = switch (properties.ingestMode()) {
+            case BATCH -> batcher::enqueue;
+            case PARTITIONED -> this::dispatch;
+            default -> this::handle;
+        };
+        if (embeddedBroker != null) {
+            embeddedBroker.subscribe(subscription, receiver);
+        } else {
+            pubSubTemplate.subscribe(subscription, receiver);
+        }
+    }
+
+    private void dispatch(BasicAcknowledgeablePubsubMessage message) {
+        TrackingUpdate update = processor.decode(message);
+        if (update != null) {
+            partitionedExecutor.submit(update, message);
+        }
+    }
+
+    private void handle(BasicAcknowledgeablePubsubMessage message) {
+        log.debug("Received message {}", message.getPubsubMessage().getMessageId());
+        processor.handle(message);
     }
 }
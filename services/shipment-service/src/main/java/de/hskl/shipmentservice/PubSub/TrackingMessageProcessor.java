@@ -0,0 +1,290 @@
+package de.hskl.shipmentservice.PubSub;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.pubsub.v1.PubsubMessage;
+import de.hskl.shipmentservice.config.PubSubSubscriberProperties;
+import de.hskl.shipmentservice.entity.TrackingUpdate;
+import de.hskl.shipmentservice.service.QuarantineService;
+import de.hskl.shipmentservice.service.ShipmentService;
+import de.hskl.shipmentservice.service.TrackingEventDeduplicator;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies tracking messages and settles them. Failures are classified: permanent ones (unreadable payload,
+ * unknown shipment, constraint violations) are quarantined and acked right away, retryable ones are nacked
+ * with exponential backoff until {@code pubsub.subscription.retry.max-attempts} is reached and then
+ * quarantined as well, so a poison message is never redelivered forever.
+ */
+@Slf4j
+@Component
+public class TrackingMessageProcessor {
+    private static final int MAX_TRACKED_MESSAGES = 10_000;
+
+    public enum Outcome {
+        APPLIED,
+        DUPLICATE,
+        QUARANTINED,
+        RETRY
+    }
+
+    private final ShipmentService shipmentService;
+    private final TrackingUpdateCodec codec;
+    private final QuarantineService quarantineService;
+    private final TrackingEventDeduplicator deduplicator;
+    private final PubSubSubscriberProperties.Retry retry;
+    private final ScheduledExecutorService nackScheduler;
+
+    // Fehlversuche pro Message-ID, nur für diese Replica
+    private final Map<String, Integer> attempts = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                    return size() > MAX_TRACKED_MESSAGES;
+                }
+            });
+
+    public TrackingMessageProcessor(
+            ShipmentService shipmentService,
+            TrackingUpdateCodec codec,
+            QuarantineService quarantineService,
+            TrackingEventDeduplicator deduplicator,
+            PubSubSubscriberProperties properties
+    ) {
+        this.shipmentService = shipmentService;
+        this.codec = codec;
+        this.quarantineService = quarantineService;
+        this.deduplicator = deduplicator;
+        this.retry = properties.retry();
+        this.nackScheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("tracking-nack-backoff").daemon().factory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // delayed nacks are dropped, the messages are redelivered once their ack deadline expires
+        nackScheduler.shutdownNow();
+    }
+
+    /**
+     * Decodes, applies and settles a pulled message.
+     */
+    public void handle(BasicAcknowledgeablePubsubMessage message) {
+        TrackingUpdate update = decode(message);
+        if (update != null) {
+            apply(message, update);
+        }
+    }
+
+    /**
+     * @return the decoded update, or {@code null} if the message is already settled: quarantined because
+     * the payload is unreadable, acked because its event was already applied, or handed to {@link #fail}
+     * because anything else went wrong
+     */
+    public TrackingUpdate decode(BasicAcknowledgeablePubsubMessage message) {
+        try {
+            PubsubMessage pubsubMessage = message.getPubsubMessage();
+            TrackingUpdate update = codec.decode(
+                    pubsubMessage.getData(), pubsubMessage.getMessageId(), publishTime(pubsubMessage));
+            if (deduplicator.isDuplicate(update.getEventId())) {
+                log.debug("Dropping duplicate event {}", update.getEventId());
+                message.ack();
+                return null;
+            }
+            return update;
+        } catch (JsonProcessingException | RuntimeException e) {
+            fail(message, e);
+            return null;
+        }
+    }
+
+    public void apply(BasicAcknowledgeablePubsubMessage message, TrackingUpdate update) {
+        long backoffMs = tryApply(message, update);
+        if (backoffMs >= 0) {
+            nackAfter(message, backoffMs);
+        }
+    }
+
+    /**
+     * Like {@link #apply}, but leaves a message that failed with a retryable error unsettled, so the caller
+     * can retry it itself and hold back later updates of the same shipment meanwhile.
+     *
+     * @return delay before the next attempt, or -1 if the message is settled (acked or quarantined)
+     */
+    public long tryApply(BasicAcknowledgeablePubsubMessage message, TrackingUpdate update) {
+        PubsubMessage pubsubMessage = message.getPubsubMessage();
+        try {
+            shipmentService.updateShipment(update);
+        } catch (RuntimeException e) {
+            if (isAlreadyApplied(update, e)) {
+                message.ack();
+                return -1;
+            }
+            long backoffMs = onFailure(pubsubMessage.getMessageId(), publishTime(pubsubMessage),
+                    pubsubMessage.getData().toByteArray(), e);
+            if (backoffMs < 0) {
+                message.ack();
+            }
+            return backoffMs;
+        }
+        attempts.remove(pubsubMessage.getMessageId());
+        message.ack();
+        return -1;
+    }
+
+    /**
+     * Applies the updates of several messages in one transaction and acks them after commit. Updates of
+     * unknown shipments are quarantined; if the transaction fails as a whole, the messages are applied one
+     * by one so a single poison message only fails itself.
+     */
+    public void applyAll(List<BasicAcknowledgeablePubsubMessage> messages, List<TrackingUpdate> updates) {
+        if (!tryApplyAll(messages, updates)) {
+            for (int i = 0; i < messages.size(); i++) {
+                apply(messages.get(i), updates.get(i));
+            }
+        }
+    }
+
+    /**
+     * Like {@link #applyAll}, but leaves the messages unsettled if the transaction fails as a whole.
+     *
+     * @return false if the messages still have to be applied one by one
+     */
+    public boolean tryApplyAll(List<BasicAcknowledgeablePubsubMessage> messages, List<TrackingUpdate> updates) {
+        if (messages.isEmpty()) {
+            return true;
+        }
+
+        Set<UUID> unknown;
+        try {
+            unknown = shipmentService.applyTrackingUpdates(updates);
+        } catch (RuntimeException e) {
+            log.error("Failed to apply {} tracking updates together, applying them one by one", updates.size(), e);
+            return false;
+        }
+
+        for (int i = 0; i < messages.size(); i++) {
+            UUID shipmentId = updates.get(i).getShipmentId();
+            if (unknown.contains(shipmentId)) {
+                fail(messages.get(i), new EntityNotFoundException("Shipment not found: " + shipmentId));
+            } else {
+                attempts.remove(messages.get(i).getPubsubMessage().getMessageId());
+                messages.get(i).ack();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Settles a pulled message whose processing failed: acks it once quarantined, otherwise nacks it
+     * after the backoff of its attempt.
+     */
+    public void fail(BasicAcknowledgeablePubsubMessage message, Exception error) {
+        PubsubMessage pubsubMessage = message.getPubsubMessage();
+        long backoffMs = onFailure(pubsubMessage.getMessageId(), publishTime(pubsubMessage),
+                pubsubMessage.getData().toByteArray(), error);
+        if (backoffMs < 0) {
+            message.ack();
+        } else {
+            nackAfter(message, backoffMs);
+        }
+    }
+
+    private void nackAfter(BasicAcknowledgeablePubsubMessage message, long backoffMs) {
+        try {
+            nackScheduler.schedule(message::nack, backoffMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            message.nack();
+        }
+    }
+
+    /**
+     * Processes the payload of a push request. Pub/Sub applies the backoff of the push subscription
+     * itself, so a retryable failure only has to be reported.
+     */
+    public Outcome process(String messageId, Instant publishTime, byte[] data) {
+        TrackingUpdate update = null;
+        try {
+            update = codec.decode(data, messageId, publishTime);
+            if (deduplicator.isDuplicate(update.getEventId())) {
+                return Outcome.DUPLICATE;
+            }
+            shipmentService.updateShipment(update);
+        } catch (JsonProcessingException | RuntimeException e) {
+            if (update != null && isAlreadyApplied(update, e)) {
+                return Outcome.DUPLICATE;
+            }
+            return onFailure(messageId, publishTime, data, e) < 0 ? Outcome.QUARANTINED : Outcome.RETRY;
+        }
+        attempts.remove(messageId);
+        return Outcome.APPLIED;
+    }
+
+    private static Instant publishTime(PubsubMessage message) {
+        return message.hasPublishTime()
+                ? Instant.ofEpochSecond(message.getPublishTime().getSeconds(), message.getPublishTime().getNanos())
+                : null;
+    }
+
+    /**
+     * A concurrent redelivery of the same event loses the race on the unique event id index.
+     */
+    private boolean isAlreadyApplied(TrackingUpdate update, Exception error) {
+        if (!(error instanceof DataIntegrityViolationException) || update.getEventId() == null) {
+            return false;
+        }
+        try {
+            return shipmentService.isEventApplied(update.getEventId());
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return delay before the message should be redelivered, or -1 if it was quarantined
+     */
+    private long onFailure(String messageId, Instant publishTime, byte[] payload, Exception error) {
+        int attempt = attempts.merge(messageId, 1, Integer::sum);
+        boolean permanent = isPermanent(error);
+        if (!permanent && attempt < retry.maxAttempts()) {
+            long backoffMs = retry.backoffMs(attempt);
+            log.warn("Attempt {} of message {} failed, retrying in {}ms", attempt, messageId, backoffMs, error);
+            return backoffMs;
+        }
+
+        try {
+            quarantineService.quarantine(messageId, publishTime, payload, error, attempt);
+        } catch (RuntimeException e) {
+            log.error("Failed to quarantine message {}", messageId, e);
+            return retry.backoffMs(attempt);
+        }
+        attempts.remove(messageId);
+        return -1;
+    }
+
+    /**
+     * A failure is permanent if redelivering the same payload can not succeed.
+     */
+    public static boolean isPermanent(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JsonProcessingException
+                    || cause instanceof EntityNotFoundException
+                    || cause instanceof IllegalArgumentException
+                    || cause instanceof DataIntegrityViolationException
+                    || cause instanceof org.hibernate.exception.ConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,138 @@
+package de.hskl.shipmentservice.PubSub;
+
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import de.hskl.shipmentservice.config.PubSubSubscriberProperties;
+import de.hskl.shipmentservice.entity.TrackingUpdate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects Pub/Sub messages into windows of at most {@code max-size} messages or {@code linger-ms}
+ * after the first message of the window, whichever comes first, and applies each window with
+ * {@link TrackingMessageProcessor#applyAll(List, List)}. Messages are acked only after that transaction
+ * has committed.
+ */
+@Slf4j
+@Component
+@Profile("!prod")
+@ConditionalOnProperty(name = "pubsub.subscription.ingest-mode", havingValue = "batch")
+public class TrackingUpdateBatcher {
+    private final TrackingMessageProcessor processor;
+    private final int maxSize;
+    private final long lingerNanos;
+    private final BlockingQueue<BasicAcknowledgeablePubsubMessage> queue;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public TrackingUpdateBatcher(
+            TrackingMessageProcessor processor,
+            PubSubSubscriberProperties properties
+    ) {
+        int maxSize = properties.batch().maxSize();
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("pubsub.subscription.batch.max-size must be positive");
+        }
+        this.processor = processor;
+        this.maxSize = maxSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(properties.batch().lingerMs());
+        // two windows of headroom, beyond that the Pub/Sub callback threads are blocked (back pressure)
+        this.queue = new ArrayBlockingQueue<>(maxSize * 2);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = Thread.ofPlatform().name("tracking-update-batcher").daemon().start(this::run);
+        log.info("Batch ingest enabled: max-size={}, linger={}ms", maxSize, TimeUnit.NANOSECONDS.toMillis(lingerNanos));
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+
+        List<BasicAcknowledgeablePubsubMessage> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        pending.forEach(BasicAcknowledgeablePubsubMessage::nack);
+    }
+
+    public void enqueue(BasicAcknowledgeablePubsubMessage message) {
+        try {
+            queue.put(message);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            message.nack();
+        }
+    }
+
+    private void run() {
+        List<BasicAcknowledgeablePubsubMessage> window = new ArrayList<>(maxSize);
+        while (running) {
+            try {
+                BasicAcknowledgeablePubsubMessage first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                window.add(first);
+                fill(window);
+                flush(window);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                window.forEach(BasicAcknowledgeablePubsubMessage::nack);
+                return;
+            } catch (RuntimeException e) {
+                // der Flusher muss weiterlaufen, sonst steht die ganze Ingestion
+                log.error("Failed to apply window of {} tracking messages, nacking them", window.size(), e);
+                window.forEach(BasicAcknowledgeablePubsubMessage::nack);
+            } finally {
+                window.clear();
+            }
+        }
+    }
+
+    private void fill(List<BasicAcknowledgeablePubsubMessage> window) throws InterruptedException {
+        long deadline = System.nanoTime() + lingerNanos;
+        while (window.size() < maxSize) {
+            if (queue.drainTo(window, maxSize - window.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            BasicAcknowledgeablePubsubMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            window.add(next);
+        }
+    }
+
+    void flush(List<BasicAcknowledgeablePubsubMessage> window) {
+        List<BasicAcknowledgeablePubsubMessage> accepted = new ArrayList<>(window.size());
+        List<TrackingUpdate> updates = new ArrayList<>(window.size());
+
+        for (BasicAcknowledgeablePubsubMessage message : window) {
+            TrackingUpdate update = processor.decode(message);
+            if (update != null) {
+                updates.add(update);
+                accepted.add(message);
+            }
+        }
+
+        processor.applyAll(accepted, updates);
+        log.info("Applied batch of {} tracking updates", updates.size());
+    }
+}
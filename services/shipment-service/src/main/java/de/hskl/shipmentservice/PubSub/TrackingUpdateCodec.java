@@ -0,0 +1,108 @@
+package de.hskl.shipmentservice.PubSub;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.protobuf.ByteString;
+import de.hskl.shipmentservice.entity.TrackingUpdate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Shared, thread-safe decoder for tracking update payloads. The readers are built once, so decoding
+ * reuses Jackson's deserializer caches and buffer recycling and never goes through an intermediate
+ * {@link String} of the payload.
+ */
+@Component
+public class TrackingUpdateCodec {
+    private final ObjectReader trackingUpdateReader;
+    private final ObjectReader pushEnvelopeReader;
+
+    public TrackingUpdateCodec() {
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.trackingUpdateReader = mapper.readerFor(TrackingUpdate.class);
+        this.pushEnvelopeReader = mapper.readerFor(PushEnvelope.class);
+    }
+
+    /** Decodes the data of a pulled Pub/Sub message without copying it. */
+    public TrackingUpdate decode(ByteString data) throws JsonProcessingException {
+        try {
+            return nonNull(trackingUpdateReader.readValue(data.newInput()));
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public TrackingUpdate decode(byte[] data) throws JsonProcessingException {
+        try {
+            return nonNull(trackingUpdateReader.readValue(data));
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decodes the data and falls back to values derived from the Pub/Sub message for publishers that do not
+     * set them: the event id from the message id, the event time from the publish time. Both are the same on
+     * every redelivery, so the unique {@code (event_id, ts)} index of the checkpoints still recognizes it.
+     */
+    public TrackingUpdate decode(ByteString data, String messageId, Instant publishTime) throws JsonProcessingException {
+        return withDefaults(decode(data), messageId, publishTime);
+    }
+
+    public TrackingUpdate decode(byte[] data, String messageId, Instant publishTime) throws JsonProcessingException {
+        return withDefaults(decode(data), messageId, publishTime);
+    }
+
+    // ein JSON-null liest Jackson als null, das ist genauso unbrauchbar wie kaputtes JSON
+    private static TrackingUpdate nonNull(TrackingUpdate update) throws MismatchedInputException {
+        if (update == null) {
+            throw MismatchedInputException.from(null, TrackingUpdate.class, "Tracking update payload is null");
+        }
+        return update;
+    }
+
+    private static TrackingUpdate withDefaults(TrackingUpdate update, String messageId, Instant publishTime) {
+        if (update.getEventId() == null && messageId != null && !messageId.isEmpty()) {
+            update.setEventId(UUID.nameUUIDFromBytes(messageId.getBytes(StandardCharsets.UTF_8)));
+        }
+        if (update.getTimestamp() == null) {
+            update.setTimestamp(publishTime);
+        }
+        return update;
+    }
+
+    /**
+     * Reads the envelope of a Pub/Sub push request. The Base64 {@code data} field is decoded by the
+     * parser straight into a byte array.
+     */
+    public PushEnvelope readPushEnvelope(byte[] body) throws JsonProcessingException {
+        try {
+            return pushEnvelopeReader.readValue(body);
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public record PushEnvelope(PushMessage message, String subscription) {
+    }
+
+    public record PushMessage(byte[] data, String messageId, Instant publishTime) {
+    }
+}
@@ -0,0 +1,46 @@
+package de.hskl.shipmentservice.config;
+
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController;
+import com.google.api.gax.core.InstantiatingExecutorProvider;
+import com.google.cloud.spring.pubsub.support.DefaultSubscriberFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Applies the flow control, parallel pull and executor settings from {@link PubSubSubscriberProperties} to
+ * the subscriber factory behind {@code PubSubTemplate}. Values set here take precedence over the
+ * {@code spring.cloud.gcp.pubsub.subscriber.*} defaults.
+ */
+@Configuration
+@EnableConfigurationProperties(PubSubSubscriberProperties.class)
+public class PubSubSubscriberConfig {
+
+    @Bean
+    static BeanPostProcessor subscriberFactoryCustomizer(ObjectProvider<PubSubSubscriberProperties> properties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DefaultSubscriberFactory factory) {
+                    apply(factory, properties.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    public static void apply(DefaultSubscriberFactory factory, PubSubSubscriberProperties properties) {
+        factory.setFlowControlSettings(FlowControlSettings.newBuilder()
+                .setMaxOutstandingElementCount(properties.flowControl().maxOutstandingMessages())
+                .setMaxOutstandingRequestBytes(properties.flowControl().maxOutstandingBytes())
+                .setLimitExceededBehavior(FlowController.LimitExceededBehavior.Block)
+                .build());
+        factory.setParallelPullCount(properties.parallelPullCount());
+        factory.setExecutorProvider(InstantiatingExecutorProvider.newBuilder()
+                .setExecutorThreadCount(properties.executorThreads())
+                .build());
+    }
+}
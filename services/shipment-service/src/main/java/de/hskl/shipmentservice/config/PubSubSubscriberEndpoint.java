@@ -0,0 +1,40 @@
+package de.hskl.shipmentservice.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes the effective pull subscriber settings under {@code /actuator/pubsubsubscriber}.
+ */
+@Component
+@Profile("!prod")
+@Endpoint(id = "pubsubsubscriber")
+@RequiredArgsConstructor
+public class PubSubSubscriberEndpoint {
+    private final PubSubSubscriberProperties properties;
+
+    @ReadOperation
+    public Map<String, Object> settings() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("subscription", properties.trackingUpdates());
+        settings.put("ingestMode", properties.ingestMode());
+        settings.put("flowControl", properties.flowControl());
+        settings.put("parallelPullCount", properties.parallelPullCount());
+        settings.put("executorThreads", properties.executorThreads());
+        settings.put("batch", properties.batch());
+        settings.put("partitions", Map.of(
+                "lanes", properties.partitions().effectiveLanes(),
+                "queueDepth", properties.partitions().queueDepth(),
+                "coalesceThreshold", properties.partitions().coalesceThreshold(),
+                "coalesceMaxSize", properties.partitions().coalesceMaxSize()
+        ));
+        settings.put("retry", properties.retry());
+        return settings;
+    }
+}
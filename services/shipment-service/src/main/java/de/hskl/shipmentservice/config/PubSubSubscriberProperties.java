@@ -0,0 +1,65 @@
+package de.hskl.shipmentservice.config;
+
+import de.hskl.shipmentservice.PubSub.IngestMode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "pubsub.subscription")
+public record PubSubSubscriberProperties(
+        String trackingUpdates,
+        @DefaultValue("inline") IngestMode ingestMode,
+        @DefaultValue Batch batch,
+        @DefaultValue Partitions partitions,
+        @DefaultValue FlowControl flowControl,
+        @DefaultValue("1") int parallelPullCount,
+        @DefaultValue("4") int executorThreads,
+        @DefaultValue Retry retry
+) {
+    public record Batch(
+            @DefaultValue("200") int maxSize,
+            @DefaultValue("50") long lingerMs
+    ) {
+    }
+
+    /**
+     * @param lanes             number of lanes, 0 = one lane per CPU
+     * @param coalesceThreshold backlog of position-only updates on a lane from which they are applied in
+     *                          batches of up to {@code coalesceMaxSize}, 0 = never
+     */
+    public record Partitions(
+            @DefaultValue("0") int lanes,
+            @DefaultValue("1000") int queueDepth,
+            @DefaultValue("100") int coalesceThreshold,
+            @DefaultValue("200") int coalesceMaxSize
+    ) {
+        public int effectiveLanes() {
+            return lanes > 0 ? lanes : Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    /**
+     * Limits of messages handed to this replica but not yet acked or nacked. When reached, the streaming
+     * pull stops delivering until messages are settled.
+     */
+    public record FlowControl(
+            @DefaultValue("1000") long maxOutstandingMessages,
+            @DefaultValue("104857600") long maxOutstandingBytes
+    ) {
+    }
+
+    /**
+     * Redelivery of messages that failed with a retryable error. The nack of attempt n is delayed by
+     * {@code initial-backoff-ms * 2^(n-1)}, capped at {@code max-backoff-ms}; after {@code max-attempts}
+     * the message is quarantined like a permanent failure.
+     */
+    public record Retry(
+            @DefaultValue("5") int maxAttempts,
+            @DefaultValue("1000") long initialBackoffMs,
+            @DefaultValue("60000") long maxBackoffMs
+    ) {
+        public long backoffMs(int attempt) {
+            int exponent = Math.min(Math.max(attempt - 1, 0), 30);
+            return Math.min(initialBackoffMs << exponent, maxBackoffMs);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package de.hskl.shipmentservice.controller;
+
+import de.hskl.shipmentservice.PubSub.EmbeddedBroker;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Publish endpoint of the {@link EmbeddedBroker}, used by the tracking-service when it runs in the
+ * {@code embedded} profile.
+ */
+@RestController
+@RequestMapping("/embedded/topics")
+@Slf4j
+@Profile("embedded")
+@RequiredArgsConstructor
+public class EmbeddedBrokerController {
+    private final EmbeddedBroker broker;
+
+    @PostMapping("/{topic}/publish")
+    public ResponseEntity<Map<String, String>> publish(@PathVariable String topic, @RequestBody byte[] body) {
+        try {
+            return ResponseEntity.ok(Map.of("messageId", broker.publish(topic, body)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage())); // 503, Publisher soll es erneut versuchen
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+}
@@ -1,11 +1,8 @@
 package de.hskl.shipmentservice.controller;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import de.hskl.shipmentservice.service.ShipmentService;
+import de.hskl.shipmentservice.PubSub.TrackingMessageProcessor;
+import de.hskl.shipmentservice.PubSub.TrackingUpdateCodec;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Profile;
@@ -15,43 +12,34 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.Base64;
-
 @RestController
 @RequestMapping("/pubsub")
 @Slf4j
 @Profile("prod")
+@RequiredArgsConstructor
 public class PubSubPushController {
-    private final ShipmentService shipmentService;
-    private final ObjectMapper objectMapper;
-
-    public PubSubPushController(ShipmentService shipmentService) {
-        this.shipmentService = shipmentService;
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
-    }
+    private final TrackingMessageProcessor processor;
+    private final TrackingUpdateCodec codec;
 
     @PostMapping("/push")
-    public ResponseEntity<String> receivePushMessage(@RequestBody String body) {
-        log.info("Received push message: {}", body);
-
+    public ResponseEntity<String> receivePushMessage(@RequestBody byte[] body) {
         try {
-            JsonNode root = objectMapper.readTree(body);
-            JsonNode messageNode = root.get("message");
+            TrackingUpdateCodec.PushEnvelope envelope = codec.readPushEnvelope(body);
 
-            if (messageNode == null || messageNode.get("data") == null) {
+            if (envelope == null || envelope.message() == null || envelope.message().data() == null) {
                 log.warn("Invalid Pub/Sub message format: missing 'message' or 'data' field");
                 return ResponseEntity.ok("Invalid message format"); // 200, dass nicht dauerhaft erneut gesendet wird
             }
 
-            String encodedData = messageNode.get("data").asText();
-            String payload = new String(Base64.getDecoder().decode(encodedData));
-
-            log.info("Decoded message payload: {}", payload);
-
-            shipmentService.updateShipment(payload);
+            log.info("Received push message {}", envelope.message().messageId());
 
-            return ResponseEntity.ok("Message processed"); // 200 für ACK
+            return switch (processor.process(
+                    envelope.message().messageId(), envelope.message().publishTime(), envelope.message().data())) {
+                case APPLIED -> ResponseEntity.ok("Message processed"); // 200 für ACK
+                case DUPLICATE -> ResponseEntity.ok("Duplicate message"); // 200, wurde schon verarbeitet
+                case QUARANTINED -> ResponseEntity.ok("Message quarantined"); // 200, liegt in der Quarantäne
+                case RETRY -> ResponseEntity.internalServerError().body("Processing error"); // 500, um neue Nachricht zu erhalten
+            };
         } catch (JsonProcessingException e) {
             log.error("Error processing Pub/Sub message", e);
             return ResponseEntity.internalServerError().body("Processing error"); // 500, um neue Nachricht zu erhalten
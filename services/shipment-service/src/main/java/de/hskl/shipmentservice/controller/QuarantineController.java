@@ -0,0 +1,46 @@
+package de.hskl.shipmentservice.controller;
+
+import de.hskl.shipmentservice.dto.QuarantinedMessageDto;
+import de.hskl.shipmentservice.dto.ReplayResultDto;
+import de.hskl.shipmentservice.exceptions.GlobalExceptionHandler;
+import de.hskl.shipmentservice.service.QuarantineService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/admin/quarantine")
+@RequiredArgsConstructor
+public class QuarantineController {
+    private final QuarantineService quarantineService;
+
+    @GetMapping
+    public List<QuarantinedMessageDto> list(
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestHeader(value = "X-Auth-User-Role", defaultValue = "CUSTOMER") String role
+    ) {
+        requireAdmin(role);
+        return quarantineService.list(limit);
+    }
+
+    /**
+     * Replays the given quarantined messages, or the oldest {@code limit} ones if the body is empty.
+     */
+    @PostMapping("/replay")
+    public ReplayResultDto replay(
+            @RequestBody(required = false) List<UUID> ids,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestHeader(value = "X-Auth-User-Role", defaultValue = "CUSTOMER") String role
+    ) {
+        requireAdmin(role);
+        return quarantineService.replay(ids, limit);
+    }
+
+    private void requireAdmin(String role) {
+        if (!role.equals("ADMIN")) {
+            throw new GlobalExceptionHandler.AccessDeniedException("Admin role required");
+        }
+    }
+}
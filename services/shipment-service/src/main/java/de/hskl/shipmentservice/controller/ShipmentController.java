@@ -3,22 +3,43 @@ package de.hskl.shipmentservice.controller;
 import de.hskl.shipmentservice.dto.CreateShipmentDto;
 import de.hskl.shipmentservice.dto.ShipmentDetailDto;
 import de.hskl.shipmentservice.dto.ShipmentListItemDto;
+import de.hskl.shipmentservice.dto.ShipmentPageDto;
 import de.hskl.shipmentservice.dto.ShipmentTrackingDto;
+import de.hskl.shipmentservice.dto.ShipmentView;
+import de.hskl.shipmentservice.exceptions.GlobalExceptionHandler;
+import de.hskl.shipmentservice.service.ShipmentExportService;
 import de.hskl.shipmentservice.service.ShipmentService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URI;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {ShipmentController.NEXT_CURSOR_HEADER, "ETag"})
 @RestController
 @RequestMapping
 @RequiredArgsConstructor
 public class ShipmentController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final CacheControl PRIVATE_REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final ShipmentService shipmentService;
+    private final ShipmentExportService shipmentExportService;
 
     // TODO: später durch echte Werte aus API Request ersetzen (Firebase Login)
     private String mockUserId() { return "user-123"; }
@@ -40,23 +61,147 @@ public class ShipmentController {
     public ResponseEntity<ShipmentDetailDto> get(
             @PathVariable UUID id,
             @RequestHeader("X-Auth-User-Id") String userId,
-            @RequestHeader(value = "X-Auth-User-Role", defaultValue = "CUSTOMER") String role
+            @RequestHeader(value = "X-Auth-User-Role", defaultValue = "CUSTOMER") String role,
+            @RequestParam(defaultValue = "full") String view,
+            @RequestParam(required = false) UUID after,
+            WebRequest request
+    ) {
+        boolean isAdmin = role.equals("ADMIN");
+        ShipmentView shipmentView = view(view, after);
+        String etag = etag(shipmentService.getShipmentVersion(id, userId, isAdmin), variant(shipmentView, after));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        ShipmentDetailDto dto = shipmentService.getShipment(id, userId, isAdmin, shipmentView, after);
+        return ResponseEntity.ok().eTag(etag).cacheControl(PRIVATE_REVALIDATE).body(dto);
+    }
+
+    /**
+     * Streams the caller's shipments with their timelines as NDJSON, oldest update first. An export cut off by
+     * the request timeout is continued with {@code updatedSince} set to the last {@code updatedAt} received.
+     */
+    @GetMapping(value = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestHeader("X-Auth-User-Id") String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant updatedSince
     ) {
-        ShipmentDetailDto dto = shipmentService.getShipment(id, userId, role.equals("ADMIN"));
-        return ResponseEntity.ok(dto);
+        StreamingResponseBody body = out -> shipmentExportService.export(userId, updatedSince, out);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
 
     @GetMapping("/track/{trackingId}")
-    public ResponseEntity<ShipmentTrackingDto> getTracking(@PathVariable String trackingId) {
-        ShipmentTrackingDto dto = shipmentService.getTrackingInfo(trackingId);
-        return ResponseEntity.ok(dto);
+    public ResponseEntity<ShipmentTrackingDto> getTracking(
+            @PathVariable String trackingId,
+            @RequestParam(defaultValue = "full") String view,
+            @RequestParam(required = false) UUID after,
+            WebRequest request
+    ) {
+        ShipmentView trackingView = view(view, after);
+        String etag = etag(shipmentService.getTrackingVersion(trackingId), variant(trackingView, after));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        ShipmentTrackingDto dto = shipmentService.getTrackingInfo(trackingId, trackingView, after);
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(dto);
+    }
+
+    /**
+     * Tracking of many shipments in one request, e.g. for a table in the customer portal. Unknown tracking
+     * ids are left out of the returned map.
+     *
+     * @param latest if set, only the newest checkpoints per shipment, at most this many
+     */
+    @PostMapping("/track/batch")
+    public Map<String, ShipmentTrackingDto> getTrackingBatch(
+            @RequestBody List<String> trackingIds,
+            @RequestParam(required = false) Integer latest
+    ) {
+        return shipmentService.getTrackingInfos(trackingIds, latest);
     }
 
+    /**
+     * Pushes new checkpoints of the shipment as server-sent events, instead of polling
+     * {@code /track/{trackingId}}. A reconnecting client gets the checkpoints written after its
+     * {@code Last-Event-ID} (the id of the last checkpoint it received) replayed; {@code after} does the same
+     * for the first connect after a regular fetch.
+     */
+    @GetMapping(value = "/track/{trackingId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamTracking(
+            @PathVariable String trackingId,
+            @RequestParam(required = false) UUID after,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId
+    ) {
+        if (lastEventId != null) {
+            try {
+                after = UUID.fromString(lastEventId);
+            } catch (IllegalArgumentException e) {
+                throw new GlobalExceptionHandler.InvalidRequestException("Invalid Last-Event-ID: " + lastEventId);
+            }
+        }
+        SseEmitter emitter = shipmentService.streamTracking(trackingId, after);
+        // sonst puffert nginx die Events
+        return ResponseEntity.ok().header("X-Accel-Buffering", "no").body(emitter);
+    }
+
+    /**
+     * Lists the caller's shipments page by page. The cursor of the next page is returned in the
+     * {@code X-Next-Cursor} header, which is missing on the last page.
+     */
     @GetMapping
-    public List<ShipmentListItemDto> listMine(
+    public ResponseEntity<List<ShipmentListItemDto>> listMine(
             @RequestHeader("X-Auth-User-Id") String userId,
-            @RequestHeader(value = "X-Auth-User-Role", defaultValue = "CUSTOMER") String role
+            @RequestHeader(value = "X-Auth-User-Role", defaultValue = "CUSTOMER") String role,
+            @RequestParam(defaultValue = "createdAt") String sort,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            WebRequest request
     ) {
-        return shipmentService.listForUser(userId);
+        String etag = etag(shipmentService.getListVersion(userId), userId, sort, status, cursor, limit);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        ShipmentPageDto page = shipmentService.listForUser(userId, sort, status, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag).cacheControl(PRIVATE_REVALIDATE);
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+
+    private static ShipmentView view(String param, UUID after) {
+        ShipmentView view;
+        try {
+            view = ShipmentView.fromParam(param);
+        } catch (IllegalArgumentException e) {
+            throw new GlobalExceptionHandler.InvalidRequestException(e.getMessage());
+        }
+        if (after != null && view != ShipmentView.FULL) {
+            throw new GlobalExceptionHandler.InvalidRequestException("after requires view=full");
+        }
+        return view;
+    }
+
+    /**
+     * Strong ETag from the {@code updatedAt} of the underlying data, plus the request parameters that
+     * select a different representation of it.
+     */
+    private static Object[] variant(ShipmentView view, UUID after) {
+        List<Object> variant = new ArrayList<>(2);
+        if (view != ShipmentView.FULL) {
+            variant.add(view.param());
+        }
+        if (after != null) {
+            variant.add(after);
+        }
+        return variant.toArray();
+    }
+
+    private static String etag(Instant version, Object... variant) {
+        String tag = Long.toHexString(ChronoUnit.MICROS.between(Instant.EPOCH, version));
+        if (variant.length > 0) {
+            tag += "-" + Integer.toHexString(Arrays.hashCode(variant));
+        }
+        return "\"" + tag + "\"";
     }
 }
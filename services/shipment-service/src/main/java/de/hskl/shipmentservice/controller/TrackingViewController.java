@@ -0,0 +1,32 @@
+package de.hskl.shipmentservice.controller;
+
+import de.hskl.shipmentservice.dto.TrackingViewRebuildDto;
+import de.hskl.shipmentservice.exceptions.GlobalExceptionHandler;
+import de.hskl.shipmentservice.service.TrackingViewService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/admin/tracking-views")
+@RequiredArgsConstructor
+public class TrackingViewController {
+    private final TrackingViewService trackingViewService;
+
+    /**
+     * Rebuilds the tracking read model of all shipments from shipments, checkpoints and archives. Runs until
+     * done, batch by batch, while tracking updates keep being applied.
+     */
+    @PostMapping("/rebuild")
+    public TrackingViewRebuildDto rebuild(
+            @RequestHeader(value = "X-Auth-User-Role", defaultValue = "CUSTOMER") String role
+    ) {
+        requireAdmin(role);
+        return new TrackingViewRebuildDto(trackingViewService.rebuild());
+    }
+
+    private void requireAdmin(String role) {
+        if (!role.equals("ADMIN")) {
+            throw new GlobalExceptionHandler.AccessDeniedException("Admin role required");
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package de.hskl.shipmentservice.dto;
 
 import de.hskl.shipmentservice.entity.Checkpoint;
+import de.hskl.shipmentservice.entity.ShipmentStatus;
 
 import java.time.Instant;
+import java.util.UUID;
 
 public record CheckpointDto(
+        UUID id,
         Instant timestamp,
         String status,
         String message,
@@ -13,8 +16,9 @@ public record CheckpointDto(
 ) {
     public static CheckpointDto from(Checkpoint checkpoint) {
         return new CheckpointDto(
+                checkpoint.getId(),
                 checkpoint.getTimestamp(),
-                checkpoint.getStatus(),
+                ShipmentStatus.nameOf(checkpoint.getStatus()),
                 checkpoint.getMessage(),
                 checkpoint.getLat(),
                 checkpoint.getLng()
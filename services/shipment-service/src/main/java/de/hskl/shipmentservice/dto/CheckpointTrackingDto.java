@@ -1,10 +1,13 @@
 package de.hskl.shipmentservice.dto;
 
 import de.hskl.shipmentservice.entity.Checkpoint;
+import de.hskl.shipmentservice.entity.ShipmentStatus;
 
 import java.time.Instant;
+import java.util.UUID;
 
 public record CheckpointTrackingDto(
+        UUID id,
         Instant timestamp,
         String status,
         String message,
@@ -13,8 +16,9 @@ public record CheckpointTrackingDto(
 ) {
     public static CheckpointTrackingDto from(Checkpoint checkpoint) {
         return new CheckpointTrackingDto(
+                checkpoint.getId(),
                 checkpoint.getTimestamp(),
-                checkpoint.getStatus(),
+                ShipmentStatus.nameOf(checkpoint.getStatus()),
                 checkpoint.getMessage(),
                 checkpoint.getLat(),
                 checkpoint.getLng()
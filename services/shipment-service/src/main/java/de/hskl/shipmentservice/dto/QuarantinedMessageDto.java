@@ -0,0 +1,27 @@
+package de.hskl.shipmentservice.dto;
+
+import de.hskl.shipmentservice.entity.QuarantinedMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+public record QuarantinedMessageDto(
+        UUID id,
+        String messageId,
+        String payload,
+        String error,
+        int attempts,
+        Instant quarantinedAt
+) {
+    public static QuarantinedMessageDto from(QuarantinedMessage message) {
+        return new QuarantinedMessageDto(
+                message.getId(),
+                message.getMessageId(),
+                message.getPayload() != null ? new String(message.getPayload(), StandardCharsets.UTF_8) : null,
+                message.getError(),
+                message.getAttempts(),
+                message.getQuarantinedAt()
+        );
+    }
+}
@@ -0,0 +1,10 @@
+package de.hskl.shipmentservice.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public record ReplayResultDto(
+        int replayed,
+        List<UUID> failed
+) {
+}
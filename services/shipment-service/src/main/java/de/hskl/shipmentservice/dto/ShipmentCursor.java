@@ -0,0 +1,46 @@
+package de.hskl.shipmentservice.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in an owner's shipment list: sort value and id of the last item of a page. Opaque for clients.
+ */
+public record ShipmentCursor(
+        ShipmentSort sort,
+        Instant after,
+        UUID afterId
+) {
+    /**
+     * Sorts after every real shipment, used for the first page.
+     */
+    public static ShipmentCursor start(ShipmentSort sort) {
+        return new ShipmentCursor(sort, Instant.parse("9999-12-31T23:59:59Z"), new UUID(-1L, -1L));
+    }
+
+    public static ShipmentCursor after(ShipmentSort sort, ShipmentListItemDto item) {
+        return new ShipmentCursor(sort, sort.valueOf(item), item.id());
+    }
+
+    public String encode() {
+        String raw = sort.param() + "|" + after + "|" + afterId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor is malformed or belongs to another sort order
+     */
+    public static ShipmentCursor decode(String cursor, ShipmentSort sort) {
+        String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length != 3 || ShipmentSort.fromParam(parts[0]) != sort) {
+            throw new IllegalArgumentException("Cursor does not match sort " + sort.param());
+        }
+        try {
+            return new ShipmentCursor(sort, Instant.parse(parts[1]), UUID.fromString(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package de.hskl.shipmentservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import de.hskl.shipmentservice.entity.Shipment;
 
 import java.time.Instant;
@@ -17,6 +18,8 @@ public record ShipmentDetailDto(
         Instant expectedDelivery,
         Double lastLat,
         Double lastLng,
+        Instant updatedAt,
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         List<CheckpointDto> timeline
 ) {
     public static ShipmentDetailDto from(Shipment shipment, List<CheckpointDto> checkpoints) {
@@ -27,10 +30,11 @@ public record ShipmentDetailDto(
                 shipment.getReceiver(),
                 shipment.getReceiverStreet(),
                 shipment.getReceiverCity(),
-                shipment.getCurrentStatus(),
+                shipment.getCurrentStatus().name(),
                 shipment.getExpectedDelivery(),
                 shipment.getLastLat(),
                 shipment.getLastLng(),
+                shipment.getUpdatedAt(),
                 checkpoints
         );
     }
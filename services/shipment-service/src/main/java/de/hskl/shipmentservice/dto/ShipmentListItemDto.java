@@ -1,6 +1,7 @@
 package de.hskl.shipmentservice.dto;
 
 import de.hskl.shipmentservice.entity.Shipment;
+import de.hskl.shipmentservice.entity.ShipmentStatus;
 
 import java.time.Instant;
 import java.util.UUID;
@@ -12,17 +13,25 @@ public record ShipmentListItemDto(
         String receiver,
         String currentStatus,
         Instant expectedDelivery,
-        Instant createdAt
+        Instant createdAt,
+        Instant updatedAt
 ) {
+    /** Used by the JPQL projections of {@link de.hskl.shipmentservice.repository.ShipmentRepository}. */
+    public ShipmentListItemDto(UUID id, String trackingId, String sender, String receiver, ShipmentStatus currentStatus,
+                               Instant expectedDelivery, Instant createdAt, Instant updatedAt) {
+        this(id, trackingId, sender, receiver, currentStatus.name(), expectedDelivery, createdAt, updatedAt);
+    }
+
     public static ShipmentListItemDto from(Shipment s) {
         return new ShipmentListItemDto(
                 s.getId(),
                 s.getTrackingId(),
                 s.getSender(),
                 s.getReceiver(),
-                s.getCurrentStatus(),
+                s.getCurrentStatus().name(),
                 s.getExpectedDelivery(),
-                s.getCreatedAt()
+                s.getCreatedAt(),
+                s.getUpdatedAt()
         );
     }
 }
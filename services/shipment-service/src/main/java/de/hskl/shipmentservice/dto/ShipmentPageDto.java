@@ -0,0 +1,12 @@
+package de.hskl.shipmentservice.dto;
+
+import java.util.List;
+
+/**
+ * @param nextCursor cursor of the following page, null on the last page
+ */
+public record ShipmentPageDto(
+        List<ShipmentListItemDto> items,
+        String nextCursor
+) {
+}
@@ -0,0 +1,31 @@
+package de.hskl.shipmentservice.dto;
+
+import java.time.Instant;
+
+public enum ShipmentSort {
+    CREATED_AT("createdAt"),
+    UPDATED_AT("updatedAt");
+
+    private final String param;
+
+    ShipmentSort(String param) {
+        this.param = param;
+    }
+
+    public String param() {
+        return param;
+    }
+
+    public Instant valueOf(ShipmentListItemDto item) {
+        return this == CREATED_AT ? item.createdAt() : item.updatedAt();
+    }
+
+    public static ShipmentSort fromParam(String param) {
+        for (ShipmentSort sort : values()) {
+            if (sort.param.equals(param)) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort: " + param);
+    }
+}
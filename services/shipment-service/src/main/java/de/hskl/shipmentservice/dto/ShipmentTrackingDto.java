@@ -1,6 +1,8 @@
 package de.hskl.shipmentservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import de.hskl.shipmentservice.entity.Shipment;
+import de.hskl.shipmentservice.entity.TrackingView;
 
 import java.time.Instant;
 import java.util.List;
@@ -9,14 +11,24 @@ public record ShipmentTrackingDto(
         String trackingId,
         String status,
         Instant expectedDelivery,
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         List<CheckpointTrackingDto> checkpoints
 ) {
     public static ShipmentTrackingDto from(Shipment shipment, List<CheckpointTrackingDto> checkpoints) {
         return new ShipmentTrackingDto(
                 shipment.getTrackingId(),
-                shipment.getCurrentStatus(),
+                shipment.getCurrentStatus().name(),
                 shipment.getExpectedDelivery(),
                 checkpoints
         );
     }
+
+    public static ShipmentTrackingDto from(TrackingView view, List<CheckpointTrackingDto> checkpoints) {
+        return new ShipmentTrackingDto(
+                view.getTrackingId(),
+                view.getStatus().name(),
+                view.getExpectedDelivery(),
+                checkpoints
+        );
+    }
 }
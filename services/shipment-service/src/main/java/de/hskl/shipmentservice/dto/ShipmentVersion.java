@@ -0,0 +1,12 @@
+package de.hskl.shipmentservice.dto;
+
+import java.time.Instant;
+
+/**
+ * Head columns needed to answer a conditional GET on a shipment without loading it.
+ */
+public record ShipmentVersion(
+        String ownerUserId,
+        Instant updatedAt
+) {
+}
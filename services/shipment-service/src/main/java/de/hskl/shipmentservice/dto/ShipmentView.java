@@ -0,0 +1,32 @@
+package de.hskl.shipmentservice.dto;
+
+/**
+ * How much of the timeline a shipment response contains. Decides which queries run, not only which fields
+ * are written.
+ */
+public enum ShipmentView {
+    /** Head row only, without timeline. */
+    SUMMARY("summary"),
+    /** Head row and the newest checkpoint. */
+    LATEST_CHECKPOINT("latest-checkpoint"),
+    FULL("full");
+
+    private final String param;
+
+    ShipmentView(String param) {
+        this.param = param;
+    }
+
+    public String param() {
+        return param;
+    }
+
+    public static ShipmentView fromParam(String param) {
+        for (ShipmentView view : values()) {
+            if (view.param.equals(param)) {
+                return view;
+            }
+        }
+        throw new IllegalArgumentException("Unknown view: " + param);
+    }
+}
@@ -0,0 +1,6 @@
+package de.hskl.shipmentservice.dto;
+
+public record TrackingViewRebuildDto(
+        int rebuilt
+) {
+}
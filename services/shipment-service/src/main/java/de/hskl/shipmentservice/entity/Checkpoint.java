@@ -1,12 +1,10 @@
 package de.hskl.shipmentservice.entity;
 
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.*;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.time.Instant;
 import java.util.UUID;
@@ -14,11 +12,12 @@ import java.util.UUID;
 @Data
 @Entity
 @Table(name = "checkpoints")
+@EntityListeners(CheckpointMessageDictionary.class)
 @NoArgsConstructor @AllArgsConstructor
 @Builder
 public class Checkpoint {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
     @Column(name = "id", nullable = false)
     private UUID id;
 
@@ -30,12 +29,25 @@ public class Checkpoint {
     @Column(name = "ts", nullable = false)
     private Instant timestamp;
 
-    private String status;
+    @Column(name = "status")
+    private ShipmentStatus status;
 
+    @Transient
     private String message;
 
+    /** {@link #message} if it is not in the dictionary, see {@link CheckpointMessageDictionary}. */
+    @Column(name = "message", length = 500)
+    @Getter(AccessLevel.PACKAGE) @Setter(AccessLevel.PACKAGE)
+    private String inlineMessage;
+
+    @Column(name = "message_code")
+    @Getter(AccessLevel.PACKAGE) @Setter(AccessLevel.PACKAGE)
+    private Integer messageCode;
+
     private Double lat;
 
     private Double lng;
 
+    @Column(name = "event_id", unique = true)
+    private UUID eventId;
 }
\ No newline at end of file
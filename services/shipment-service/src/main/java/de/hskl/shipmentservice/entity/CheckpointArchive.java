@@ -0,0 +1,33 @@
+package de.hskl.shipmentservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Archived timeline of one shipment, encoded by {@link de.hskl.shipmentservice.service.CheckpointArchiveCodec}.
+ */
+@Data
+@Entity
+@Table(name = "checkpoint_archives")
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class CheckpointArchive {
+    @Id
+    @Column(name = "shipment_id", nullable = false)
+    private UUID shipmentId;
+
+    @Column(name = "checkpoint_count", nullable = false)
+    private int checkpointCount;
+
+    @Column(name = "data", nullable = false, length = 16 * 1024 * 1024)
+    private byte[] data;
+
+    @Column(name = "archived_at", nullable = false)
+    private Instant archivedAt;
+}
@@ -0,0 +1,22 @@
+package de.hskl.shipmentservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entry of the dictionary of frequent checkpoint messages, see {@link CheckpointMessageDictionary}.
+ */
+@Data
+@Entity
+@Table(name = "checkpoint_messages")
+@NoArgsConstructor @AllArgsConstructor
+public class CheckpointMessage {
+    @Id
+    @Column(name = "code", nullable = false)
+    private Integer code;
+
+    @Column(name = "text", nullable = false, unique = true, length = 500)
+    private String text;
+}
@@ -0,0 +1,77 @@
+package de.hskl.shipmentservice.entity;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Entity listener of {@link Checkpoint} that interns frequent messages: a message found in
+ * {@code checkpoint_messages} is stored as its code, any other message inline. Loaded checkpoints get
+ * their text back in {@link Checkpoint#getMessage()}.
+ * <p>
+ * The dictionary is read once and again after {@code refresh-interval-ms}, or right away when a loaded
+ * row has a code that is not known yet. Entries are only ever added (by migration or by hand), never changed.
+ * Created by Hibernate through Spring's bean container.
+ */
+public class CheckpointMessageDictionary {
+    private final JdbcTemplate jdbcTemplate;
+    private final long refreshIntervalNanos;
+
+    private volatile Entries entries;
+
+    public CheckpointMessageDictionary(
+            JdbcTemplate jdbcTemplate,
+            @Value("${shipment.message-dictionary.refresh-interval-ms:300000}") long refreshIntervalMs
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.refreshIntervalNanos = refreshIntervalMs * 1_000_000L;
+    }
+
+    @PrePersist
+    void intern(Checkpoint checkpoint) {
+        Integer code = checkpoint.getMessage() != null ? current().codes().get(checkpoint.getMessage()) : null;
+        checkpoint.setMessageCode(code);
+        checkpoint.setInlineMessage(code == null ? checkpoint.getMessage() : null);
+    }
+
+    @PostLoad
+    void resolve(Checkpoint checkpoint) {
+        Integer code = checkpoint.getMessageCode();
+        checkpoint.setMessage(code == null ? checkpoint.getInlineMessage() : text(code));
+    }
+
+    private String text(int code) {
+        String text = current().texts().get(code);
+        if (text == null) {
+            text = reload().texts().get(code);
+        }
+        if (text == null) {
+            throw new IllegalStateException("Unknown checkpoint message code " + code);
+        }
+        return text;
+    }
+
+    private Entries current() {
+        Entries current = entries;
+        return current != null && System.nanoTime() - current.loadedAt() < refreshIntervalNanos ? current : reload();
+    }
+
+    private synchronized Entries reload() {
+        Map<String, Integer> codes = new HashMap<>();
+        Map<Integer, String> texts = new HashMap<>();
+        jdbcTemplate.query("select code, text from checkpoint_messages", rs -> {
+            codes.put(rs.getString("text"), rs.getInt("code"));
+            texts.put(rs.getInt("code"), rs.getString("text"));
+        });
+        Entries loaded = new Entries(Map.copyOf(codes), Map.copyOf(texts), System.nanoTime());
+        entries = loaded;
+        return loaded;
+    }
+
+    private record Entries(Map<String, Integer> codes, Map<Integer, String> texts, long loadedAt) {
+    }
+}
@@ -0,0 +1,41 @@
+package de.hskl.shipmentservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Entity
+@Table(name = "quarantined_messages")
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class QuarantinedMessage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "id", nullable = false)
+    private UUID id;
+
+    @Column(name = "message_id", length = 128)
+    private String messageId;
+
+    // Pub/Sub-Veröffentlichungszeit, Ereigniszeit für Updates ohne timestamp
+    @Column(name = "published_at")
+    private Instant publishedAt;
+
+    @Column(name = "payload")
+    private byte[] payload;
+
+    @Column(name = "error", length = 2000)
+    private String error;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "quarantined_at", nullable = false)
+    private Instant quarantinedAt;
+}
@@ -3,6 +3,7 @@ package de.hskl.shipmentservice.entity;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.time.Instant;
 import java.util.UUID;
@@ -13,12 +14,13 @@ import java.util.UUID;
 @NoArgsConstructor @AllArgsConstructor
 @Builder
 public class Shipment {
+    // zeitlich geordnete UUIDv7, neue Zeilen landen am rechten Rand des Primärschlüssel-Index
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
     @Column(name = "id", nullable = false)
     private UUID id;
 
-    @Column
+    @Column(name = "tracking_id", unique = true, length = 64)
     private String trackingId;
 
     @Column(name = "owner_user_id", length = 64)
@@ -36,8 +38,8 @@ public class Shipment {
     @Column(name = "receiver_city", nullable = false)
     private String receiverCity;
 
-    @Column(name = "current_status", nullable = false, length = 50)
-    private String currentStatus;
+    @Column(name = "current_status", nullable = false)
+    private ShipmentStatus currentStatus;
 
     @Column(name = "expected_delivery")
     private Instant expectedDelivery;
@@ -48,6 +50,13 @@ public class Shipment {
     @Column(name = "last_lng")
     private Double lastLng;
 
+    @Column(name = "last_event_at")
+    private Instant lastEventAt;
+
+    /** Set once the timeline has been moved to {@link CheckpointArchive}. */
+    @Column(name = "timeline_archived_at")
+    private Instant timelineArchivedAt;
+
     @ColumnDefault("now()")
     @Column(name = "created_at", nullable = false)
     private Instant createdAt;
@@ -0,0 +1,58 @@
+package de.hskl.shipmentservice.entity;
+
+/**
+ * Status of a shipment and its checkpoints. Stored as the {@link #code()} in a {@code SMALLINT} column,
+ * see {@code shipment_statuses}; the API keeps using the names.
+ */
+public enum ShipmentStatus {
+    CREATED(1),
+    PICKED_UP(2),
+    IN_TRANSIT(3),
+    OUT_FOR_DELIVERY(4),
+    DELIVERED(5),
+    DELAYED(6);
+
+    private static final ShipmentStatus[] BY_CODE = new ShipmentStatus[values().length + 1];
+
+    static {
+        for (ShipmentStatus status : values()) {
+            BY_CODE[status.code] = status;
+        }
+    }
+
+    private final short code;
+
+    ShipmentStatus(int code) {
+        this.code = (short) code;
+    }
+
+    public short code() {
+        return code;
+    }
+
+    public static ShipmentStatus fromCode(short code) {
+        if (code < 1 || code >= BY_CODE.length) {
+            throw new IllegalArgumentException("Unknown status code: " + code);
+        }
+        return BY_CODE[code];
+    }
+
+    /**
+     * @return null for null
+     * @throws IllegalArgumentException for an unknown status
+     */
+    public static ShipmentStatus fromName(String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown status: " + name);
+        }
+    }
+
+    public static String nameOf(ShipmentStatus status) {
+        return status != null ? status.name() : null;
+    }
+}
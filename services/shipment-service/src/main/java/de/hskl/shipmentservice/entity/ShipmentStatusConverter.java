@@ -0,0 +1,17 @@
+package de.hskl.shipmentservice.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter(autoApply = true)
+public class ShipmentStatusConverter implements AttributeConverter<ShipmentStatus, Short> {
+    @Override
+    public Short convertToDatabaseColumn(ShipmentStatus status) {
+        return status != null ? status.code() : null;
+    }
+
+    @Override
+    public ShipmentStatus convertToEntityAttribute(Short code) {
+        return code != null ? ShipmentStatus.fromCode(code) : null;
+    }
+}
@@ -7,6 +7,7 @@ import java.util.UUID;
 
 @Data
 public class TrackingUpdate {
+    private UUID eventId;
     private UUID shipmentId;
     private String status;
     private String message;
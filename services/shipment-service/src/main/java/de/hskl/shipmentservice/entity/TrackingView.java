@@ -0,0 +1,47 @@
+package de.hskl.shipmentservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Read model of the public tracking response of one shipment, maintained by
+ * {@link de.hskl.shipmentservice.service.TrackingViewService}. {@code timeline} holds the newest checkpoints
+ * as serialized JSON, {@code checkpointCount} the length of the whole timeline.
+ */
+@Data
+@Entity
+@Table(name = "tracking_views")
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class TrackingView {
+    @Id
+    @Column(name = "shipment_id", nullable = false)
+    private UUID shipmentId;
+
+    @Column(name = "tracking_id", nullable = false, unique = true, length = 64)
+    private String trackingId;
+
+    @Column(name = "status", nullable = false)
+    private ShipmentStatus status;
+
+    @Column(name = "expected_delivery")
+    private Instant expectedDelivery;
+
+    @Column(name = "last_event_at")
+    private Instant lastEventAt;
+
+    @Column(name = "checkpoint_count", nullable = false)
+    private int checkpointCount;
+
+    @Column(name = "timeline", nullable = false, length = 16 * 1024 * 1024)
+    private byte[] timeline;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
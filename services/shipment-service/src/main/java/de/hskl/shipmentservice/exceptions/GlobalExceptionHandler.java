@@ -23,6 +23,18 @@ public class GlobalExceptionHandler {
                 .body(ex.getMessage());
     }
 
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity handleInvalidRequest(InvalidRequestException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ex.getMessage());
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity handleUnavailable(ServiceUnavailableException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ex.getMessage());
+    }
+
     @ExceptionHandler(AccessDeniedException.class)
     public ResponseEntity handleAccess(AccessDeniedException ex) {
         return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -35,9 +47,22 @@ public class GlobalExceptionHandler {
         }
     }
 
+    // Häufiger, erwarteter Fall bei öffentlichen Tracking-Links, daher ohne Stacktrace
     public static class TrackingNotFoundException extends RuntimeException {
         public TrackingNotFoundException(String trackingId) {
-            super("Shipment with Tracking-ID " + trackingId + " not found");
+            super("Shipment with Tracking-ID " + trackingId + " not found", null, false, false);
+        }
+    }
+
+    public static class InvalidRequestException extends RuntimeException {
+        public InvalidRequestException(String msg) {
+            super(msg);
+        }
+    }
+
+    public static class ServiceUnavailableException extends RuntimeException {
+        public ServiceUnavailableException(String msg) {
+            super(msg);
         }
     }
 
@@ -0,0 +1,9 @@
+package de.hskl.shipmentservice.repository;
+
+import de.hskl.shipmentservice.entity.CheckpointArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.UUID;
+
+public interface CheckpointArchiveRepository extends JpaRepository<CheckpointArchive, UUID> {
+}
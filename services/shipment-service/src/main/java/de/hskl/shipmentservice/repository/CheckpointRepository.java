@@ -2,10 +2,51 @@ package de.hskl.shipmentservice.repository;
 
 import de.hskl.shipmentservice.entity.Checkpoint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface CheckpointRepository extends JpaRepository<Checkpoint, UUID> {
-    List<Checkpoint> findByShipmentIdOrderByTimestampAsc(UUID shipmentId);
+    /**
+     * Timeline of a shipment. {@code from} lets the planner skip the monthly partitions before it, pass the
+     * shipment's creation time minus some clock skew.
+     */
+    List<Checkpoint> findByShipmentIdAndTimestampGreaterThanEqualOrderByTimestampAsc(UUID shipmentId, Instant from);
+
+    Optional<Checkpoint> findFirstByShipmentIdOrderByTimestampDesc(UUID shipmentId);
+
+    /**
+     * Checkpoints of a shipment written after the one with id {@code after}, in the order they were written.
+     * {@code from} as in {@link #findByShipmentIdAndTimestampGreaterThanEqualOrderByTimestampAsc}.
+     */
+    List<Checkpoint> findByShipmentIdAndTimestampGreaterThanEqualAndIdGreaterThanOrderByIdAsc(UUID shipmentId, Instant from,
+                                                                                             UUID after);
+
+    List<Checkpoint> findByShipmentIdInOrderByTimestampAsc(Collection<UUID> shipmentIds);
+
+    /**
+     * The newest {@code latest} checkpoints of each shipment, oldest first per shipment.
+     */
+    @Query(value = """
+            select id, shipment_id, ts, status, message, message_code, lat, lng, event_id
+            from (select c.*, row_number() over (partition by c.shipment_id order by c.ts desc) as rn
+                  from checkpoints c
+                  where c.shipment_id in (:shipmentIds)) ranked
+            where rn <= :latest
+            order by shipment_id, ts
+            """, nativeQuery = true)
+    List<Checkpoint> findLatestByShipmentIdIn(@Param("shipmentIds") Collection<UUID> shipmentIds,
+                                              @Param("latest") int latest);
+
+    boolean existsByEventId(UUID eventId);
+
+    @Modifying
+    @Query("delete from Checkpoint c where c.shipment.id in :shipmentIds")
+    int deleteByShipmentIdIn(@Param("shipmentIds") Collection<UUID> shipmentIds);
 }
@@ -0,0 +1,15 @@
+package de.hskl.shipmentservice.repository;
+
+import de.hskl.shipmentservice.entity.QuarantinedMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface QuarantinedMessageRepository extends JpaRepository<QuarantinedMessage, UUID> {
+    Optional<QuarantinedMessage> findFirstByMessageId(String messageId);
+
+    List<QuarantinedMessage> findAllByOrderByQuarantinedAtAsc(Pageable pageable);
+}
@@ -1,13 +1,189 @@
 package de.hskl.shipmentservice.repository;
 
+import de.hskl.shipmentservice.dto.ShipmentListItemDto;
+import de.hskl.shipmentservice.dto.ShipmentVersion;
 import de.hskl.shipmentservice.entity.Shipment;
+import de.hskl.shipmentservice.entity.ShipmentStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface ShipmentRepository extends JpaRepository<Shipment, UUID> {
-    List<Shipment> findByOwnerUserId(String ownerUserId);
+    /*
+     * Keyset-Pagination über (created_at, id) bzw. (updated_at, id), absteigend. Die Projektion lädt nur die
+     * Listenspalten, passende Indizes: idx_shipments_owner_created / idx_shipments_owner_updated.
+     */
+    @Query("""
+            select new de.hskl.shipmentservice.dto.ShipmentListItemDto(s.id, s.trackingId, s.sender, s.receiver,
+                s.currentStatus, s.expectedDelivery, s.createdAt, s.updatedAt)
+            from Shipment s
+            where s.ownerUserId = :owner and (s.createdAt, s.id) < (:after, :afterId)
+            order by s.createdAt desc, s.id desc
+            """)
+    List<ShipmentListItemDto> findPageByCreatedAt(@Param("owner") String owner,
+                                                  @Param("after") Instant after,
+                                                  @Param("afterId") UUID afterId,
+                                                  Limit limit);
+
+    @Query("""
+            select new de.hskl.shipmentservice.dto.ShipmentListItemDto(s.id, s.trackingId, s.sender, s.receiver,
+                s.currentStatus, s.expectedDelivery, s.createdAt, s.updatedAt)
+            from Shipment s
+            where s.ownerUserId = :owner and s.currentStatus = :status and (s.createdAt, s.id) < (:after, :afterId)
+            order by s.createdAt desc, s.id desc
+            """)
+    List<ShipmentListItemDto> findPageByCreatedAtAndStatus(@Param("owner") String owner,
+                                                           @Param("status") ShipmentStatus status,
+                                                           @Param("after") Instant after,
+                                                           @Param("afterId") UUID afterId,
+                                                           Limit limit);
+
+    @Query("""
+            select new de.hskl.shipmentservice.dto.ShipmentListItemDto(s.id, s.trackingId, s.sender, s.receiver,
+                s.currentStatus, s.expectedDelivery, s.createdAt, s.updatedAt)
+            from Shipment s
+            where s.ownerUserId = :owner and (s.updatedAt, s.id) < (:after, :afterId)
+            order by s.updatedAt desc, s.id desc
+            """)
+    List<ShipmentListItemDto> findPageByUpdatedAt(@Param("owner") String owner,
+                                                  @Param("after") Instant after,
+                                                  @Param("afterId") UUID afterId,
+                                                  Limit limit);
+
+    @Query("""
+            select new de.hskl.shipmentservice.dto.ShipmentListItemDto(s.id, s.trackingId, s.sender, s.receiver,
+                s.currentStatus, s.expectedDelivery, s.createdAt, s.updatedAt)
+            from Shipment s
+            where s.ownerUserId = :owner and s.currentStatus = :status and (s.updatedAt, s.id) < (:after, :afterId)
+            order by s.updatedAt desc, s.id desc
+            """)
+    List<ShipmentListItemDto> findPageByUpdatedAtAndStatus(@Param("owner") String owner,
+                                                           @Param("status") ShipmentStatus status,
+                                                           @Param("after") Instant after,
+                                                           @Param("afterId") UUID afterId,
+                                                           Limit limit);
 
     Shipment findByTrackingId(String trackingId);
+
+    boolean existsByTrackingId(String trackingId);
+
+    List<Shipment> findByTrackingIdIn(Collection<String> trackingIds);
+
+    @Query("select s.id from Shipment s where s.trackingId = :trackingId")
+    Optional<UUID> findIdByTrackingId(@Param("trackingId") String trackingId);
+
+    /**
+     * Latest change of the shipment or its timeline. Checkpoints whose head update was deferred (see
+     * {@link de.hskl.shipmentservice.service.ShipmentHeadWriteBehind}) only move the tracking view row.
+     */
+    @Query("""
+            select greatest(s.updatedAt, coalesce(v.updatedAt, s.updatedAt))
+            from Shipment s left join TrackingView v on v.shipmentId = s.id
+            where s.trackingId = :trackingId
+            """)
+    Optional<Instant> findUpdatedAtByTrackingId(@Param("trackingId") String trackingId);
+
+    @Query("select s.createdAt from Shipment s where s.id = :id")
+    Optional<Instant> findCreatedAtById(@Param("id") UUID id);
+
+    /**
+     * Like {@link #findUpdatedAtByTrackingId}.
+     */
+    @Query("""
+            select new de.hskl.shipmentservice.dto.ShipmentVersion(s.ownerUserId,
+                greatest(s.updatedAt, coalesce(v.updatedAt, s.updatedAt)))
+            from Shipment s left join TrackingView v on v.shipmentId = s.id
+            where s.id = :id
+            """)
+    Optional<ShipmentVersion> findVersionById(@Param("id") UUID id);
+
+    @Query("select max(s.updatedAt) from Shipment s where s.ownerUserId = :owner")
+    Instant findLatestUpdateByOwner(@Param("owner") String owner);
+
+    /**
+     * Marks the shipment as changed without moving its head, e.g. after appending a late checkpoint,
+     * so that its ETag changes.
+     *
+     * @return 0 if the shipment does not exist
+     */
+    @Modifying
+    @Query("update Shipment s set s.updatedAt = :now where s.id = :id")
+    int touch(@Param("id") UUID id, @Param("now") Instant now);
+
+    /**
+     * Takes the row lock an update of the head would take, without writing a new row version, so checkpoints
+     * of the shipment are still written one transaction after the other.
+     */
+    @Query(value = "select id from shipments where id = :id for no key update", nativeQuery = true)
+    Optional<UUID> lockForCheckpoint(@Param("id") UUID id);
+
+    /**
+     * Delivered shipments with their last event before {@code before} whose timeline is not archived yet, oldest
+     * first. The rows stay locked until the end of the transaction, so no checkpoint can be added to these
+     * shipments meanwhile (its foreign key check needs a share lock on the row). Rows another replica has
+     * locked are skipped. The status is written as its code 5 so the partial index idx_shipments_archivable
+     * matches.
+     */
+    @Query(value = """
+            select * from shipments
+            where current_status = 5 and timeline_archived_at is null and last_event_at < :before
+            order by last_event_at
+            limit :limit
+            for update skip locked
+            """, nativeQuery = true)
+    List<Shipment> lockArchivable(@Param("before") Instant before, @Param("limit") int limit);
+
+    /**
+     * The next {@code limit} shipments after {@code afterId} in id order, locked like in {@link #lockArchivable}
+     * but waiting for rows other transactions hold.
+     */
+    @Query(value = """
+            select * from shipments
+            where id > :afterId
+            order by id
+            limit :limit
+            for update
+            """, nativeQuery = true)
+    List<Shipment> lockPage(@Param("afterId") UUID afterId, @Param("limit") int limit);
+
+    @Modifying
+    @Query("update Shipment s set s.timelineArchivedAt = :at where s.id in :ids")
+    int markTimelineArchived(@Param("ids") Collection<UUID> ids, @Param("at") Instant at);
+
+    @Query("select s.trackingId from Shipment s where s.createdAt >= :since")
+    Stream<String> streamTrackingIdsCreatedSince(@Param("since") Instant since);
+
+    List<Shipment> findByIdInAndUpdatedAtAfter(Collection<UUID> ids, Instant since);
+
+    @Query("select s.id from Shipment s where s.id in :ids")
+    Set<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Moves the head state of a shipment to the given event, unless a newer event has already been applied.
+     *
+     * @return 1 if the head was updated, 0 if the shipment does not exist or the event is older than its head
+     */
+    @Modifying
+    @Query("""
+            update Shipment s
+            set s.currentStatus = :status, s.lastLat = :lat, s.lastLng = :lng,
+                s.lastEventAt = :eventAt, s.updatedAt = :now
+            where s.id = :id and (s.lastEventAt is null or s.lastEventAt <= :eventAt)
+            """)
+    int applyTrackingUpdate(@Param("id") UUID id,
+                            @Param("status") ShipmentStatus status,
+                            @Param("lat") Double lat,
+                            @Param("lng") Double lng,
+                            @Param("eventAt") Instant eventAt,
+                            @Param("now") Instant now);
 }
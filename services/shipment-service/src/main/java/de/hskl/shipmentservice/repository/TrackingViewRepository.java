@@ -0,0 +1,25 @@
+package de.hskl.shipmentservice.repository;
+
+import de.hskl.shipmentservice.entity.TrackingView;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface TrackingViewRepository extends JpaRepository<TrackingView, UUID> {
+    Optional<TrackingView> findByTrackingId(String trackingId);
+
+    /**
+     * Locks the rows until the end of the transaction, always in id order so two transactions appending to
+     * the same shipments cannot deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select v from TrackingView v where v.shipmentId in :shipmentIds order by v.shipmentId")
+    List<TrackingView> lockByShipmentIdIn(@Param("shipmentIds") Collection<UUID> shipmentIds);
+}
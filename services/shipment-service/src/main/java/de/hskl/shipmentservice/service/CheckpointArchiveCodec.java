@@ -0,0 +1,238 @@
+package de.hskl.shipmentservice.service;
+
+import de.hskl.shipmentservice.entity.Checkpoint;
+import de.hskl.shipmentservice.entity.ShipmentStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact columnar encoding of a timeline for {@link de.hskl.shipmentservice.entity.CheckpointArchive}.
+ * <p>
+ * Layout: a version byte and the uncompressed length, followed by the deflated columns
+ * <ul>
+ *     <li>number of checkpoints</li>
+ *     <li>dictionaries of the distinct status and message values</li>
+ *     <li>timestamps in microseconds, delta-encoded</li>
+ *     <li>status and message as dictionary indexes</li>
+ *     <li>lat and lng as fixed-point values with 6 decimals (about 11 cm), delta-encoded</li>
+ * </ul>
+ * All numbers are varints, signed ones zigzag-encoded. Null is stored as index or value 0, dictionary
+ * indexes and coordinates are shifted by one for that. Ids and event ids of the checkpoints are not kept.
+ */
+public final class CheckpointArchiveCodec {
+    private static final byte VERSION = 1;
+    private static final double FIXED_POINT = 1_000_000d;
+
+    private CheckpointArchiveCodec() {
+    }
+
+    /**
+     * @param checkpoints timeline ordered by timestamp, timestamps are truncated to microseconds
+     */
+    public static byte[] encode(List<Checkpoint> checkpoints) {
+        Map<String, Integer> statuses = new HashMap<>();
+        Map<String, Integer> messages = new HashMap<>();
+        List<String> statusValues = new ArrayList<>();
+        List<String> messageValues = new ArrayList<>();
+        for (Checkpoint checkpoint : checkpoints) {
+            index(statuses, statusValues, ShipmentStatus.nameOf(checkpoint.getStatus()));
+            index(messages, messageValues, checkpoint.getMessage());
+        }
+
+        ByteArrayOutputStream columns = new ByteArrayOutputStream(64 + checkpoints.size() * 16);
+        writeVarLong(columns, checkpoints.size());
+        writeDictionary(columns, statusValues);
+        writeDictionary(columns, messageValues);
+
+        long previous = 0;
+        for (Checkpoint checkpoint : checkpoints) {
+            long micros = micros(checkpoint.getTimestamp());
+            writeVarLong(columns, zigzag(micros - previous));
+            previous = micros;
+        }
+        for (Checkpoint checkpoint : checkpoints) {
+            writeVarLong(columns, checkpoint.getStatus() == null ? 0 : statuses.get(checkpoint.getStatus().name()) + 1);
+        }
+        for (Checkpoint checkpoint : checkpoints) {
+            writeVarLong(columns, checkpoint.getMessage() == null ? 0 : messages.get(checkpoint.getMessage()) + 1);
+        }
+        writeCoordinates(columns, checkpoints.stream().map(Checkpoint::getLat).toList());
+        writeCoordinates(columns, checkpoints.stream().map(Checkpoint::getLng).toList());
+
+        byte[] raw = columns.toByteArray();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+        out.write(VERSION);
+        writeVarLong(out, raw.length);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return the timeline in the stored order, as checkpoints without id, event id and shipment
+     * @throws IllegalArgumentException if the data is not a valid archive
+     */
+    public static List<Checkpoint> decode(byte[] data) {
+        try {
+            ByteBuffer header = ByteBuffer.wrap(data);
+            if (header.get() != VERSION) {
+                throw new IllegalArgumentException("Unsupported checkpoint archive version " + data[0]);
+            }
+            byte[] raw = new byte[Math.toIntExact(readVarLong(header))];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(header);
+                if (inflater.inflate(raw) != raw.length || !inflater.finished()) {
+                    throw new IllegalArgumentException("Truncated checkpoint archive");
+                }
+            } finally {
+                inflater.end();
+            }
+            return decodeColumns(ByteBuffer.wrap(raw));
+        } catch (DataFormatException | BufferUnderflowException | ArithmeticException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Corrupt checkpoint archive", e);
+        }
+    }
+
+    private static List<Checkpoint> decodeColumns(ByteBuffer in) {
+        int count = Math.toIntExact(readVarLong(in));
+        List<String> statuses = readDictionary(in);
+        List<String> messages = readDictionary(in);
+
+        List<Checkpoint> checkpoints = new ArrayList<>(count);
+        long micros = 0;
+        for (int i = 0; i < count; i++) {
+            micros += unzigzag(readVarLong(in));
+            checkpoints.add(Checkpoint.builder()
+                    .timestamp(Instant.EPOCH.plusSeconds(Math.floorDiv(micros, 1_000_000L))
+                            .plusNanos(Math.floorMod(micros, 1_000_000L) * 1_000L))
+                    .build());
+        }
+        for (Checkpoint checkpoint : checkpoints) {
+            int index = Math.toIntExact(readVarLong(in));
+            checkpoint.setStatus(index == 0 ? null : ShipmentStatus.fromName(statuses.get(index - 1)));
+        }
+        for (Checkpoint checkpoint : checkpoints) {
+            int index = Math.toIntExact(readVarLong(in));
+            checkpoint.setMessage(index == 0 ? null : messages.get(index - 1));
+        }
+        List<Double> lats = readCoordinates(in, count);
+        List<Double> lngs = readCoordinates(in, count);
+        for (int i = 0; i < count; i++) {
+            checkpoints.get(i).setLat(lats.get(i));
+            checkpoints.get(i).setLng(lngs.get(i));
+        }
+        if (in.hasRemaining()) {
+            throw new IllegalArgumentException("Corrupt checkpoint archive: trailing bytes");
+        }
+        return checkpoints;
+    }
+
+    private static void index(Map<String, Integer> indexes, List<String> values, String value) {
+        if (value != null && !indexes.containsKey(value)) {
+            indexes.put(value, values.size());
+            values.add(value);
+        }
+    }
+
+    private static void writeDictionary(ByteArrayOutputStream out, List<String> values) {
+        writeVarLong(out, values.size());
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static List<String> readDictionary(ByteBuffer in) {
+        int size = Math.toIntExact(readVarLong(in));
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            byte[] bytes = new byte[Math.toIntExact(readVarLong(in))];
+            in.get(bytes);
+            values.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+
+    // Delta zum letzten vorhandenen Wert, aufeinanderfolgende Positionen liegen meist nah beieinander
+    private static void writeCoordinates(ByteArrayOutputStream out, List<Double> values) {
+        long previous = 0;
+        for (Double value : values) {
+            if (value == null) {
+                writeVarLong(out, 0);
+            } else {
+                long fixed = Math.round(value * FIXED_POINT);
+                writeVarLong(out, zigzag(fixed - previous) + 1);
+                previous = fixed;
+            }
+        }
+    }
+
+    private static List<Double> readCoordinates(ByteBuffer in, int count) {
+        List<Double> values = new ArrayList<>(count);
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long encoded = readVarLong(in);
+            if (encoded == 0) {
+                values.add(null);
+            } else {
+                previous += unzigzag(encoded - 1);
+                values.add(previous / FIXED_POINT);
+            }
+        }
+        return values;
+    }
+
+    private static long micros(Instant timestamp) {
+        return Math.addExact(Math.multiplyExact(timestamp.getEpochSecond(), 1_000_000L), timestamp.getNano() / 1_000);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupt checkpoint archive: varint too long");
+    }
+}
@@ -0,0 +1,119 @@
+package de.hskl.shipmentservice.service;
+
+import de.hskl.shipmentservice.entity.Checkpoint;
+import de.hskl.shipmentservice.entity.CheckpointArchive;
+import de.hskl.shipmentservice.entity.Shipment;
+import de.hskl.shipmentservice.repository.CheckpointArchiveRepository;
+import de.hskl.shipmentservice.repository.CheckpointRepository;
+import de.hskl.shipmentservice.repository.ShipmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Moves the timelines of shipments delivered more than {@code delivered-days} ago out of {@code checkpoints}
+ * into one {@link CheckpointArchive} row per shipment, see {@link CheckpointArchiveCodec}. Reads merge the
+ * archive back in, see {@link ShipmentService}.
+ * <p>
+ * Works in batches of {@code batch-size} shipments, each in its own transaction that locks the shipment rows
+ * (see {@link ShipmentRepository#lockArchivable}), so replicas can run it at the same time.
+ */
+@Slf4j
+@Component
+public class CheckpointArchiver {
+    private final ShipmentRepository shipmentRepository;
+    private final CheckpointRepository checkpointRepository;
+    private final CheckpointArchiveRepository archiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration deliveredAge;
+    private final int batchSize;
+    private final Counter archivedShipments;
+    private final Counter archivedCheckpoints;
+
+    public CheckpointArchiver(
+            ShipmentRepository shipmentRepository,
+            CheckpointRepository checkpointRepository,
+            CheckpointArchiveRepository archiveRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${shipment.archive.enabled:false}") boolean enabled,
+            @Value("${shipment.archive.delivered-days:30}") int deliveredDays,
+            @Value("${shipment.archive.batch-size:200}") int batchSize
+    ) {
+        this.shipmentRepository = shipmentRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.archiveRepository = archiveRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.deliveredAge = Duration.ofDays(deliveredDays);
+        this.batchSize = batchSize;
+        this.archivedShipments = meterRegistry.counter("shipment.archive.shipments");
+        this.archivedCheckpoints = meterRegistry.counter("shipment.archive.checkpoints");
+    }
+
+    @Scheduled(initialDelayString = "${shipment.archive.initial-delay-ms:120000}",
+            fixedDelayString = "${shipment.archive.interval-ms:3600000}")
+    public void archive() {
+        if (enabled) {
+            archive(Instant.now().minus(deliveredAge));
+        }
+    }
+
+    /**
+     * @param deliveredBefore only shipments whose last event is older are archived
+     * @return number of archived shipments
+     */
+    public int archive(Instant deliveredBefore) {
+        int total = 0;
+        int archived;
+        do {
+            archived = transactionTemplate.execute(status -> archiveBatch(deliveredBefore));
+            total += archived;
+        } while (archived == batchSize);
+        if (total > 0) {
+            log.info("Archived the timelines of {} shipments delivered before {}", total, deliveredBefore);
+        }
+        return total;
+    }
+
+    private int archiveBatch(Instant deliveredBefore) {
+        List<UUID> shipmentIds = shipmentRepository.lockArchivable(deliveredBefore, batchSize).stream()
+                .map(Shipment::getId)
+                .toList();
+        if (shipmentIds.isEmpty()) {
+            return 0;
+        }
+        Map<UUID, List<Checkpoint>> timelines = checkpointRepository.findByShipmentIdInOrderByTimestampAsc(shipmentIds)
+                .stream()
+                .collect(Collectors.groupingBy(checkpoint -> checkpoint.getShipment().getId()));
+
+        Instant now = Instant.now();
+        List<CheckpointArchive> archives = new ArrayList<>(timelines.size());
+        timelines.forEach((shipmentId, timeline) -> archives.add(CheckpointArchive.builder()
+                .shipmentId(shipmentId)
+                .checkpointCount(timeline.size())
+                .data(CheckpointArchiveCodec.encode(timeline))
+                .archivedAt(now)
+                .build()));
+        archiveRepository.saveAll(archives);
+        int deleted = checkpointRepository.deleteByShipmentIdIn(shipmentIds);
+        shipmentRepository.markTimelineArchived(shipmentIds, now);
+
+        archivedShipments.increment(shipmentIds.size());
+        archivedCheckpoints.increment(deleted);
+        return shipmentIds.size();
+    }
+}
@@ -0,0 +1,148 @@
+package de.hskl.shipmentservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of {@code checkpoints} (see V7 migration) ahead of time: the current month and
+ * the next {@code months-ahead} always have their own partition, so new checkpoints do not end up in the
+ * default partition. With {@code retention-months} set, partitions of months before that are detached and
+ * dropped as a whole instead of deleting rows.
+ * <p>
+ * Only active on a Postgres schema with a partitioned {@code checkpoints} table. Each step runs in its own
+ * transaction under an advisory lock, so only one replica does the work.
+ */
+@Slf4j
+@Component
+public class CheckpointPartitionMaintainer {
+    private static final long LOCK_KEY = 0x636b_7074_7061_7274L; // "ckptpart"
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final Pattern PARTITION = Pattern.compile("checkpoints_(\\d{4})_(\\d{2})");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    private Boolean partitioned;
+
+    public CheckpointPartitionMaintainer(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${shipment.checkpoint-partitions.enabled:true}") boolean enabled,
+            @Value("${shipment.checkpoint-partitions.months-ahead:3}") int monthsAhead,
+            @Value("${shipment.checkpoint-partitions.retention-months:0}") int retentionMonths
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @Scheduled(initialDelayString = "${shipment.checkpoint-partitions.initial-delay-ms:60000}",
+            fixedDelayString = "${shipment.checkpoint-partitions.interval-ms:3600000}")
+    public void maintain() {
+        if (enabled && isPartitioned()) {
+            maintain(YearMonth.now(ZoneOffset.UTC));
+        }
+    }
+
+    /**
+     * @param current month the partitions are created from and the retention is counted back from
+     */
+    public void maintain(YearMonth current) {
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            locked(() -> createPartition(month));
+        }
+        if (retentionMonths > 0) {
+            YearMonth oldestKept = current.minusMonths(retentionMonths);
+            for (String partition : partitions()) {
+                Matcher matcher = PARTITION.matcher(partition);
+                if (matcher.matches()
+                        && YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))).isBefore(oldestKept)) {
+                    locked(() -> dropPartition(partition));
+                }
+            }
+        }
+    }
+
+    private void createPartition(YearMonth month) {
+        String partition = "checkpoints_" + month.format(SUFFIX);
+        if (partitions().contains(partition)) {
+            return;
+        }
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        String create = "create table " + partition + " partition of checkpoints for values from ('" + from + "') to ('" + to + "')";
+
+        Boolean inDefault = jdbcTemplate.queryForObject(
+                "select exists (select 1 from checkpoints_default where ts >= ? and ts < ?)", Boolean.class, from, to);
+        if (Boolean.TRUE.equals(inDefault)) {
+            // Zeilen des Monats liegen schon in der Default-Partition und müssen in die neue Partition umziehen
+            jdbcTemplate.execute("alter table checkpoints detach partition checkpoints_default");
+            jdbcTemplate.execute(create);
+            int moved = jdbcTemplate.update("""
+                    with moved as (delete from checkpoints_default where ts >= ? and ts < ? returning *)
+                    insert into checkpoints select * from moved
+                    """, from, to);
+            jdbcTemplate.execute("alter table checkpoints attach partition checkpoints_default default");
+            log.info("Created checkpoint partition {} and moved {} rows from the default partition", partition, moved);
+        } else {
+            jdbcTemplate.execute(create);
+            log.info("Created checkpoint partition {}", partition);
+        }
+    }
+
+    private void dropPartition(String partition) {
+        if (!partitions().contains(partition)) {
+            return;
+        }
+        jdbcTemplate.execute("alter table checkpoints detach partition " + partition);
+        jdbcTemplate.execute("drop table " + partition);
+        log.info("Dropped checkpoint partition {} (retention {} months)", partition, retentionMonths);
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList("""
+                select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid
+                where i.inhparent = 'checkpoints'::regclass
+                """, String.class);
+    }
+
+    private void locked(Runnable step) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("select pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY))) {
+                step.run();
+            }
+        });
+    }
+
+    private synchronized boolean isPartitioned() {
+        if (partitioned == null) {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            partitioned = "PostgreSQL".equals(database) && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "select exists (select 1 from pg_partitioned_table where partrelid = to_regclass('checkpoints'))",
+                    Boolean.class));
+            if (!partitioned) {
+                log.info("checkpoints is not a partitioned Postgres table, partition maintenance disabled");
+            }
+        }
+        return partitioned;
+    }
+}
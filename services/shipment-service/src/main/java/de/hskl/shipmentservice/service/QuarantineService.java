@@ -0,0 +1,88 @@
+package de.hskl.shipmentservice.service;
+
+import de.hskl.shipmentservice.PubSub.TrackingUpdateCodec;
+import de.hskl.shipmentservice.dto.QuarantinedMessageDto;
+import de.hskl.shipmentservice.dto.ReplayResultDto;
+import de.hskl.shipmentservice.entity.QuarantinedMessage;
+import de.hskl.shipmentservice.repository.QuarantinedMessageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Stores tracking messages that can not be applied (unreadable payload, unknown shipment, retries exhausted)
+ * so they can be acked instead of being redelivered forever, and replays them on request.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QuarantineService {
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final QuarantinedMessageRepository quarantinedMessageRepository;
+    private final ShipmentService shipmentService;
+    private final TrackingUpdateCodec codec;
+
+    @Transactional
+    public void quarantine(String messageId, Instant publishTime, byte[] payload, Throwable error, int attempts) {
+        QuarantinedMessage message = quarantinedMessageRepository.findFirstByMessageId(messageId)
+                .orElseGet(() -> QuarantinedMessage.builder()
+                        .messageId(messageId)
+                        .publishedAt(publishTime)
+                        .payload(payload)
+                        .build());
+        message.setError(describe(error));
+        message.setAttempts(message.getAttempts() + attempts);
+        message.setQuarantinedAt(Instant.now());
+        quarantinedMessageRepository.save(message);
+        log.warn("Quarantined message {} after {} attempt(s): {}", messageId, attempts, message.getError());
+    }
+
+    @Transactional(readOnly = true)
+    public List<QuarantinedMessageDto> list(int limit) {
+        return quarantinedMessageRepository.findAllByOrderByQuarantinedAtAsc(PageRequest.of(0, limit)).stream()
+                .map(QuarantinedMessageDto::from)
+                .toList();
+    }
+
+    /**
+     * Applies the given quarantined messages again, or the oldest {@code limit} ones when no ids are given.
+     * Every message is applied in its own transaction; replayed messages are removed from the quarantine,
+     * failed ones stay with their attempt count increased.
+     */
+    public ReplayResultDto replay(List<UUID> ids, int limit) {
+        List<QuarantinedMessage> messages = ids == null || ids.isEmpty()
+                ? quarantinedMessageRepository.findAllByOrderByQuarantinedAtAsc(PageRequest.of(0, limit))
+                : quarantinedMessageRepository.findAllById(ids);
+
+        int replayed = 0;
+        List<UUID> failed = new ArrayList<>();
+        for (QuarantinedMessage message : messages) {
+            try {
+                shipmentService.updateShipment(codec.decode(
+                        message.getPayload(), message.getMessageId(), message.getPublishedAt()));
+                quarantinedMessageRepository.delete(message);
+                replayed++;
+            } catch (Exception e) {
+                message.setError(describe(e));
+                message.setAttempts(message.getAttempts() + 1);
+                quarantinedMessageRepository.save(message);
+                failed.add(message.getId());
+            }
+        }
+        log.info("Replayed {} quarantined message(s), {} failed", replayed, failed.size());
+        return new ReplayResultDto(replayed, failed);
+    }
+
+    private static String describe(Throwable error) {
+        String description = error.getClass().getSimpleName() + ": " + error.getMessage();
+        return description.length() > MAX_ERROR_LENGTH ? description.substring(0, MAX_ERROR_LENGTH) : description;
+    }
+}
@@ -0,0 +1,190 @@
+package de.hskl.shipmentservice.service;
+
+import de.hskl.shipmentservice.dto.CheckpointDto;
+import de.hskl.shipmentservice.dto.ShipmentDetailDto;
+import de.hskl.shipmentservice.entity.ShipmentStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Streams all shipments of an owner with their timelines as NDJSON, one {@link ShipmentDetailDto} per line,
+ * ordered by {@code updated_at}. The shipments are read in chunks of {@code shipment.export.chunk-size}, paged by
+ * keyset on {@code (updated_at, id)}; every chunk is read with its checkpoints in one joined query and its own
+ * short read-only transaction and written after that has ended, so neither memory use nor the age of the oldest
+ * open snapshot depends on the number of shipments or on how fast the client reads. A shipment updated during
+ * the export moves behind the keyset and comes again in a later chunk. Archived timelines
+ * ({@link CheckpointArchiver}) come along in the same rows and are merged in.
+ * <p>
+ * Requests end after {@code spring.mvc.async.request-timeout}. Every line carries the shipment's
+ * {@code updatedAt}, so a client whose export was cut off continues with {@code updatedSince} set to the last
+ * one it received and drops the repeated shipments by id.
+ */
+@Slf4j
+@Service
+public class ShipmentExportService {
+    private static final String EXPORT_SQL = """
+            with chunk as (
+                select s.id, s.tracking_id, s.sender, s.receiver, s.receiver_street, s.receiver_city, s.current_status,
+                       s.expected_delivery, s.last_lat, s.last_lng, s.updated_at
+                from shipments s
+                where s.owner_user_id = ? and (s.updated_at, s.id) > (?, ?)
+                order by s.updated_at, s.id
+                limit ?
+            )
+            select s.*, a.data as archive,
+                   c.id as checkpoint_id, c.ts, c.status, coalesce(c.message, m.text) as message, c.lat, c.lng
+            from chunk s
+            left join checkpoint_archives a on a.shipment_id = s.id
+            left join checkpoints c on c.shipment_id = s.id
+            left join checkpoint_messages m on m.code = c.message_code
+            order by s.updated_at, s.id, c.ts
+            """;
+    // kleinste UUID, damit der erste Chunk alle Sendungen ab updatedSince einschließt
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final ObjectWriter writer;
+
+    public ShipmentExportService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            JsonMapper jsonMapper,
+            @Value("${shipment.export.chunk-size:500}") int chunkSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.chunkSize = chunkSize;
+        // der Response-Stream bleibt für die nächste Zeile offen
+        this.writer = jsonMapper.writerFor(ShipmentDetailDto.class).without(StreamWriteFeature.AUTO_CLOSE_TARGET);
+    }
+
+    /**
+     * @param updatedSince only shipments updated at or after this instant, null for all
+     * @return number of exported shipments
+     */
+    public long export(String ownerUserId, Instant updatedSince, OutputStream out) {
+        LocalDateTime afterUpdatedAt = LocalDateTime.ofInstant(
+                updatedSince != null ? updatedSince : Instant.EPOCH, ZoneOffset.UTC);
+        UUID afterId = FIRST_ID;
+        long exported = 0;
+
+        List<ShipmentDetailDto> chunk;
+        do {
+            chunk = readChunk(ownerUserId, afterUpdatedAt, afterId);
+            for (ShipmentDetailDto shipment : chunk) {
+                write(out, shipment);
+            }
+            exported += chunk.size();
+            if (!chunk.isEmpty()) {
+                afterUpdatedAt = LocalDateTime.ofInstant(chunk.getLast().updatedAt(), ZoneOffset.UTC);
+                afterId = chunk.getLast().id();
+            }
+        } while (chunk.size() == chunkSize);
+
+        log.info("Exported {} shipments of {}", exported, ownerUserId);
+        return exported;
+    }
+
+    private List<ShipmentDetailDto> readChunk(String ownerUserId, LocalDateTime afterUpdatedAt, UUID afterId) {
+        ChunkReader reader = new ChunkReader();
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(
+                EXPORT_SQL, reader, ownerUserId, afterUpdatedAt, afterId, chunkSize));
+        reader.finish();
+        return reader.shipments;
+    }
+
+    private void write(OutputStream out, ShipmentDetailDto shipment) {
+        try {
+            writer.writeValue(out, shipment);
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Collects the rows of one shipment into its {@link ShipmentDetailDto} once the next shipment starts.
+     */
+    private static final class ChunkReader implements RowCallbackHandler {
+        private final List<ShipmentDetailDto> shipments = new ArrayList<>();
+        private ShipmentDetailDto current;
+        private List<CheckpointDto> timeline;
+        private boolean archived;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            UUID id = rs.getObject("id", UUID.class);
+            if (current == null || !current.id().equals(id)) {
+                finish();
+                timeline = new ArrayList<>();
+                current = new ShipmentDetailDto(
+                        id,
+                        rs.getString("tracking_id"),
+                        rs.getString("sender"),
+                        rs.getString("receiver"),
+                        rs.getString("receiver_street"),
+                        rs.getString("receiver_city"),
+                        ShipmentStatus.fromCode(rs.getShort("current_status")).name(),
+                        instant(rs, "expected_delivery"),
+                        rs.getObject("last_lat", Double.class),
+                        rs.getObject("last_lng", Double.class),
+                        instant(rs, "updated_at"),
+                        timeline
+                );
+                byte[] archive = rs.getBytes("archive");
+                if (archive != null) {
+                    CheckpointArchiveCodec.decode(archive).stream().map(CheckpointDto::from).forEach(timeline::add);
+                    archived = true;
+                }
+            }
+            Instant ts = instant(rs, "ts");
+            if (ts != null) {
+                Short status = rs.getObject("status", Short.class);
+                timeline.add(new CheckpointDto(rs.getObject("checkpoint_id", UUID.class), ts,
+                        status != null ? ShipmentStatus.fromCode(status).name() : null, rs.getString("message"),
+                        rs.getObject("lat", Double.class), rs.getObject("lng", Double.class)));
+            }
+        }
+
+        void finish() {
+            if (current == null) {
+                return;
+            }
+            if (archived) {
+                timeline.sort(Comparator.comparing(CheckpointDto::timestamp));
+                archived = false;
+            }
+            shipments.add(current);
+            current = null;
+        }
+
+        private Instant instant(ResultSet rs, String column) throws SQLException {
+            LocalDateTime value = rs.getObject(column, LocalDateTime.class);
+            return value != null ? value.toInstant(ZoneOffset.UTC) : null;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package de.hskl.shipmentservice.service;
+
+import de.hskl.shipmentservice.entity.ShipmentStatus;
+import de.hskl.shipmentservice.entity.TrackingUpdate;
+import de.hskl.shipmentservice.repository.ShipmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Optional write-behind for shipment heads. Position-only updates (same status as the last one seen for
+ * the shipment) are not written immediately but merged per shipment and flushed on a short interval,
+ * so a truck pinging every few seconds moves the head columns once per interval instead of once per ping.
+ * The caller does not write the shipment row for deferred updates either; ETags follow the tracking view row,
+ * which is rewritten with every checkpoint anyway, so they change without waiting for the flush.
+ * The flushed write is the same conditional head update as the immediate one, so a wrongly classified
+ * update is only delayed, never lost or applied out of order: heads are flushed in batches of
+ * {@code flush-batch-size}, each in its own transaction, and only leave the buffer once that transaction has
+ * committed. A failed batch stays buffered for the next flush.
+ */
+@Slf4j
+@Component
+public class ShipmentHeadWriteBehind {
+    private final ShipmentRepository shipmentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int flushBatchSize;
+
+    private final Map<UUID, PendingHead> pending = new ConcurrentHashMap<>();
+    private final Map<UUID, String> lastStatus;
+
+    private final Counter buffered;
+    private final Counter coalesced;
+    private final Counter flushed;
+
+    public ShipmentHeadWriteBehind(
+            ShipmentRepository shipmentRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${shipment.write-behind.enabled:false}") boolean enabled,
+            @Value("${shipment.write-behind.max-tracked-shipments:100000}") int maxTrackedShipments,
+            @Value("${shipment.write-behind.flush-batch-size:500}") int flushBatchSize
+    ) {
+        this.shipmentRepository = shipmentRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.flushBatchSize = flushBatchSize;
+        this.lastStatus = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, String> eldest) {
+                return size() > maxTrackedShipments;
+            }
+        };
+
+        this.buffered = meterRegistry.counter("shipment.write_behind.updates", "result", "buffered");
+        this.coalesced = meterRegistry.counter("shipment.write_behind.updates", "result", "coalesced");
+        this.flushed = meterRegistry.counter("shipment.write_behind.updates", "result", "flushed");
+        meterRegistry.gaugeMapSize("shipment.write_behind.pending", Tags.empty(), pending);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Defers the head update if it carries the same status as the last update seen for the shipment.
+     * Otherwise the status is remembered and the caller has to apply the update immediately.
+     *
+     * @return true if the head update was deferred
+     */
+    public boolean tryDefer(TrackingUpdate update, Instant eventAt) {
+        if (!enabled || update.getShipmentId() == null) {
+            return false;
+        }
+
+        String previous;
+        synchronized (lastStatus) {
+            previous = lastStatus.put(update.getShipmentId(), update.getStatus());
+        }
+        if (previous == null || !Objects.equals(previous, update.getStatus())) {
+            return false;
+        }
+
+        PendingHead head = new PendingHead(update.getStatus(), update.getLat(), update.getLng(), eventAt);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    buffer(update.getShipmentId(), head);
+                }
+            });
+        } else {
+            buffer(update.getShipmentId(), head);
+        }
+        return true;
+    }
+
+    private void buffer(UUID shipmentId, PendingHead head) {
+        buffered.increment();
+        pending.merge(shipmentId, head, (current, candidate) -> {
+            coalesced.increment();
+            return candidate.eventAt().isBefore(current.eventAt()) ? current : candidate;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${shipment.write-behind.flush-interval-ms:2000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // nach ID sortiert, damit zwei Replicas ihre Zeilen in derselben Reihenfolge sperren
+        List<Map.Entry<UUID, PendingHead>> heads = pending.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue()))
+                .sorted(Map.Entry.comparingByKey())
+                .toList();
+        int written = 0;
+        for (int from = 0; from < heads.size(); from += flushBatchSize) {
+            List<Map.Entry<UUID, PendingHead>> batch = heads.subList(from, Math.min(from + flushBatchSize, heads.size()));
+            var now = Instant.now();
+            try {
+                written += transactionTemplate.execute(status -> write(batch, now));
+            } catch (RuntimeException e) {
+                log.warn("Failed to flush {} write-behind heads, keeping them for the next flush", batch.size(), e);
+                continue;
+            }
+            // erst nach dem Commit entfernen; ein inzwischen gepufferter neuerer Head bleibt stehen
+            batch.forEach(entry -> pending.remove(entry.getKey(), entry.getValue()));
+            flushed.increment(batch.size());
+        }
+        log.debug("Flushed write-behind heads, {} rows updated", written);
+    }
+
+    private int write(List<Map.Entry<UUID, PendingHead>> batch, Instant now) {
+        int count = 0;
+        for (Map.Entry<UUID, PendingHead> entry : batch) {
+            PendingHead head = entry.getValue();
+            int updated = shipmentRepository.applyTrackingUpdate(
+                    entry.getKey(), ShipmentStatus.fromName(head.status()), head.lat(), head.lng(), head.eventAt(), now);
+            if (updated == 0) {
+                // Head ist schon neuer, die Checkpoints seit dem letzten Flush ändern aber die Antwort
+                shipmentRepository.touch(entry.getKey(), now);
+            }
+            count += updated;
+        }
+        return count;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private record PendingHead(String status, Double lat, Double lng, Instant eventAt) {
+    }
+}
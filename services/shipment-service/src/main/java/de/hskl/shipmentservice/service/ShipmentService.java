@@ -1,25 +1,29 @@
 package de.hskl.shipmentservice.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import de.hskl.shipmentservice.dto.*;
 import de.hskl.shipmentservice.entity.Checkpoint;
+import de.hskl.shipmentservice.entity.CheckpointArchive;
 import de.hskl.shipmentservice.entity.Shipment;
+import de.hskl.shipmentservice.entity.ShipmentStatus;
 import de.hskl.shipmentservice.entity.TrackingUpdate;
+import de.hskl.shipmentservice.entity.TrackingView;
 import de.hskl.shipmentservice.exceptions.GlobalExceptionHandler;
+import de.hskl.shipmentservice.repository.CheckpointArchiveRepository;
 import de.hskl.shipmentservice.repository.CheckpointRepository;
 import de.hskl.shipmentservice.repository.ShipmentRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.security.SecureRandom;
 import java.time.Instant;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -27,14 +31,31 @@ import java.util.UUID;
 public class ShipmentService {
     private final ShipmentRepository shipmentRepository;
     private final CheckpointRepository checkpointRepository;
+    private final ShipmentHeadWriteBehind headWriteBehind;
+    private final TrackingEventDeduplicator deduplicator;
+    private final TrackingCache trackingCache;
+    private final TrackingIdFilter trackingIdFilter;
+    private final TrackingStreamRegistry trackingStreams;
+    private final CheckpointArchiveRepository checkpointArchiveRepository;
+    private final TrackingViewService trackingViews;
 
     private static final String CHARS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
     private static final SecureRandom random = new SecureRandom();
+    private static final int MAX_TRACKING_ID_ATTEMPTS = 5;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    @Value("${shipment.tracking-batch.max-size:200}")
+    private int maxTrackingBatchSize = 200;
+
+    // Timelines werden erst ab so weit vor dem Anlegen der Sendung gelesen, ältere Events werden abgelehnt
+    @Value("${shipment.timeline.clock-skew-ms:86400000}")
+    private long timelineClockSkewMs = 86_400_000;
 
     @Transactional
     public ShipmentDetailDto createShipment(CreateShipmentDto dto, String ownerUserId) {
         var now = Instant.now();
         String trackingId = generateTrackingId();
+        trackingIdFilter.add(trackingId);
 
         Shipment shipment = Shipment.builder()
                 .trackingId(trackingId)
@@ -43,8 +64,9 @@ public class ShipmentService {
                 .receiver(dto.receiver())
                 .receiverStreet(dto.receiverStreet())
                 .receiverCity(dto.receiverCity())
-                .currentStatus("CREATED")
+                .currentStatus(ShipmentStatus.CREATED)
                 .expectedDelivery(dto.expectedDelivery())
+                .lastEventAt(now)
                 .createdAt(now)
                 .updatedAt(now)
                 .build();
@@ -54,16 +76,33 @@ public class ShipmentService {
         Checkpoint checkpoint = Checkpoint.builder()
                 .shipment(shipment)
                 .timestamp(now)
-                .status("CREATED")
+                .status(ShipmentStatus.CREATED)
                 .message("Shipment created")
                 .build();
 
         checkpointRepository.save(checkpoint);
+        trackingViews.create(shipment, List.of(checkpoint));
 
         return mapDetail(shipment, List.of(checkpoint));
     }
 
+    /**
+     * Draws tracking ids until one is unused. Not answered by the {@link TrackingIdFilter}, it misses ids
+     * that other instances issued since its last refresh; a collision between two concurrent creations is
+     * still caught by the unique index.
+     */
     private String generateTrackingId() {
+        for (int attempt = 0; attempt < MAX_TRACKING_ID_ATTEMPTS; attempt++) {
+            String trackingId = randomTrackingId();
+            if (!shipmentRepository.existsByTrackingId(trackingId)) {
+                return trackingId;
+            }
+            log.warn("Tracking id {} already issued, drawing a new one", trackingId);
+        }
+        throw new IllegalStateException("No unused tracking id after " + MAX_TRACKING_ID_ATTEMPTS + " attempts");
+    }
+
+    private String randomTrackingId() {
         StringBuilder sb = new StringBuilder("PKG-");
         for (int i = 0; i < 8; i++) {
             sb.append(CHARS.charAt(random.nextInt(CHARS.length())));
@@ -73,6 +112,27 @@ public class ShipmentService {
 
     @Transactional(readOnly = true)
     public ShipmentDetailDto getShipment(UUID id, String requesterUserId, boolean isAdmin) {
+        return getShipment(id, requesterUserId, isAdmin, null);
+    }
+
+    @Transactional(readOnly = true)
+    public ShipmentDetailDto getShipment(UUID id, String requesterUserId, boolean isAdmin, UUID after) {
+        return getShipment(id, requesterUserId, isAdmin, ShipmentView.FULL, after);
+    }
+
+    /**
+     * @param view  {@link ShipmentView#SUMMARY} reads the head row only, {@link ShipmentView#LATEST_CHECKPOINT}
+     *              adds a single index lookup for the newest checkpoint
+     * @param after only with {@link ShipmentView#FULL}: id of the last checkpoint the client has, the timeline
+     *              then only contains the checkpoints written after it, in that order, late events with an older
+     *              timestamp included. Checkpoint ids are UUIDv7 drawn while the head update holds the shipment
+     *              row, so per shipment they grow in commit order (up to clock skew between instances).
+     *              Archived checkpoints have no id and are left out. Ids from before checkpoint ids were
+     *              time-ordered are no cursor, the whole timeline is returned for them.
+     */
+    @Transactional(readOnly = true)
+    public ShipmentDetailDto getShipment(UUID id, String requesterUserId, boolean isAdmin, ShipmentView view,
+                                         UUID after) {
         Shipment shipment = shipmentRepository.findById(id)
                 .orElseThrow(() -> new GlobalExceptionHandler.ShipmentNotFoundException(id));
 
@@ -80,14 +140,79 @@ public class ShipmentService {
                 !requesterUserId.equals(shipment.getOwnerUserId())) {
             throw new GlobalExceptionHandler.AccessDeniedException("Forbidden");
         }
-        var checkpoints = checkpointRepository.findByShipmentIdOrderByTimestampAsc(id);
-        return mapDetail(shipment, checkpoints);
+        return switch (view) {
+            case SUMMARY -> ShipmentDetailDto.from(shipment, null);
+            case LATEST_CHECKPOINT -> mapDetail(shipment, latestCheckpoint(shipment));
+            case FULL -> mapDetail(shipment, checkpoints(shipment, cursor(after)));
+        };
     }
 
+    /**
+     * Version of the shipment for conditional GETs, read from the head row only.
+     */
     @Transactional(readOnly = true)
-    public List<ShipmentListItemDto> listForUser(String ownerUserId) {
-        List<Shipment> shipments = shipmentRepository.findByOwnerUserId(ownerUserId);
-        return shipments.stream().map(ShipmentListItemDto::from).toList();
+    public Instant getShipmentVersion(UUID id, String requesterUserId, boolean isAdmin) {
+        ShipmentVersion version = shipmentRepository.findVersionById(id)
+                .orElseThrow(() -> new GlobalExceptionHandler.ShipmentNotFoundException(id));
+
+        if (!isAdmin &&
+                !requesterUserId.equals(version.ownerUserId())) {
+            throw new GlobalExceptionHandler.AccessDeniedException("Forbidden");
+        }
+        return version.updatedAt();
+    }
+
+    /**
+     * Latest change of any shipment of the owner, {@link Instant#EPOCH} if there is none.
+     */
+    @Transactional(readOnly = true)
+    public Instant getListVersion(String ownerUserId) {
+        Instant latest = shipmentRepository.findLatestUpdateByOwner(ownerUserId);
+        return latest != null ? latest : Instant.EPOCH;
+    }
+
+    /**
+     * Returns one page of the owner's shipments, newest first by the given sort column.
+     *
+     * @param status optional filter on the current status
+     * @param cursor {@link ShipmentPageDto#nextCursor()} of the previous page, null for the first page
+     * @param limit  page size, capped at {@value #MAX_PAGE_SIZE}
+     */
+    @Transactional(readOnly = true)
+    public ShipmentPageDto listForUser(String ownerUserId, String sortParam, String status, String cursor, int limit) {
+        if (limit < 1) {
+            throw new GlobalExceptionHandler.InvalidRequestException("limit must be positive");
+        }
+        ShipmentSort sort;
+        ShipmentCursor position;
+        ShipmentStatus statusFilter;
+        try {
+            sort = ShipmentSort.fromParam(sortParam);
+            statusFilter = ShipmentStatus.fromName(status);
+            position = cursor == null ? ShipmentCursor.start(sort) : ShipmentCursor.decode(cursor, sort);
+        } catch (IllegalArgumentException e) {
+            throw new GlobalExceptionHandler.InvalidRequestException(e.getMessage());
+        }
+
+        // eine Zeile mehr laden, um zu erkennen, ob es eine weitere Seite gibt
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        Limit fetch = Limit.of(pageSize + 1);
+        List<ShipmentListItemDto> items = switch (sort) {
+            case CREATED_AT -> statusFilter == null
+                    ? shipmentRepository.findPageByCreatedAt(ownerUserId, position.after(), position.afterId(), fetch)
+                    : shipmentRepository.findPageByCreatedAtAndStatus(
+                            ownerUserId, statusFilter, position.after(), position.afterId(), fetch);
+            case UPDATED_AT -> statusFilter == null
+                    ? shipmentRepository.findPageByUpdatedAt(ownerUserId, position.after(), position.afterId(), fetch)
+                    : shipmentRepository.findPageByUpdatedAtAndStatus(
+                            ownerUserId, statusFilter, position.after(), position.afterId(), fetch);
+        };
+
+        if (items.size() <= pageSize) {
+            return new ShipmentPageDto(items, null);
+        }
+        List<ShipmentListItemDto> page = items.subList(0, pageSize);
+        return new ShipmentPageDto(List.copyOf(page), ShipmentCursor.after(sort, page.getLast()).encode());
     }
 
     private ShipmentDetailDto mapDetail(Shipment shipment, List<Checkpoint> checkpoints) {
@@ -97,42 +222,460 @@ public class ShipmentService {
         return ShipmentDetailDto.from(shipment, timeline);
     }
 
-    public void updateShipment(String payload) throws JsonProcessingException {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new JavaTimeModule());
-        TrackingUpdate trackingUpdate = mapper.readValue(payload, TrackingUpdate.class);
-
+    /**
+     * Appends the checkpoint of a tracking update and moves the shipment head with a single conditional
+     * update. Events older than the current head (late or redelivered messages) only add their checkpoint.
+     * With write-behind enabled, position-only head updates are handed to {@link ShipmentHeadWriteBehind}; the
+     * shipment row is then only locked, and the ETag moves with the tracking view row (see
+     * {@link ShipmentRepository#findVersionById}). Otherwise, whenever the head is not moved here,
+     * {@code updated_at} is still bumped, since the checkpoint changes the response and with it the ETag.
+     */
+    @Transactional
+    public void updateShipment(TrackingUpdate trackingUpdate) {
         log.info("Tracking Update: {}", trackingUpdate);
 
-        Shipment shipment = shipmentRepository.findById(trackingUpdate.getShipmentId())
-                .orElseThrow(() -> new EntityNotFoundException("Shipment not found: " + trackingUpdate.getShipmentId()));
+        UUID shipmentId = trackingUpdate.getShipmentId();
+        var now = Instant.now();
+        Instant eventAt = eventTime(trackingUpdate);
+        requireWithinTimeline(shipmentId, eventAt, now);
 
-        shipment.setCurrentStatus(trackingUpdate.getStatus());
-        shipment.setLastLat(trackingUpdate.getLat());
-        shipment.setLastLng(trackingUpdate.getLng());
-        shipment.setUpdatedAt(Instant.now());
-        shipmentRepository.save(shipment);
+        boolean deferred = headWriteBehind.tryDefer(trackingUpdate, eventAt);
+        if (deferred) {
+            if (shipmentRepository.lockForCheckpoint(shipmentId).isEmpty()) {
+                throw new EntityNotFoundException("Shipment not found: " + shipmentId);
+            }
+            log.debug("Deferred head update of shipment {}", shipmentId);
+        } else if (applyHead(trackingUpdate, eventAt, now) == 0) {
+            // der Checkpoint ändert die Antwort, also muss sich auch updated_at (ETag) ändern
+            if (shipmentRepository.touch(shipmentId, now) == 0) {
+                throw new EntityNotFoundException("Shipment not found: " + shipmentId);
+            }
+            log.info("Shipment {} already has a newer state than event at {}, appending checkpoint only", shipmentId, eventAt);
+        }
 
-        Checkpoint checkpoint = Checkpoint.builder()
-                .shipment(shipment)
-                .timestamp(trackingUpdate.getTimestamp() != null ? trackingUpdate.getTimestamp() : Instant.now())
-                .status(trackingUpdate.getStatus())
-                .message(trackingUpdate.getMessage())
-                .lat(trackingUpdate.getLat())
-                .lng(trackingUpdate.getLng())
-                .build();
+        Checkpoint checkpoint = toCheckpoint(shipmentRepository.getReferenceById(shipmentId), trackingUpdate, eventAt);
 
         log.info("Checkpoint {}", checkpoint);
         checkpointRepository.save(checkpoint);
+        if (trackingViews.append(List.of(checkpoint), now).isEmpty() && deferred) {
+            // ohne Tracking-View bleibt nur updated_at für das ETag
+            shipmentRepository.touch(shipmentId, now);
+        }
+        deduplicator.remember(trackingUpdate.getEventId());
+        trackingCache.invalidate(shipmentId);
+        trackingStreams.publish(shipmentId, CheckpointTrackingDto.from(checkpoint));
+    }
+
+    /**
+     * Checks the unique event id index for an event that is no longer in the in-memory dedupe window,
+     * e.g. after a unique constraint violation on a concurrent redelivery.
+     */
+    @Transactional(readOnly = true)
+    public boolean isEventApplied(UUID eventId) {
+        if (eventId == null || !checkpointRepository.existsByEventId(eventId)) {
+            return false;
+        }
+        deduplicator.remember(eventId);
+        return true;
+    }
+
+    /**
+     * Applies a window of tracking updates in one transaction: the existence of all affected shipments is
+     * checked with a single query, each shipment head is moved once to its newest event and the checkpoints
+     * are written as one JDBC batch (see hibernate.jdbc.batch_size). Repeated event ids within the window
+     * are applied once.
+     *
+     * @return ids of shipments that do not exist; their updates were skipped
+     */
+    @Transactional
+    public Set<UUID> applyTrackingUpdates(List<TrackingUpdate> updates) {
+        Set<UUID> ids = updates.stream()
+                .map(TrackingUpdate::getShipmentId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Set<UUID> existing = ids.isEmpty() ? Set.of() : shipmentRepository.findExistingIds(ids);
+
+        var now = Instant.now();
+        Set<UUID> unknown = new HashSet<>();
+        Map<UUID, TrackingUpdate> newest = new HashMap<>();
+        Set<UUID> eventIds = new HashSet<>();
+        List<Checkpoint> checkpoints = new ArrayList<>(updates.size());
+
+        for (TrackingUpdate update : updates) {
+            UUID shipmentId = update.getShipmentId();
+            if (shipmentId == null || !existing.contains(shipmentId)) {
+                unknown.add(shipmentId);
+                continue;
+            }
+            if (update.getEventId() != null && !eventIds.add(update.getEventId())) {
+                continue;
+            }
+            Instant eventAt = eventTime(update);
+            requireWithinTimeline(shipmentId, eventAt, now);
+            newest.merge(shipmentId, update, (current, candidate) ->
+                    eventTime(candidate).isBefore(eventTime(current)) ? current : candidate);
+            checkpoints.add(toCheckpoint(shipmentRepository.getReferenceById(shipmentId), update, eventAt));
+        }
+
+        newest.values().forEach(update -> {
+            if (applyHead(update, eventTime(update), now) == 0) {
+                shipmentRepository.touch(update.getShipmentId(), now);
+            }
+        });
+        checkpointRepository.saveAll(checkpoints);
+        // erst nach dem Speichern, die IDs sind die Event-IDs des Streams
+        checkpoints.forEach(checkpoint ->
+                trackingStreams.publish(checkpoint.getShipment().getId(), CheckpointTrackingDto.from(checkpoint)));
+        trackingViews.append(checkpoints, now);
+        deduplicator.rememberAll(eventIds);
+        trackingCache.invalidate(newest.keySet());
+
+        log.debug("Applied {} tracking updates to {} shipments", checkpoints.size(), newest.size());
+        return unknown;
+    }
+
+    private int applyHead(TrackingUpdate update, Instant eventAt, Instant now) {
+        return shipmentRepository.applyTrackingUpdate(
+                update.getShipmentId(),
+                ShipmentStatus.fromName(update.getStatus()),
+                update.getLat(),
+                update.getLng(),
+                eventAt,
+                now
+        );
+    }
+
+    /**
+     * Rejects events whose device time lies more than {@code clock-skew-ms} before the shipment was created.
+     * Timeline reads start there so older partitions are skipped, their checkpoints would never be returned.
+     * Only events that old relative to now need the lookup.
+     */
+    private void requireWithinTimeline(UUID shipmentId, Instant eventAt, Instant now) {
+        if (!eventAt.isBefore(now.minusMillis(timelineClockSkewMs))) {
+            return;
+        }
+        Instant createdAt = shipmentRepository.findCreatedAtById(shipmentId)
+                .orElseThrow(() -> new EntityNotFoundException("Shipment not found: " + shipmentId));
+        if (eventAt.isBefore(createdAt.minusMillis(timelineClockSkewMs))) {
+            throw new IllegalArgumentException(
+                    "Event at " + eventAt + " lies before shipment " + shipmentId + " was created at " + createdAt);
+        }
+    }
+
+    /**
+     * The event time is part of the unique {@code (event_id, ts)} index of the checkpoints, so it has to be the
+     * same on every delivery of an event. The codec fills it from the Pub/Sub publish time; an update that
+     * still has none can not be deduplicated and is rejected instead of being stamped with the current time.
+     */
+    private Instant eventTime(TrackingUpdate update) {
+        if (update.getTimestamp() == null) {
+            throw new IllegalArgumentException("Tracking update " + update.getEventId() + " has no timestamp");
+        }
+        return update.getTimestamp();
+    }
+
+    private Checkpoint toCheckpoint(Shipment shipment, TrackingUpdate update, Instant eventAt) {
+        return Checkpoint.builder()
+                .shipment(shipment)
+                .timestamp(eventAt)
+                .status(ShipmentStatus.fromName(update.getStatus()))
+                .message(update.getMessage())
+                .lat(update.getLat())
+                .lng(update.getLng())
+                .eventId(update.getEventId())
+                .build();
     }
 
     public ShipmentTrackingDto getTrackingInfo(String trackingId) {
+        return getTrackingInfo(trackingId, null);
+    }
+
+    /**
+     * @param after if set, only checkpoints written after the one with this id are returned, see
+     *              {@link #getShipment(UUID, String, boolean, ShipmentView, UUID)}. Such partial responses are
+     *              served from a cached full response, but never cached themselves.
+     */
+    public ShipmentTrackingDto getTrackingInfo(String trackingId, UUID after) {
+        return getTrackingInfo(trackingId, ShipmentView.FULL, after);
+    }
+
+    /**
+     * Views other than {@link ShipmentView#FULL} are cut from a cached full response. Otherwise the response
+     * comes from the shipment's {@link TrackingView} row, or from the normalized tables if there is none or its
+     * timeline lacks checkpoints the response needs, see
+     * {@link #getShipment(UUID, String, boolean, ShipmentView, UUID)}. Only full responses are cached.
+     */
+    public ShipmentTrackingDto getTrackingInfo(String trackingId, ShipmentView view, UUID after) {
+        if (!trackingIdFilter.mightExist(trackingId)) {
+            throw new GlobalExceptionHandler.TrackingNotFoundException(trackingId);
+        }
+        UUID cursor = cursor(after);
+        ShipmentTrackingDto cached = trackingCache.get(trackingId);
+        ShipmentTrackingDto response = cached == null ? null : switch (view) {
+            case SUMMARY -> withoutTimeline(cached);
+            case LATEST_CHECKPOINT -> newest(cached, 1);
+            case FULL -> cursor == null ? cached : writtenAfter(cached, cursor);
+        };
+        if (response != null) {
+            return response;
+        }
+
+        long stamp = trackingCache.stamp();
+        ShipmentTrackingDto stored = trackingViews.find(trackingId)
+                .map(trackingView -> fromView(trackingView, view, cursor, stamp))
+                .orElse(null);
+        if (stored != null) {
+            return stored;
+        }
         Shipment shipment = shipmentRepository.findByTrackingId(trackingId);
         if (shipment == null) {
             throw new GlobalExceptionHandler.TrackingNotFoundException(trackingId);
         }
-        var checkpoints = checkpointRepository.findByShipmentIdOrderByTimestampAsc(shipment.getId());
-        return trackingMap(shipment, checkpoints);
+        return switch (view) {
+            case SUMMARY -> ShipmentTrackingDto.from(shipment, null);
+            case LATEST_CHECKPOINT -> trackingMap(shipment, latestCheckpoint(shipment));
+            case FULL -> {
+                ShipmentTrackingDto tracking = trackingMap(shipment, checkpoints(shipment, cursor));
+                if (cursor == null) {
+                    trackingCache.put(trackingId, shipment.getId(), shipment.getUpdatedAt(), tracking, stamp);
+                }
+                yield tracking;
+            }
+        };
+    }
+
+    /**
+     * @return null if the stored timeline lacks checkpoints the response needs
+     */
+    private ShipmentTrackingDto fromView(TrackingView trackingView, ShipmentView view, UUID after, long stamp) {
+        if (view == ShipmentView.SUMMARY) {
+            return ShipmentTrackingDto.from(trackingView, null);
+        }
+        List<CheckpointTrackingDto> timeline = trackingViews.timeline(trackingView);
+        ShipmentTrackingDto tracking = ShipmentTrackingDto.from(trackingView, timeline);
+        if (view == ShipmentView.LATEST_CHECKPOINT) {
+            return newest(tracking, 1);
+        }
+        // ein gekürzter Verlauf kann späte Events mit altem Zeitstempel nicht enthalten
+        if (timeline.size() != trackingView.getCheckpointCount()) {
+            return null;
+        }
+        if (after != null) {
+            return writtenAfter(tracking, after);
+        }
+        trackingCache.put(tracking.trackingId(), trackingView.getShipmentId(), trackingView.getUpdatedAt(), tracking, stamp);
+        return tracking;
+    }
+
+    /**
+     * Opens a live stream of the shipment's new checkpoints.
+     *
+     * @param after if set, the checkpoints written after the one with this id are sent first, e.g. those missed
+     *              while reconnecting, see {@link #getShipment(UUID, String, boolean, ShipmentView, UUID)}
+     */
+    public SseEmitter streamTracking(String trackingId, UUID after) {
+        if (!trackingIdFilter.mightExist(trackingId)) {
+            throw new GlobalExceptionHandler.TrackingNotFoundException(trackingId);
+        }
+        if (after == null) {
+            UUID shipmentId = shipmentRepository.findIdByTrackingId(trackingId)
+                    .orElseThrow(() -> new GlobalExceptionHandler.TrackingNotFoundException(trackingId));
+            return trackingStreams.subscribe(shipmentId, List::of);
+        }
+        Shipment shipment = shipmentRepository.findByTrackingId(trackingId);
+        if (shipment == null) {
+            throw new GlobalExceptionHandler.TrackingNotFoundException(trackingId);
+        }
+        return trackingStreams.subscribe(shipment.getId(), () -> checkpoints(shipment, cursor(after)).stream()
+                .map(CheckpointTrackingDto::from).toList());
+    }
+
+    /**
+     * Checkpoints of the given shipments written since the given time, by any replica, ordered by id. Only
+     * shipments whose row was updated since then are read, see {@link TrackingStreamResync}.
+     */
+    @Transactional(readOnly = true)
+    public Map<UUID, List<CheckpointTrackingDto>> getCheckpointsWrittenSince(Collection<UUID> shipmentIds, Instant since) {
+        // kleinste UUIDv7 zu diesem Zeitpunkt
+        UUID after = new UUID(since.toEpochMilli() << 16 | 0x7000, Long.MIN_VALUE);
+        Map<UUID, List<CheckpointTrackingDto>> result = new HashMap<>();
+        for (Shipment shipment : shipmentRepository.findByIdInAndUpdatedAtAfter(shipmentIds, since)) {
+            result.put(shipment.getId(), checkpoints(shipment, after).stream().map(CheckpointTrackingDto::from).toList());
+        }
+        return result;
+    }
+
+    /**
+     * Resolves many tracking ids at once: cached responses are used as they are, the others are loaded with
+     * one query for the shipments and one for all their checkpoints. Unknown tracking ids are missing from
+     * the result, which keeps the order of the request.
+     *
+     * @param latest if set, each timeline only contains the newest checkpoints, at most this many. Such
+     *               responses are not cached.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, ShipmentTrackingDto> getTrackingInfos(List<String> trackingIds, Integer latest) {
+        if (trackingIds.size() > maxTrackingBatchSize) {
+            throw new GlobalExceptionHandler.InvalidRequestException(
+                    "At most " + maxTrackingBatchSize + " tracking ids per request");
+        }
+        if (latest != null && latest < 1) {
+            throw new GlobalExceptionHandler.InvalidRequestException("latest must be positive");
+        }
+
+        Map<String, ShipmentTrackingDto> found = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String trackingId : new LinkedHashSet<>(trackingIds)) {
+            if (!trackingIdFilter.mightExist(trackingId)) {
+                continue;
+            }
+            ShipmentTrackingDto cached = trackingCache.get(trackingId);
+            if (cached != null) {
+                found.put(trackingId, latest == null ? cached : newest(cached, latest));
+            } else {
+                missing.add(trackingId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long stamp = trackingCache.stamp();
+            List<Shipment> shipments = shipmentRepository.findByTrackingIdIn(missing);
+            Set<UUID> shipmentIds = shipments.stream().map(Shipment::getId).collect(Collectors.toSet());
+            List<Checkpoint> checkpoints = shipmentIds.isEmpty() ? List.of() : latest == null
+                    ? checkpointRepository.findByShipmentIdInOrderByTimestampAsc(shipmentIds)
+                    : checkpointRepository.findLatestByShipmentIdIn(shipmentIds, latest);
+            Map<UUID, List<Checkpoint>> timelines = checkpoints.stream()
+                    .collect(Collectors.groupingBy(checkpoint -> checkpoint.getShipment().getId()));
+            Set<UUID> archived = shipments.stream()
+                    .filter(shipment -> shipment.getTimelineArchivedAt() != null)
+                    .map(Shipment::getId)
+                    .collect(Collectors.toSet());
+            if (!archived.isEmpty()) {
+                for (CheckpointArchive archive : checkpointArchiveRepository.findAllById(archived)) {
+                    List<Checkpoint> timeline = merge(CheckpointArchiveCodec.decode(archive.getData()),
+                            timelines.getOrDefault(archive.getShipmentId(), List.of()));
+                    timelines.put(archive.getShipmentId(), latest == null || timeline.size() <= latest
+                            ? timeline : timeline.subList(timeline.size() - latest, timeline.size()));
+                }
+            }
+
+            for (Shipment shipment : shipments) {
+                ShipmentTrackingDto tracking = trackingMap(shipment, timelines.getOrDefault(shipment.getId(), List.of()));
+                if (latest == null) {
+                    trackingCache.put(shipment.getTrackingId(), shipment.getId(), shipment.getUpdatedAt(), tracking, stamp);
+                }
+                found.put(shipment.getTrackingId(), tracking);
+            }
+        }
+
+        Map<String, ShipmentTrackingDto> result = new LinkedHashMap<>();
+        for (String trackingId : trackingIds) {
+            ShipmentTrackingDto tracking = found.get(trackingId);
+            if (tracking != null) {
+                result.put(trackingId, tracking);
+            }
+        }
+        return result;
+    }
+
+    private List<Checkpoint> latestCheckpoint(Shipment shipment) {
+        List<Checkpoint> latest = checkpointRepository.findFirstByShipmentIdOrderByTimestampDesc(shipment.getId())
+                .stream().toList();
+        if (shipment.getTimelineArchivedAt() == null) {
+            return latest;
+        }
+        List<Checkpoint> timeline = withArchived(shipment.getId(), latest);
+        return timeline.isEmpty() ? timeline : List.of(timeline.getLast());
+    }
+
+    private List<Checkpoint> checkpoints(Shipment shipment, UUID after) {
+        Instant from = shipment.getCreatedAt().minusMillis(timelineClockSkewMs);
+        if (after != null) {
+            // zufällige IDs von vor der Umstellung auf UUIDv7 sind nicht geordnet, diese Checkpoints liegen vor jedem Cursor
+            return checkpointRepository.findByShipmentIdAndTimestampGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+                            shipment.getId(), from, after).stream()
+                    .filter(checkpoint -> isCursor(checkpoint.getId()))
+                    .toList();
+        }
+        List<Checkpoint> live = checkpointRepository.findByShipmentIdAndTimestampGreaterThanEqualOrderByTimestampAsc(
+                shipment.getId(), from);
+        return shipment.getTimelineArchivedAt() == null ? live : withArchived(shipment.getId(), live);
+    }
+
+    /**
+     * @return the cursor, or null if the id is not time-ordered, see
+     * {@link #getShipment(UUID, String, boolean, ShipmentView, UUID)}
+     */
+    private static UUID cursor(UUID after) {
+        return isCursor(after) ? after : null;
+    }
+
+    private static boolean isCursor(UUID id) {
+        return id != null && id.version() == 7;
+    }
+
+    /**
+     * Adds the archived part of the timeline, see {@link CheckpointArchiver}. Checkpoints that arrived after
+     * archiving are still in {@code checkpoints}.
+     */
+    private List<Checkpoint> withArchived(UUID shipmentId, List<Checkpoint> live) {
+        return checkpointArchiveRepository.findById(shipmentId)
+                .map(archive -> merge(CheckpointArchiveCodec.decode(archive.getData()), live))
+                .orElse(live);
+    }
+
+    private List<Checkpoint> merge(List<Checkpoint> archived, List<Checkpoint> live) {
+        List<Checkpoint> timeline = new ArrayList<>(archived.size() + live.size());
+        timeline.addAll(archived);
+        timeline.addAll(live);
+        timeline.sort(Comparator.comparing(Checkpoint::getTimestamp));
+        return timeline;
+    }
+
+    /**
+     * Same as the cursor query on a full response.
+     *
+     * @return null if the timeline has checkpoints without id (archived, or stored in a tracking view before
+     * responses had ids), the checkpoints table has to be read then
+     */
+    private ShipmentTrackingDto writtenAfter(ShipmentTrackingDto tracking, UUID after) {
+        if (tracking.checkpoints().stream().anyMatch(checkpoint -> checkpoint.id() == null)) {
+            return null;
+        }
+        var timeline = tracking.checkpoints().stream()
+                .filter(checkpoint -> isCursor(checkpoint.id()) && checkpoint.id().compareTo(after) > 0)
+                .sorted(Comparator.comparing(CheckpointTrackingDto::id))
+                .toList();
+        return new ShipmentTrackingDto(tracking.trackingId(), tracking.status(), tracking.expectedDelivery(), timeline);
+    }
+
+    private ShipmentTrackingDto withoutTimeline(ShipmentTrackingDto tracking) {
+        return new ShipmentTrackingDto(tracking.trackingId(), tracking.status(), tracking.expectedDelivery(), null);
+    }
+
+    private ShipmentTrackingDto newest(ShipmentTrackingDto tracking, int latest) {
+        List<CheckpointTrackingDto> timeline = tracking.checkpoints();
+        if (timeline.size() <= latest) {
+            return tracking;
+        }
+        return new ShipmentTrackingDto(tracking.trackingId(), tracking.status(), tracking.expectedDelivery(),
+                timeline.subList(timeline.size() - latest, timeline.size()));
+    }
+
+    /**
+     * Version of the public tracking response, from the cache or otherwise from the head row only.
+     */
+    public Instant getTrackingVersion(String trackingId) {
+        if (!trackingIdFilter.mightExist(trackingId)) {
+            throw new GlobalExceptionHandler.TrackingNotFoundException(trackingId);
+        }
+        Instant cached = trackingCache.version(trackingId);
+        if (cached != null) {
+            return cached;
+        }
+        return shipmentRepository.findUpdatedAtByTrackingId(trackingId)
+                .orElseThrow(() -> new GlobalExceptionHandler.TrackingNotFoundException(trackingId));
     }
 
     private ShipmentTrackingDto trackingMap(Shipment shipment, List<Checkpoint> checkpoints) {
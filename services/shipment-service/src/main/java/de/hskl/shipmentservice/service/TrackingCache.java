@@ -0,0 +1,168 @@
+package de.hskl.shipmentservice.service;
+
+import de.hskl.shipmentservice.dto.ShipmentTrackingDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded LRU cache of public tracking responses, keyed by tracking id. An entry is dropped once a
+ * transaction that appended a checkpoint to its shipment has committed.
+ * <p>
+ * Only commits on this instance invalidate, checkpoints applied by another instance are not seen here. Entries
+ * therefore expire {@code ttl-ms} after they were written, which bounds how long this instance serves an
+ * outdated response or {@link #version} (and with it a 304 for a changed shipment).
+ * <p>
+ * A response read from the database while such a transaction commits could be stale, so readers take a
+ * {@link #stamp()} before reading and {@link #put} ignores the response if the shipment was invalidated
+ * after that stamp.
+ */
+@Component
+public class TrackingCache {
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final Map<String, Entry> entries;
+    private final Map<UUID, String> trackingIds = new HashMap<>();
+    private final Map<UUID, Long> invalidatedAt;
+    private long sequence;
+    private long forgottenInvalidations;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public TrackingCache(
+            MeterRegistry meterRegistry,
+            @Value("${shipment.tracking-cache.enabled:true}") boolean enabled,
+            @Value("${shipment.tracking-cache.max-size:10000}") int maxSize,
+            @Value("${shipment.tracking-cache.ttl-ms:3000}") long ttlMillis
+    ) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= TrackingCache.this.maxSize) {
+                    return false;
+                }
+                trackingIds.remove(eldest.getValue().shipmentId());
+                evictions.increment();
+                return true;
+            }
+        };
+        this.invalidatedAt = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Long> eldest) {
+                if (size() <= TrackingCache.this.maxSize) {
+                    return false;
+                }
+                forgottenInvalidations = Math.max(forgottenInvalidations, eldest.getValue());
+                return true;
+            }
+        };
+
+        this.hits = meterRegistry.counter("shipment.tracking_cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("shipment.tracking_cache.requests", "result", "miss");
+        this.evictions = meterRegistry.counter("shipment.tracking_cache.evictions");
+        Gauge.builder("shipment.tracking_cache.size", this, TrackingCache::size).register(meterRegistry);
+    }
+
+    public synchronized ShipmentTrackingDto get(String trackingId) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = current(trackingId);
+        (entry != null ? hits : misses).increment();
+        return entry != null ? entry.tracking() : null;
+    }
+
+    /**
+     * @return {@code updatedAt} of the shipment the cached response was built from, null if not cached
+     */
+    public synchronized Instant version(String trackingId) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = current(trackingId);
+        return entry != null ? entry.version() : null;
+    }
+
+    /**
+     * @return stamp to pass to {@link #put} for a response read from the database after this call
+     */
+    public synchronized long stamp() {
+        return sequence;
+    }
+
+    public synchronized void put(String trackingId, UUID shipmentId, Instant version, ShipmentTrackingDto tracking,
+                                 long stamp) {
+        if (!enabled || stamp < forgottenInvalidations || stamp < invalidatedAt.getOrDefault(shipmentId, 0L)) {
+            return;
+        }
+        entries.put(trackingId, new Entry(shipmentId, version, tracking, System.nanoTime() + ttlNanos));
+        trackingIds.put(shipmentId, trackingId);
+    }
+
+    /**
+     * Drops the cached responses of the shipments once the surrounding transaction has committed.
+     */
+    public void invalidate(Collection<UUID> shipmentIds) {
+        if (!enabled || shipmentIds.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(shipmentIds);
+                }
+            });
+        } else {
+            evict(shipmentIds);
+        }
+    }
+
+    public void invalidate(UUID shipmentId) {
+        invalidate(List.of(shipmentId));
+    }
+
+    private synchronized void evict(Collection<UUID> shipmentIds) {
+        long invalidation = ++sequence;
+        for (UUID shipmentId : shipmentIds) {
+            invalidatedAt.remove(shipmentId);
+            invalidatedAt.put(shipmentId, invalidation);
+            String trackingId = trackingIds.remove(shipmentId);
+            if (trackingId != null) {
+                entries.remove(trackingId);
+            }
+        }
+    }
+
+    private Entry current(String trackingId) {
+        Entry entry = entries.get(trackingId);
+        if (entry == null || entry.expiresAt() - System.nanoTime() > 0) {
+            return entry;
+        }
+        entries.remove(trackingId);
+        trackingIds.remove(entry.shipmentId());
+        return null;
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    private record Entry(UUID shipmentId, Instant version, ShipmentTrackingDto tracking, long expiresAt) {
+    }
+}
@@ -0,0 +1,97 @@
+package de.hskl.shipmentservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bounded memory of recently applied tracking event ids. Redeliveries of an event seen here are dropped
+ * before any database work; anything older than the window is caught by the unique index on
+ * {@code checkpoints.event_id}. The hit rate is published as {@code shipment.ingest.dedupe{result=hit|miss}}.
+ */
+@Component
+public class TrackingEventDeduplicator {
+    private final Map<UUID, Boolean> applied;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public TrackingEventDeduplicator(
+            MeterRegistry meterRegistry,
+            @Value("${shipment.dedupe.max-tracked-events:100000}") int maxTrackedEvents
+    ) {
+        this.applied = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+                return size() > maxTrackedEvents;
+            }
+        };
+
+        this.hits = meterRegistry.counter("shipment.ingest.dedupe", "result", "hit");
+        this.misses = meterRegistry.counter("shipment.ingest.dedupe", "result", "miss");
+        Gauge.builder("shipment.ingest.dedupe.tracked", this, TrackingEventDeduplicator::size).register(meterRegistry);
+    }
+
+    /**
+     * @return true if the event was already applied; events without id are never duplicates
+     */
+    public boolean isDuplicate(UUID eventId) {
+        if (eventId == null) {
+            return false;
+        }
+        boolean duplicate;
+        synchronized (applied) {
+            duplicate = applied.get(eventId) != null;
+        }
+        (duplicate ? hits : misses).increment();
+        return duplicate;
+    }
+
+    /**
+     * Remembers the event as applied once the surrounding transaction has committed, so a rolled back
+     * event is not dropped on redelivery.
+     */
+    public void remember(UUID eventId) {
+        if (eventId != null) {
+            rememberAll(List.of(eventId));
+        }
+    }
+
+    public void rememberAll(Collection<UUID> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(eventIds);
+                }
+            });
+        } else {
+            put(eventIds);
+        }
+    }
+
+    private void put(Collection<UUID> eventIds) {
+        synchronized (applied) {
+            eventIds.forEach(eventId -> applied.put(eventId, Boolean.TRUE));
+        }
+    }
+
+    private int size() {
+        synchronized (applied) {
+            return applied.size();
+        }
+    }
+}
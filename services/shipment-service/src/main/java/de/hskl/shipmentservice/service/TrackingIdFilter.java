@@ -0,0 +1,247 @@
+package de.hskl.shipmentservice.service;
+
+import de.hskl.shipmentservice.repository.ShipmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over all issued tracking ids, so lookups of ids that were never issued (scrapers, typos) are
+ * answered without a database query. A positive answer falls through to the database.
+ * <p>
+ * The filter is loaded from the {@code shipments} table on the first refresh after startup and answers
+ * "maybe" until then. Later refreshes add the ids created since the previous one, with an overlap so that
+ * shipments created by other instances are picked up despite clock skew and late commits. Once more ids than
+ * {@code expected-insertions} were added, the next refresh rebuilds the filter at twice the size.
+ * <p>
+ * Ids issued by other instances since the last refresh are not in the filter yet. Before answering "no", the
+ * ids created since then (again with the overlap) are read into a small exact set, unless a read that started
+ * after the lookup came in already did so; concurrent lookups share one read. An id whose creation was
+ * answered before the lookup arrived is therefore always found. If refreshing fails for longer than the
+ * overlap, the filter answers "maybe" again until a refresh succeeds.
+ */
+@Slf4j
+@Component
+public class TrackingIdFilter {
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+
+    private final ShipmentRepository shipmentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter rebuilding;
+    private volatile long capacity;
+    private volatile Instant loadedUntil;
+    private volatile Instant refreshedAt;
+    private volatile RecentIds recent;
+    private final Object recentLock = new Object();
+
+    private final Counter rejected;
+
+    public TrackingIdFilter(
+            ShipmentRepository shipmentRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${shipment.tracking-filter.enabled:true}") boolean enabled,
+            @Value("${shipment.tracking-filter.expected-insertions:1000000}") long expectedInsertions,
+            @Value("${shipment.tracking-filter.false-positive-rate:0.01}") double falsePositiveRate
+    ) {
+        this.shipmentRepository = shipmentRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.capacity = Math.max(expectedInsertions, 1);
+        this.falsePositiveRate = falsePositiveRate;
+
+        this.rejected = meterRegistry.counter("shipment.tracking_filter.rejected");
+        Gauge.builder("shipment.tracking_filter.ids", this, f -> f.filter == null ? 0 : f.filter.count())
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return false if the tracking id was not issued as of the last refresh
+     */
+    public boolean mightExist(String trackingId) {
+        long requestedAt = System.nanoTime();
+        BloomFilter current = filter;
+        Instant refreshed = refreshedAt;
+        if (current == null || refreshed == null || refreshed.isBefore(Instant.now().minus(REFRESH_OVERLAP))
+                || current.mightContain(trackingId)) {
+            return true;
+        }
+        try {
+            if (recentIds(requestedAt).contains(trackingId)) {
+                return true;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not read recently created tracking ids: {}", e.toString());
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * @return the ids created since the last refresh, read no earlier than {@code requestedAt}
+     */
+    private Set<String> recentIds(long requestedAt) {
+        RecentIds loaded = recent;
+        if (loaded != null && loaded.readAt() - requestedAt >= 0) {
+            return loaded.ids();
+        }
+        synchronized (recentLock) {
+            loaded = recent;
+            if (loaded != null && loaded.readAt() - requestedAt >= 0) {
+                return loaded.ids();
+            }
+            long readAt = System.nanoTime();
+            Set<String> ids = new HashSet<>();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<String> trackingIds = shipmentRepository.streamTrackingIdsCreatedSince(
+                        loadedUntil.minus(REFRESH_OVERLAP))) {
+                    trackingIds.forEach(ids::add);
+                }
+            });
+            recent = new RecentIds(ids, readAt);
+            return ids;
+        }
+    }
+
+    /**
+     * Adds a tracking id issued by this instance. Called before the shipment is committed, so the id is known
+     * by the time the client sees it; a rolled back id only costs a database query later.
+     */
+    public void add(String trackingId) {
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(trackingId);
+        }
+        BloomFilter next = rebuilding;
+        if (next != null) {
+            next.put(trackingId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${shipment.tracking-filter.refresh-interval-ms:5000}")
+    public synchronized void refresh() {
+        if (!enabled) {
+            return;
+        }
+        Instant now = Instant.now();
+        if (filter == null || filter.count() > capacity) {
+            if (filter != null) {
+                capacity *= 2;
+            }
+            BloomFilter rebuilt = new BloomFilter(capacity, falsePositiveRate);
+            rebuilding = rebuilt;
+            try {
+                load(rebuilt, Instant.EPOCH);
+                filter = rebuilt;
+            } finally {
+                rebuilding = null;
+            }
+            log.info("Tracking id filter loaded: {} ids, sized for {}", rebuilt.count(), capacity);
+        } else {
+            load(filter, loadedUntil.minus(REFRESH_OVERLAP));
+        }
+        loadedUntil = now;
+        refreshedAt = now;
+    }
+
+    private void load(BloomFilter target, Instant since) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<String> trackingIds = shipmentRepository.streamTrackingIdsCreatedSince(since)) {
+                trackingIds.forEach(target::put);
+            }
+        });
+    }
+
+    private record RecentIds(Set<String> ids, long readAt) {
+    }
+
+    /**
+     * Bit set with k probes per value, derived from two 64-bit hashes (Kirsch/Mitzenmacher).
+     * {@link #count()} only counts insertions that set at least one new bit, so ids re-read by overlapping
+     * refreshes are not counted again. New ids whose bits were all set already are missed as well, which
+     * undercounts by about the false-positive rate and is close enough to decide when to grow.
+     */
+    static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+        private final AtomicLong count = new AtomicLong();
+
+        BloomFilter(long expectedInsertions, double falsePositiveRate) {
+            long m = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bitCount = Math.max(64, (m + 63) / 64 * 64);
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+            this.bits = new AtomicLongArray((int) (bitCount / 64));
+        }
+
+        void put(String value) {
+            long h1 = hash(value, 0xcbf29ce484222325L);
+            long h2 = hash(value, 0x9e3779b97f4a7c15L) | 1;
+            boolean changed = false;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                while (((current = bits.get(word)) & mask) == 0) {
+                    if (bits.compareAndSet(word, current, current | mask)) {
+                        changed = true;
+                        break;
+                    }
+                    Thread.onSpinWait();
+                }
+            }
+            if (changed) {
+                count.incrementAndGet();
+            }
+        }
+
+        boolean mightContain(String value) {
+            long h1 = hash(value, 0xcbf29ce484222325L);
+            long h2 = hash(value, 0x9e3779b97f4a7c15L) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long count() {
+            return count.get();
+        }
+
+        // FNV-1a mit anschließendem murmur3-Finalizer, damit auch ähnliche IDs gut streuen
+        private static long hash(String value, long seed) {
+            long h = seed;
+            for (int i = 0; i < value.length(); i++) {
+                h = (h ^ value.charAt(i)) * 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package de.hskl.shipmentservice.service;
+
+import de.hskl.shipmentservice.dto.CheckpointTrackingDto;
+import de.hskl.shipmentservice.exceptions.GlobalExceptionHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * In-process fan-out of new checkpoints to SSE subscribers, keyed by shipment id. Checkpoints written by
+ * this replica are published once their transaction has committed, those of other replicas arrive through
+ * {@link TrackingStreamResync} a few seconds later. The ids sent per shipment are remembered for the resync
+ * window, so each checkpoint reaches a subscriber once.
+ * <p>
+ * An idle subscriber holds no thread, only its emitter and an empty queue. Events are queued per
+ * subscriber and written by a virtual thread, so a client that reads slowly blocks only its own
+ * writer. A subscriber whose queue is full (including heartbeats) is dropped, the client reconnects
+ * with {@code Last-Event-ID} and gets the missed checkpoints replayed.
+ */
+@Slf4j
+@Component
+public class TrackingStreamRegistry {
+    public static final String CHECKPOINT_EVENT = "checkpoint";
+
+    private final int maxSubscribers;
+    private final int bufferSize;
+    private final long timeoutMs;
+
+    private final Map<UUID, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<UUID>> sent = new ConcurrentHashMap<>();
+    private final AtomicInteger count = new AtomicInteger();
+    private final ExecutorService senders =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("tracking-stream-", 0).factory());
+
+    private final Counter published;
+    private final Counter slowConsumers;
+    private final Counter failedWrites;
+
+    public TrackingStreamRegistry(
+            MeterRegistry meterRegistry,
+            @Value("${shipment.tracking-stream.max-subscribers:900}") int maxSubscribers,
+            @Value("${shipment.tracking-stream.buffer-size:32}") int bufferSize,
+            @Value("${shipment.tracking-stream.timeout-ms:1800000}") long timeoutMs
+    ) {
+        this.maxSubscribers = maxSubscribers;
+        this.bufferSize = bufferSize;
+        this.timeoutMs = timeoutMs;
+
+        this.published = meterRegistry.counter("shipment.tracking_stream.events");
+        this.slowConsumers = meterRegistry.counter("shipment.tracking_stream.evictions", "reason", "slow");
+        this.failedWrites = meterRegistry.counter("shipment.tracking_stream.evictions", "reason", "error");
+        Gauge.builder("shipment.tracking_stream.subscribers", count, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.emitter.complete()));
+        senders.shutdownNow();
+    }
+
+    public SseEmitter subscribe(UUID shipmentId, Supplier<List<CheckpointTrackingDto>> backlog) {
+        return subscribe(shipmentId, new SseEmitter(timeoutMs), backlog);
+    }
+
+    /**
+     * Registers the emitter for checkpoints of the shipment. The backlog is read after registering, so a
+     * checkpoint committed in between may be sent twice, but never gets lost. It is written before the
+     * subscriber's queue is drained and does not count against {@code buffer-size}, however long it is.
+     *
+     * @param backlog checkpoints the client has missed, e.g. since its {@code Last-Event-ID}
+     * @throws GlobalExceptionHandler.ServiceUnavailableException if the replica already serves
+     *                                                            {@code max-subscribers} streams
+     */
+    public SseEmitter subscribe(UUID shipmentId, SseEmitter emitter, Supplier<List<CheckpointTrackingDto>> backlog) {
+        if (count.incrementAndGet() > maxSubscribers) {
+            count.decrementAndGet();
+            throw new GlobalExceptionHandler.ServiceUnavailableException("Too many tracking streams");
+        }
+        Subscriber subscriber = new Subscriber(shipmentId, emitter, new ArrayBlockingQueue<>(bufferSize));
+        // kein Sender, bis der Backlog geschrieben ist; neue Checkpoints warten solange in der Queue
+        subscriber.scheduled.set(true);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        subscribers.compute(shipmentId, (id, set) -> {
+            Set<Subscriber> result = set != null ? set : ConcurrentHashMap.newKeySet();
+            result.add(subscriber);
+            return result;
+        });
+
+        try {
+            // schreibt die Response-Header sofort, nicht erst mit dem ersten Checkpoint oder Heartbeat
+            emitter.send(SseEmitter.event().comment("connected"));
+            for (CheckpointTrackingDto checkpoint : backlog.get()) {
+                if (subscriber.closed.get()) {
+                    return emitter; // inzwischen als langsam verworfen
+                }
+                emitter.send(checkpointEvent(checkpoint));
+            }
+        } catch (IOException | RuntimeException e) {
+            // der Emitter erreicht MVC nie, also muss der Platz hier wieder frei werden
+            remove(subscriber);
+            throw e instanceof IOException io ? new UncheckedIOException(io) : (RuntimeException) e;
+        }
+        subscriber.scheduled.set(false);
+        if (!subscriber.queue.isEmpty()) {
+            schedule(subscriber);
+        }
+        return emitter;
+    }
+
+    /**
+     * Sends the checkpoint to the shipment's subscribers once the surrounding transaction has committed.
+     */
+    public void publish(UUID shipmentId, CheckpointTrackingDto checkpoint) {
+        if (!subscribers.containsKey(shipmentId)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(shipmentId, checkpoint);
+                }
+            });
+        } else {
+            send(shipmentId, checkpoint);
+        }
+    }
+
+    /**
+     * Keeps idle connections open through proxies and finds clients that went away without closing.
+     */
+    @Scheduled(fixedDelayString = "${shipment.tracking-stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        subscribers.values().forEach(set -> set.forEach(subscriber ->
+                offer(subscriber, SseEmitter.event().comment("keepalive"))));
+    }
+
+    /**
+     * Sends the checkpoints that were not sent yet, e.g. those written by other replicas.
+     */
+    public void resend(UUID shipmentId, List<CheckpointTrackingDto> checkpoints) {
+        checkpoints.forEach(checkpoint -> send(shipmentId, checkpoint));
+    }
+
+    /**
+     * Forgets the sent checkpoints written before the given time and those of shipments without subscribers.
+     */
+    public void forget(Instant before) {
+        long millis = before.toEpochMilli();
+        // UUIDv7: die oberen 48 Bit sind der Zeitstempel in Millisekunden
+        sent.values().forEach(ids -> ids.removeIf(id -> id.getMostSignificantBits() >>> 16 < millis));
+        sent.keySet().removeIf(shipmentId -> !subscribers.containsKey(shipmentId));
+    }
+
+    public List<UUID> shipmentIds() {
+        return List.copyOf(subscribers.keySet());
+    }
+
+    public int size() {
+        return count.get();
+    }
+
+    private void send(UUID shipmentId, CheckpointTrackingDto checkpoint) {
+        Set<Subscriber> set = subscribers.get(shipmentId);
+        if (set == null) {
+            return;
+        }
+        if (checkpoint.id() != null
+                && !sent.computeIfAbsent(shipmentId, id -> ConcurrentHashMap.newKeySet()).add(checkpoint.id())) {
+            return;
+        }
+        published.increment();
+        set.forEach(subscriber -> offer(subscriber, checkpointEvent(checkpoint)));
+    }
+
+    private void offer(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (subscriber.closed.get()) {
+            return;
+        }
+        if (!subscriber.queue.offer(event)) {
+            if (close(subscriber)) {
+                log.debug("Dropped slow tracking stream of shipment {}", subscriber.shipmentId);
+                slowConsumers.increment();
+            }
+            return;
+        }
+        schedule(subscriber);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                close(subscriber); // Shutdown läuft
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        do {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while ((event = subscriber.queue.poll()) != null) {
+                    subscriber.emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                if (close(subscriber)) {
+                    log.debug("Dropped tracking stream of shipment {}: {}", subscriber.shipmentId, e.toString());
+                    failedWrites.increment();
+                }
+                return;
+            } finally {
+                subscriber.scheduled.set(false);
+            }
+            // ein Event, das zwischen poll() und set(false) eingereiht wurde, hat keinen neuen Sender gestartet
+        } while (!subscriber.queue.isEmpty() && subscriber.scheduled.compareAndSet(false, true));
+    }
+
+    private boolean close(Subscriber subscriber) {
+        if (!remove(subscriber)) {
+            return false;
+        }
+        subscriber.queue.clear();
+        subscriber.emitter.complete();
+        return true;
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return false;
+        }
+        count.decrementAndGet();
+        subscribers.computeIfPresent(subscriber.shipmentId, (id, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+        return true;
+    }
+
+    private static SseEmitter.SseEventBuilder checkpointEvent(CheckpointTrackingDto checkpoint) {
+        SseEmitter.SseEventBuilder event = SseEmitter.event().name(CHECKPOINT_EVENT);
+        if (checkpoint.id() != null) { // archivierte Checkpoints haben keine ID
+            event.id(checkpoint.id().toString());
+        }
+        return event.data(checkpoint);
+    }
+
+    private static final class Subscriber {
+        private final UUID shipmentId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(UUID shipmentId, SseEmitter emitter, BlockingQueue<SseEmitter.SseEventBuilder> queue) {
+            this.shipmentId = shipmentId;
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+    }
+}
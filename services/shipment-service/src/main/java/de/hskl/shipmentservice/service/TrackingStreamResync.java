@@ -0,0 +1,57 @@
+package de.hskl.shipmentservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Brings checkpoints written by other replicas to the tracking streams of this one: every
+ * {@code resync-interval-ms} the checkpoints of all subscribed shipments written since the previous run are read
+ * and handed to {@link TrackingStreamRegistry#resend}, which skips those already sent. The window starts
+ * {@code resync-overlap-ms} before the previous run, so transactions that committed late and clock skew between
+ * replicas are covered.
+ */
+@Slf4j
+@Component
+public class TrackingStreamResync {
+    private final ShipmentService shipmentService;
+    private final TrackingStreamRegistry trackingStreams;
+    private final Duration overlap;
+    private final int batchSize;
+
+    private Instant lastRun = Instant.now();
+
+    public TrackingStreamResync(
+            ShipmentService shipmentService,
+            TrackingStreamRegistry trackingStreams,
+            @Value("${shipment.tracking-stream.resync-overlap-ms:10000}") long overlapMs,
+            @Value("${shipment.tracking-stream.resync-batch-size:500}") int batchSize
+    ) {
+        this.shipmentService = shipmentService;
+        this.trackingStreams = trackingStreams;
+        this.overlap = Duration.ofMillis(overlapMs);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${shipment.tracking-stream.resync-interval-ms:2000}")
+    public synchronized void resync() {
+        Instant now = Instant.now();
+        Instant since = lastRun.minus(overlap);
+        trackingStreams.forget(since);
+        List<UUID> shipmentIds = trackingStreams.shipmentIds();
+        for (int from = 0; from < shipmentIds.size(); from += batchSize) {
+            shipmentService.getCheckpointsWrittenSince(
+                            shipmentIds.subList(from, Math.min(from + batchSize, shipmentIds.size())), since)
+                    .forEach(trackingStreams::resend);
+        }
+        // schlägt ein Lauf fehl, deckt der nächste dasselbe Fenster ab
+        lastRun = now;
+        log.debug("Resynced tracking streams of {} shipments since {}", shipmentIds.size(), since);
+    }
+}
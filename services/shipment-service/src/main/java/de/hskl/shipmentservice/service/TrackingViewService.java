@@ -0,0 +1,201 @@
+package de.hskl.shipmentservice.service;
+
+import de.hskl.shipmentservice.dto.CheckpointTrackingDto;
+import de.hskl.shipmentservice.entity.Checkpoint;
+import de.hskl.shipmentservice.entity.CheckpointArchive;
+import de.hskl.shipmentservice.entity.Shipment;
+import de.hskl.shipmentservice.entity.TrackingView;
+import de.hskl.shipmentservice.repository.CheckpointArchiveRepository;
+import de.hskl.shipmentservice.repository.CheckpointRepository;
+import de.hskl.shipmentservice.repository.ShipmentRepository;
+import de.hskl.shipmentservice.repository.TrackingViewRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains {@link TrackingView}, the read model behind {@code /track/{trackingId}}: one row per shipment with
+ * the head fields of the response and its newest {@code max-checkpoints} checkpoints as serialized JSON, so a
+ * tracking request is answered with a single lookup by tracking id.
+ * <p>
+ * Rows are written in the transaction that creates the shipment or appends its checkpoints. Shipments created
+ * before the table existed have no row until {@link #rebuild()} ran, their responses are read from the
+ * normalized tables as before.
+ */
+@Slf4j
+@Service
+public class TrackingViewService {
+    private final TrackingViewRepository trackingViewRepository;
+    private final ShipmentRepository shipmentRepository;
+    private final CheckpointRepository checkpointRepository;
+    private final CheckpointArchiveRepository archiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxCheckpoints;
+    private final int rebuildBatchSize;
+    private final ObjectReader timelineReader;
+    private final ObjectWriter timelineWriter;
+
+    public TrackingViewService(
+            TrackingViewRepository trackingViewRepository,
+            ShipmentRepository shipmentRepository,
+            CheckpointRepository checkpointRepository,
+            CheckpointArchiveRepository archiveRepository,
+            PlatformTransactionManager transactionManager,
+            JsonMapper jsonMapper,
+            @Value("${shipment.tracking-view.max-checkpoints:100}") int maxCheckpoints,
+            @Value("${shipment.tracking-view.rebuild-batch-size:500}") int rebuildBatchSize
+    ) {
+        this.trackingViewRepository = trackingViewRepository;
+        this.shipmentRepository = shipmentRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.archiveRepository = archiveRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxCheckpoints = maxCheckpoints;
+        this.rebuildBatchSize = rebuildBatchSize;
+        this.timelineReader = jsonMapper.readerForListOf(CheckpointTrackingDto.class);
+        this.timelineWriter = jsonMapper.writerFor(timelineReader.getValueType());
+    }
+
+    public Optional<TrackingView> find(String trackingId) {
+        return trackingViewRepository.findByTrackingId(trackingId);
+    }
+
+    /**
+     * @return the stored timeline, oldest first. It lacks the older checkpoints if it is shorter than
+     * {@link TrackingView#getCheckpointCount()}.
+     */
+    public List<CheckpointTrackingDto> timeline(TrackingView view) {
+        try {
+            return timelineReader.readValue(view.getTimeline());
+        } catch (JacksonException e) {
+            throw new IllegalStateException("Unreadable tracking view of shipment " + view.getShipmentId(), e);
+        }
+    }
+
+    /**
+     * Adds the row of a shipment created in the current transaction.
+     */
+    public void create(Shipment shipment, List<Checkpoint> timeline) {
+        trackingViewRepository.save(build(shipment, timeline));
+    }
+
+    /**
+     * Adds checkpoints saved in the current transaction to the rows of their shipments and moves the status
+     * the way {@link ShipmentRepository#applyTrackingUpdate} moves the head. Shipments without a row are skipped.
+     * <p>
+     * The checkpoints are flushed before the rows are locked: the foreign key check of their insert waits for a
+     * {@link #rebuild()} holding the shipment row, so the rebuilt row either contains them already or is
+     * extended here afterwards.
+     *
+     * @return ids of the shipments whose rows were updated
+     */
+    public Set<UUID> append(List<Checkpoint> checkpoints, Instant now) {
+        if (checkpoints.isEmpty()) {
+            return Set.of();
+        }
+        checkpointRepository.flush();
+        Map<UUID, List<Checkpoint>> byShipment = checkpoints.stream()
+                .collect(Collectors.groupingBy(checkpoint -> checkpoint.getShipment().getId()));
+
+        Set<UUID> updated = new HashSet<>();
+        for (TrackingView view : trackingViewRepository.lockByShipmentIdIn(byShipment.keySet())) {
+            List<Checkpoint> added = byShipment.get(view.getShipmentId());
+            List<CheckpointTrackingDto> timeline = new ArrayList<>(timeline(view));
+            for (Checkpoint checkpoint : added) {
+                timeline.add(CheckpointTrackingDto.from(checkpoint));
+                if (checkpoint.getStatus() != null
+                        && (view.getLastEventAt() == null || !checkpoint.getTimestamp().isBefore(view.getLastEventAt()))) {
+                    view.setStatus(checkpoint.getStatus());
+                    view.setLastEventAt(checkpoint.getTimestamp());
+                }
+            }
+            // späte Events können älter sein als die gespeicherten, List.sort ist stabil
+            timeline.sort(Comparator.comparing(CheckpointTrackingDto::timestamp));
+            view.setCheckpointCount(view.getCheckpointCount() + added.size());
+            view.setTimeline(write(timeline));
+            view.setUpdatedAt(now);
+            updated.add(view.getShipmentId());
+        }
+        return updated;
+    }
+
+    /**
+     * Rebuilds the rows of all shipments from the normalized tables, archived timelines included, in batches of
+     * {@code rebuild-batch-size} shipments. Each batch runs in its own transaction that locks its shipment rows
+     * (see {@link ShipmentRepository#lockPage}), so checkpoints added meanwhile are not lost.
+     *
+     * @return number of rebuilt rows
+     */
+    public int rebuild() {
+        int total = 0;
+        UUID after = new UUID(0, 0);
+        List<UUID> rebuilt;
+        do {
+            UUID from = after;
+            rebuilt = transactionTemplate.execute(status -> rebuildBatch(from));
+            total += rebuilt.size();
+            after = rebuilt.isEmpty() ? after : rebuilt.getLast();
+        } while (rebuilt.size() == rebuildBatchSize);
+        log.info("Rebuilt {} tracking views", total);
+        return total;
+    }
+
+    private List<UUID> rebuildBatch(UUID afterId) {
+        List<Shipment> shipments = shipmentRepository.lockPage(afterId, rebuildBatchSize);
+        if (shipments.isEmpty()) {
+            return List.of();
+        }
+        List<UUID> shipmentIds = shipments.stream().map(Shipment::getId).toList();
+        Map<UUID, List<Checkpoint>> timelines = checkpointRepository.findByShipmentIdInOrderByTimestampAsc(shipmentIds)
+                .stream()
+                .collect(Collectors.groupingBy(checkpoint -> checkpoint.getShipment().getId()));
+        List<UUID> archived = shipments.stream()
+                .filter(shipment -> shipment.getTimelineArchivedAt() != null)
+                .map(Shipment::getId)
+                .toList();
+        if (!archived.isEmpty()) {
+            for (CheckpointArchive archive : archiveRepository.findAllById(archived)) {
+                List<Checkpoint> timeline = new ArrayList<>(CheckpointArchiveCodec.decode(archive.getData()));
+                timeline.addAll(timelines.getOrDefault(archive.getShipmentId(), List.of()));
+                timeline.sort(Comparator.comparing(Checkpoint::getTimestamp));
+                timelines.put(archive.getShipmentId(), timeline);
+            }
+        }
+
+        // vorhandene Zeilen vorab laden, sonst fragt saveAll (merge) jede einzeln ab
+        trackingViewRepository.findAllById(shipmentIds);
+        trackingViewRepository.saveAll(shipments.stream()
+                .map(shipment -> build(shipment, timelines.getOrDefault(shipment.getId(), List.of())))
+                .toList());
+        return shipmentIds;
+    }
+
+    private TrackingView build(Shipment shipment, List<Checkpoint> timeline) {
+        return TrackingView.builder()
+                .shipmentId(shipment.getId())
+                .trackingId(shipment.getTrackingId())
+                .status(shipment.getCurrentStatus())
+                .expectedDelivery(shipment.getExpectedDelivery())
+                .lastEventAt(shipment.getLastEventAt())
+                .checkpointCount(timeline.size())
+                .timeline(write(timeline.stream().map(CheckpointTrackingDto::from).toList()))
+                .updatedAt(shipment.getUpdatedAt())
+                .build();
+    }
+
+    private byte[] write(List<CheckpointTrackingDto> timeline) {
+        List<CheckpointTrackingDto> newest = timeline.size() <= maxCheckpoints
+                ? timeline : timeline.subList(timeline.size() - maxCheckpoints, timeline.size());
+        return timelineWriter.writeValueAsBytes(newest);
+    }
+}
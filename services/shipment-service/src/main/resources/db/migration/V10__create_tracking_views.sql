@@ -0,0 +1,14 @@
+-- Lesemodell für /track/{trackingId}: je Sendung eine Zeile mit den Kopfdaten und den neuesten Checkpoints als
+-- fertig serialisiertes JSON (TrackingViewService). Wird in derselben Transaktion wie shipments und checkpoints
+-- geschrieben. Bestehende Sendungen bekommen ihre Zeile erst über POST /admin/tracking-views/rebuild, bis dahin
+-- wird ihre Antwort wie bisher aus den normalisierten Tabellen gelesen.
+CREATE TABLE tracking_views (
+    shipment_id UUID PRIMARY KEY REFERENCES shipments(id) ON DELETE CASCADE,
+    tracking_id VARCHAR(64) NOT NULL UNIQUE,
+    status SMALLINT NOT NULL REFERENCES shipment_statuses(code),
+    expected_delivery TIMESTAMP,
+    last_event_at TIMESTAMP,
+    checkpoint_count INT NOT NULL,
+    timeline BYTEA NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
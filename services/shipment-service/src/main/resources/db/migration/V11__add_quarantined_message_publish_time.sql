@@ -0,0 +1,6 @@
+-- Updates ohne timestamp bekommen die Pub/Sub-Veröffentlichungszeit als Ereigniszeit (Teil von
+-- ux_checkpoints_event_id), beim Replay muss dieselbe Zeit wieder verwendet werden.
+ALTER TABLE quarantined_messages ADD COLUMN published_at TIMESTAMP;
+
+-- ältere Einträge kennen sie nicht, quarantined_at ist je Eintrag zumindest stabil
+UPDATE quarantined_messages SET published_at = quarantined_at;
@@ -0,0 +1,3 @@
+ALTER TABLE shipments ADD COLUMN last_event_at TIMESTAMP;
+
+UPDATE shipments SET last_event_at = updated_at;
@@ -0,0 +1,10 @@
+CREATE TABLE quarantined_messages (
+    id UUID PRIMARY KEY,
+    message_id VARCHAR(128),
+    payload BYTEA,
+    error VARCHAR(2000),
+    attempts INT NOT NULL,
+    quarantined_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_quarantined_messages_message_id ON quarantined_messages(message_id);
@@ -0,0 +1,3 @@
+ALTER TABLE checkpoints ADD COLUMN event_id UUID;
+
+CREATE UNIQUE INDEX ux_checkpoints_event_id ON checkpoints(event_id);
@@ -0,0 +1,3 @@
+CREATE UNIQUE INDEX ux_shipments_tracking_id ON shipments(tracking_id);
+CREATE INDEX idx_shipments_owner_user_id ON shipments(owner_user_id);
+CREATE INDEX idx_shipments_created_at ON shipments(created_at);
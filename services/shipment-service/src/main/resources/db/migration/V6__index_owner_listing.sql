@@ -0,0 +1,5 @@
+CREATE INDEX idx_shipments_owner_created ON shipments(owner_user_id, created_at DESC, id DESC);
+CREATE INDEX idx_shipments_owner_updated ON shipments(owner_user_id, updated_at DESC, id DESC);
+
+-- von den zusammengesetzten Indizes abgedeckt
+DROP INDEX idx_shipments_owner_user_id;
@@ -0,0 +1,47 @@
+-- Checkpoints werden nach ts monatsweise partitioniert, Aufbewahrung erfolgt über DROP einer ganzen Partition
+-- (CheckpointPartitionMaintainer legt außerdem die kommenden Monate an).
+-- Primärschlüssel und eindeutige Indizes einer partitionierten Tabelle müssen den Partitionsschlüssel enthalten,
+-- daher (id, ts) und (event_id, ts). Eine erneut zugestellte Nachricht wird damit nur abgewiesen, wenn sie
+-- wieder denselben ts bekommt: ohne timestamp im Payload nimmt TrackingUpdateCodec die Pub/Sub-Veröffentlichungszeit,
+-- Updates ganz ohne Zeit lehnt ShipmentService ab.
+-- Bestehende Zeilen werden einmalig umkopiert.
+
+ALTER TABLE checkpoints RENAME TO checkpoints_unpartitioned;
+ALTER TABLE checkpoints_unpartitioned RENAME CONSTRAINT checkpoints_pkey TO checkpoints_unpartitioned_pkey;
+DROP INDEX idx_checkpoints_shipment_ts;
+DROP INDEX ux_checkpoints_event_id;
+
+CREATE TABLE checkpoints (
+    id UUID NOT NULL,
+    shipment_id UUID NOT NULL REFERENCES shipments(id) ON DELETE CASCADE,
+    ts TIMESTAMP NOT NULL,
+    status VARCHAR(50),
+    message VARCHAR(500),
+    lat DOUBLE PRECISION,
+    lng DOUBLE PRECISION,
+    event_id UUID,
+    PRIMARY KEY (id, ts)
+) PARTITION BY RANGE (ts);
+
+-- nimmt Zeilen außerhalb der angelegten Monate auf (sehr alte oder in der Zukunft liegende Zeitstempel)
+CREATE TABLE checkpoints_default PARTITION OF checkpoints DEFAULT;
+
+DO $$
+DECLARE
+    month TIMESTAMP := date_trunc('month', coalesce((SELECT min(ts) FROM checkpoints_unpartitioned), now()));
+BEGIN
+    WHILE month <= date_trunc('month', now()) + INTERVAL '3 months' LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF checkpoints FOR VALUES FROM (%L) TO (%L)',
+                       'checkpoints_' || to_char(month, 'YYYY_MM'), month, month + INTERVAL '1 month');
+        month := month + INTERVAL '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO checkpoints (id, shipment_id, ts, status, message, lat, lng, event_id)
+SELECT id, shipment_id, ts, status, message, lat, lng, event_id
+FROM checkpoints_unpartitioned;
+
+DROP TABLE checkpoints_unpartitioned;
+
+CREATE INDEX idx_checkpoints_shipment_ts ON checkpoints(shipment_id, ts);
+CREATE UNIQUE INDEX ux_checkpoints_event_id ON checkpoints(event_id, ts);
@@ -0,0 +1,15 @@
+-- Kalte Ablage der Timelines zugestellter Sendungen: eine Zeile je Sendung mit allen Checkpoints in einem
+-- kompakten, komprimierten Spaltenformat (CheckpointArchiveCodec). Die Zeilen in checkpoints werden danach gelöscht.
+CREATE TABLE checkpoint_archives (
+    shipment_id UUID PRIMARY KEY REFERENCES shipments(id) ON DELETE CASCADE,
+    checkpoint_count INT NOT NULL,
+    data BYTEA NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+-- gesetzt, sobald die Timeline archiviert ist; Checkpoints, die danach noch eintreffen, bleiben in checkpoints
+ALTER TABLE shipments ADD COLUMN timeline_archived_at TIMESTAMP;
+
+-- Kandidaten des CheckpointArchiver, bleibt klein, da archivierte Sendungen herausfallen
+CREATE INDEX idx_shipments_archivable ON shipments(last_event_at)
+    WHERE current_status = 'DELIVERED' AND timeline_archived_at IS NULL;
@@ -0,0 +1,67 @@
+-- Status als SMALLINT-Code statt VARCHAR (Java: ShipmentStatus), häufige Checkpoint-Nachrichten als Code eines
+-- Wörterbuchs (CheckpointMessageDictionary), seltene bleiben in checkpoints.message.
+
+CREATE TABLE shipment_statuses (
+    code SMALLINT PRIMARY KEY,
+    name VARCHAR(50) NOT NULL UNIQUE
+);
+
+INSERT INTO shipment_statuses (code, name) VALUES
+    (1, 'CREATED'),
+    (2, 'PICKED_UP'),
+    (3, 'IN_TRANSIT'),
+    (4, 'OUT_FOR_DELIVERY'),
+    (5, 'DELIVERED'),
+    (6, 'DELAYED');
+
+-- unbekannte Status lassen sich nicht abbilden, dann lieber hier abbrechen als Werte zu verlieren
+DO $$
+DECLARE
+    unknown TEXT;
+BEGIN
+    SELECT string_agg(DISTINCT status, ', ') INTO unknown
+    FROM (SELECT current_status AS status FROM shipments
+          UNION SELECT status FROM checkpoints WHERE status IS NOT NULL) s
+    WHERE status NOT IN (SELECT name FROM shipment_statuses);
+    IF unknown IS NOT NULL THEN
+        RAISE EXCEPTION 'Statuses without code: %', unknown;
+    END IF;
+END $$;
+
+CREATE TABLE checkpoint_messages (
+    code INT PRIMARY KEY,
+    text VARCHAR(500) NOT NULL UNIQUE
+);
+
+-- Startbestand: die vom Service selbst geschriebene Nachricht und alle, die schon mindestens 100-mal vorkommen
+INSERT INTO checkpoint_messages (code, text) VALUES (1, 'Shipment created');
+INSERT INTO checkpoint_messages (code, text)
+SELECT 1 + row_number() OVER (ORDER BY count(*) DESC, message), message
+FROM checkpoints
+WHERE message IS NOT NULL AND message <> 'Shipment created'
+GROUP BY message
+HAVING count(*) >= 100;
+
+ALTER TABLE checkpoints ADD COLUMN message_code INT REFERENCES checkpoint_messages(code);
+
+UPDATE checkpoints c
+SET message_code = m.code, message = NULL
+FROM checkpoint_messages m
+WHERE c.message = m.text;
+
+-- das Index-Prädikat vergleicht current_status mit einem Text, er wird danach mit dem Code neu angelegt
+DROP INDEX idx_shipments_archivable;
+
+-- ALTER TYPE schreibt die Tabellen neu, dabei fallen auch die toten Zeilen aus dem UPDATE oben weg
+ALTER TABLE shipments ALTER COLUMN current_status TYPE SMALLINT USING (CASE current_status
+    WHEN 'CREATED' THEN 1 WHEN 'PICKED_UP' THEN 2 WHEN 'IN_TRANSIT' THEN 3
+    WHEN 'OUT_FOR_DELIVERY' THEN 4 WHEN 'DELIVERED' THEN 5 WHEN 'DELAYED' THEN 6 END);
+ALTER TABLE checkpoints ALTER COLUMN status TYPE SMALLINT USING (CASE status
+    WHEN 'CREATED' THEN 1 WHEN 'PICKED_UP' THEN 2 WHEN 'IN_TRANSIT' THEN 3
+    WHEN 'OUT_FOR_DELIVERY' THEN 4 WHEN 'DELIVERED' THEN 5 WHEN 'DELAYED' THEN 6 END);
+
+ALTER TABLE shipments ADD CONSTRAINT fk_shipments_status FOREIGN KEY (current_status) REFERENCES shipment_statuses(code);
+ALTER TABLE checkpoints ADD CONSTRAINT fk_checkpoints_status FOREIGN KEY (status) REFERENCES shipment_statuses(code);
+
+CREATE INDEX idx_shipments_archivable ON shipments(last_event_at)
+    WHERE current_status = 5 AND timeline_archived_at IS NULL;
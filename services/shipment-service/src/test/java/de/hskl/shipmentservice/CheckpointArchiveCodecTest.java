@@ -0,0 +1,90 @@
+package de.hskl.shipmentservice;
+
+import de.hskl.shipmentservice.entity.Checkpoint;
+import de.hskl.shipmentservice.entity.ShipmentStatus;
+import de.hskl.shipmentservice.service.CheckpointArchiveCodec;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CheckpointArchiveCodecTest {
+    private static final Instant START = Instant.parse("2026-03-01T08:00:00.123456Z");
+
+    @Test
+    void decode_shouldRestoreEncodedTimeline() {
+        List<Checkpoint> timeline = List.of(
+                checkpoint(START, ShipmentStatus.CREATED, "Shipment created", null, null),
+                checkpoint(START.plusSeconds(3600), ShipmentStatus.IN_TRANSIT, null, 50.123456, 8.654321),
+                checkpoint(START.plusSeconds(7200), ShipmentStatus.IN_TRANSIT, "Zustellung über Packstation", -33.868820, 151.209296),
+                checkpoint(START.plusSeconds(7200), null, "Shipment created", 50.0, null),
+                checkpoint(START.plusSeconds(90_000), ShipmentStatus.DELIVERED, null, 50.123456, 8.654321));
+
+        List<Checkpoint> decoded = CheckpointArchiveCodec.decode(CheckpointArchiveCodec.encode(timeline));
+
+        assertEquals(timeline.size(), decoded.size());
+        for (int i = 0; i < timeline.size(); i++) {
+            Checkpoint expected = timeline.get(i);
+            Checkpoint actual = decoded.get(i);
+            assertEquals(expected.getTimestamp(), actual.getTimestamp());
+            assertEquals(expected.getStatus(), actual.getStatus());
+            assertEquals(expected.getMessage(), actual.getMessage());
+            assertEquals(expected.getLat(), actual.getLat());
+            assertEquals(expected.getLng(), actual.getLng());
+        }
+    }
+
+    @Test
+    void encode_shouldKeepMicrosecondsAndSixDecimals() {
+        Checkpoint checkpoint = checkpoint(Instant.parse("1969-12-31T23:59:59.999999999Z"), ShipmentStatus.IN_TRANSIT, null,
+                50.12345678, 8.0000004);
+
+        Checkpoint decoded = CheckpointArchiveCodec.decode(CheckpointArchiveCodec.encode(List.of(checkpoint))).getFirst();
+
+        assertEquals(Instant.parse("1969-12-31T23:59:59.999999Z"), decoded.getTimestamp());
+        assertEquals(50.123457, decoded.getLat());
+        assertEquals(8.0, decoded.getLng());
+    }
+
+    @Test
+    void encode_withEmptyTimeline_shouldRoundTrip() {
+        assertEquals(List.of(), CheckpointArchiveCodec.decode(CheckpointArchiveCodec.encode(List.of())));
+    }
+
+    @Test
+    void encode_shouldBeFarSmallerThanTheRows() {
+        List<Checkpoint> timeline = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            timeline.add(checkpoint(START.plusSeconds(i * 60L), i % 10 == 0 ? ShipmentStatus.OUT_FOR_DELIVERY : ShipmentStatus.IN_TRANSIT,
+                    "Package scanned", 50.0 + i * 0.001, 8.0 + i * 0.0005));
+        }
+
+        byte[] encoded = CheckpointArchiveCodec.encode(timeline);
+
+        // eine Zeile in checkpoints belegt mit Tupel-Header und Index-Einträgen weit über 100 Bytes
+        assertTrue(encoded.length < 10 * timeline.size(), "archive of " + encoded.length + " bytes");
+    }
+
+    @Test
+    void decode_withCorruptData_shouldThrow() {
+        byte[] encoded = CheckpointArchiveCodec.encode(List.of(checkpoint(START, ShipmentStatus.CREATED, null, null, null)));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> CheckpointArchiveCodec.decode(Arrays.copyOf(encoded, encoded.length - 2)));
+        assertThrows(IllegalArgumentException.class, () -> CheckpointArchiveCodec.decode(new byte[]{9, 1, 0}));
+    }
+
+    private static Checkpoint checkpoint(Instant timestamp, ShipmentStatus status, String message, Double lat, Double lng) {
+        return Checkpoint.builder()
+                .timestamp(timestamp)
+                .status(status)
+                .message(message)
+                .lat(lat)
+                .lng(lng)
+                .build();
+    }
+}
@@ -0,0 +1,120 @@
+package de.hskl.shipmentservice;
+
+import de.hskl.shipmentservice.entity.Checkpoint;
+import de.hskl.shipmentservice.entity.CheckpointArchive;
+import de.hskl.shipmentservice.entity.Shipment;
+import de.hskl.shipmentservice.entity.ShipmentStatus;
+import de.hskl.shipmentservice.repository.CheckpointArchiveRepository;
+import de.hskl.shipmentservice.repository.CheckpointRepository;
+import de.hskl.shipmentservice.repository.ShipmentRepository;
+import de.hskl.shipmentservice.service.CheckpointArchiveCodec;
+import de.hskl.shipmentservice.service.CheckpointArchiver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class CheckpointArchiverTest {
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private CheckpointRepository checkpointRepository;
+
+    @Autowired
+    private CheckpointArchiveRepository archiveRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private CheckpointArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        archiver = new CheckpointArchiver(shipmentRepository, checkpointRepository, archiveRepository,
+                new TransactionTemplate(transactionManager), new SimpleMeterRegistry(), true, 30, 2);
+    }
+
+    @Test
+    void archive_shouldMoveTimelinesOfShipmentsDeliveredBeforeCutoff() {
+        Shipment old = shipment("PKG-OLD00001", ShipmentStatus.DELIVERED, NOW.minus(40, ChronoUnit.DAYS), 3);
+        Shipment older = shipment("PKG-OLD00002", ShipmentStatus.DELIVERED, NOW.minus(50, ChronoUnit.DAYS), 2);
+        Shipment oldest = shipment("PKG-OLD00003", ShipmentStatus.DELIVERED, NOW.minus(60, ChronoUnit.DAYS), 1);
+        Shipment recent = shipment("PKG-NEW00001", ShipmentStatus.DELIVERED, NOW.minus(5, ChronoUnit.DAYS), 2);
+        Shipment inTransit = shipment("PKG-TRANSIT1", ShipmentStatus.IN_TRANSIT, NOW.minus(40, ChronoUnit.DAYS), 2);
+
+        int archived = archiver.archive(NOW.minus(30, ChronoUnit.DAYS));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(3, archived);
+        for (Shipment shipment : List.of(old, older, oldest)) {
+            assertTrue(checkpointRepository.findByShipmentIdInOrderByTimestampAsc(List.of(shipment.getId())).isEmpty());
+            assertNotNull(shipmentRepository.findById(shipment.getId()).orElseThrow().getTimelineArchivedAt());
+        }
+        CheckpointArchive archive = archiveRepository.findById(old.getId()).orElseThrow();
+        assertEquals(3, archive.getCheckpointCount());
+        List<Checkpoint> timeline = CheckpointArchiveCodec.decode(archive.getData());
+        assertEquals(List.of(ShipmentStatus.CREATED, ShipmentStatus.IN_TRANSIT, ShipmentStatus.DELIVERED), timeline.stream().map(Checkpoint::getStatus).toList());
+        assertEquals(NOW.minus(40, ChronoUnit.DAYS), timeline.getLast().getTimestamp());
+
+        assertEquals(2, checkpointRepository.findByShipmentIdInOrderByTimestampAsc(List.of(recent.getId())).size());
+        assertEquals(2, checkpointRepository.findByShipmentIdInOrderByTimestampAsc(List.of(inTransit.getId())).size());
+        assertTrue(archiveRepository.findById(recent.getId()).isEmpty());
+    }
+
+    @Test
+    void archive_shouldNotPickUpArchivedShipmentsAgain() {
+        shipment("PKG-OLD00001", ShipmentStatus.DELIVERED, NOW.minus(40, ChronoUnit.DAYS), 3);
+        archiver.archive(NOW.minus(30, ChronoUnit.DAYS));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(0, archiver.archive(NOW.minus(30, ChronoUnit.DAYS)));
+    }
+
+    private Shipment shipment(String trackingId, ShipmentStatus status, Instant lastEventAt, int checkpoints) {
+        Shipment shipment = shipmentRepository.save(Shipment.builder()
+                .trackingId(trackingId)
+                .ownerUserId("user-123")
+                .sender("Test Sender")
+                .receiver("Test Receiver")
+                .receiverStreet("Musterstraße 1")
+                .receiverCity("Musterstadt")
+                .currentStatus(status)
+                .lastEventAt(lastEventAt)
+                .createdAt(lastEventAt)
+                .updatedAt(lastEventAt)
+                .build());
+        List<ShipmentStatus> statuses = List.of(ShipmentStatus.CREATED, ShipmentStatus.IN_TRANSIT, status);
+        for (int i = 0; i < checkpoints; i++) {
+            checkpointRepository.save(Checkpoint.builder()
+                    .shipment(shipment)
+                    .timestamp(lastEventAt.minus(checkpoints - 1 - i, ChronoUnit.HOURS))
+                    .status(statuses.get(statuses.size() - checkpoints + i))
+                    .lat(50.0 + i)
+                    .lng(8.0)
+                    .build());
+        }
+        entityManager.flush();
+        return shipment;
+    }
+}
@@ -0,0 +1,102 @@
+package de.hskl.shipmentservice;
+
+import de.hskl.shipmentservice.service.CheckpointPartitionMaintainer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against the partitioned schema of the Flyway migrations. Needs Docker, skipped otherwise.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=none"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+public class CheckpointPartitionMaintainerTest {
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:16-alpine");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void maintain_shouldCreateUpcomingPartitionsAndMoveTheirRowsOutOfDefault() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC).plusMonths(12);
+        UUID shipmentId = shipment();
+        jdbcTemplate.update("insert into checkpoints (id, shipment_id, ts, status) values (?, ?, ?, 3)",
+                UUID.randomUUID(), shipmentId, current.plusMonths(1).atDay(15).atStartOfDay());
+
+        new CheckpointPartitionMaintainer(jdbcTemplate, transactionTemplate, true, 2, 0).maintain(current);
+
+        for (int i = 0; i <= 2; i++) {
+            assertTrue(exists(partition(current.plusMonths(i))));
+        }
+        assertEquals(1, count(partition(current.plusMonths(1))));
+        assertEquals(0, count("checkpoints_default"));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "select count(*) from checkpoints where shipment_id = ?", Integer.class, shipmentId));
+    }
+
+    @Test
+    void maintain_withRetention_shouldDropPartitionsOfOlderMonths() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        YearMonth expired = current.minusMonths(4);
+        YearMonth kept = current.minusMonths(2);
+        for (YearMonth month : new YearMonth[]{expired, kept}) {
+            jdbcTemplate.execute("create table if not exists " + partition(month) + " partition of checkpoints for values from ('"
+                    + month.atDay(1).atStartOfDay() + "') to ('" + month.plusMonths(1).atDay(1).atStartOfDay() + "')");
+        }
+
+        new CheckpointPartitionMaintainer(jdbcTemplate, transactionTemplate, true, 0, 3).maintain(current);
+
+        assertFalse(exists(partition(expired)));
+        assertTrue(exists(partition(kept)));
+        assertTrue(exists("checkpoints_default"));
+    }
+
+    private UUID shipment() {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("""
+                insert into shipments (id, tracking_id, sender, receiver, receiver_street, receiver_city, current_status)
+                values (?, ?, 'Sender', 'Receiver', 'Musterstraße 1', 'Musterstadt', 1)
+                """, id, "PKG-" + id.toString().substring(0, 8).toUpperCase());
+        return id;
+    }
+
+    private boolean exists(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("select to_regclass(?) is not null", Boolean.class, table));
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Integer.class);
+    }
+
+    private static String partition(YearMonth month) {
+        return "checkpoints_" + month.format(SUFFIX);
+    }
+}
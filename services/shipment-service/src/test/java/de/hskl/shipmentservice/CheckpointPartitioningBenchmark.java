@@ -0,0 +1,170 @@
+package de.hskl.shipmentservice;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the unpartitioned checkpoints table (V1-V6) with the monthly partitioned one (V7): single-row insert
+ * latency, full and {@code since} timeline reads, and dropping the oldest month. The rows are spread evenly over
+ * {@value #MONTHS} months, each shipment gets {@value #CHECKPOINTS_PER_SHIPMENT} consecutive ones.
+ * <p>
+ * Run with {@code mvn test -Dtest=CheckpointPartitioningBenchmark -Dbenchmark=true [-Dbenchmark.rows=100000000]}.
+ * Loading 100M rows per table takes hours and tens of GB of disk; needs Docker.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Testcontainers(disabledWithoutDocker = true)
+public class CheckpointPartitioningBenchmark {
+    private static final long ROWS = Long.getLong("benchmark.rows", 100_000_000L);
+    private static final int MONTHS = 24;
+    private static final int CHECKPOINTS_PER_SHIPMENT = 50;
+    private static final int LOAD_CHUNK = 5_000_000;
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 20_000;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Container
+    static final PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:16-alpine")
+            .withCommand("postgres", "-c", "shared_buffers=1GB", "-c", "max_wal_size=8GB");
+
+    @Test
+    void partitionedVersusUnpartitioned() throws Exception {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword(), true);
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            createTables(jdbc);
+            load(jdbc, "checkpoints_plain");
+            load(jdbc, "checkpoints_part");
+            jdbc.execute("create index on checkpoints_plain (shipment_id, ts)");
+            jdbc.execute("create unique index on checkpoints_plain (event_id)");
+            jdbc.execute("create index on checkpoints_part (shipment_id, ts)");
+            jdbc.execute("create unique index on checkpoints_part (event_id, ts)");
+            jdbc.execute("vacuum analyze");
+
+            Connection connection = dataSource.getConnection();
+            System.out.printf("%,d rows per table, %d months%n", ROWS, MONTHS);
+            for (String table : new String[]{"checkpoints_plain", "checkpoints_part"}) {
+                System.out.printf("%n%s (%s)%n", table, jdbc.queryForObject(
+                        "select pg_size_pretty(sum(pg_total_relation_size(relid))) from pg_partition_tree(?::regclass)",
+                        String.class, table));
+                print("insert", measure(() -> insert(connection, table)));
+                print("timeline", measure(() -> timeline(connection, table, false)));
+                print("timeline since", measure(() -> timeline(connection, table, true)));
+            }
+
+            LocalDateTime oldestMonthEnd = START.plusMonths(1);
+            long deleteStart = System.nanoTime();
+            int deleted = jdbc.update("delete from checkpoints_plain where ts < ?", Timestamp.valueOf(oldestMonthEnd));
+            long deleteMillis = (System.nanoTime() - deleteStart) / 1_000_000;
+            long dropStart = System.nanoTime();
+            jdbc.execute("alter table checkpoints_part detach partition checkpoints_part_0");
+            jdbc.execute("drop table checkpoints_part_0");
+            long dropMillis = (System.nanoTime() - dropStart) / 1_000_000;
+            System.out.printf("%nretention of oldest month: delete %,d rows %,d ms, detach + drop %,d ms%n",
+                    deleted, deleteMillis, dropMillis);
+        } finally {
+            dataSource.destroy();
+        }
+    }
+
+    private void createTables(JdbcTemplate jdbc) {
+        String columns = """
+                id UUID NOT NULL, shipment_id UUID NOT NULL, ts TIMESTAMP NOT NULL, status VARCHAR(50),
+                message VARCHAR(500), lat DOUBLE PRECISION, lng DOUBLE PRECISION, event_id UUID
+                """;
+        jdbc.execute("create table checkpoints_plain (" + columns + ", primary key (id))");
+        jdbc.execute("create table checkpoints_part (" + columns + ", primary key (id, ts)) partition by range (ts)");
+        jdbc.execute("create table checkpoints_part_default partition of checkpoints_part default");
+        for (int i = 0; i < MONTHS; i++) {
+            jdbc.execute("create table checkpoints_part_" + i + " partition of checkpoints_part for values from ('"
+                    + START.plusMonths(i) + "') to ('" + START.plusMonths(i + 1) + "')");
+        }
+    }
+
+    private void load(JdbcTemplate jdbc, String table) {
+        long seconds = Duration.between(START, START.plusMonths(MONTHS)).toSeconds();
+        for (long from = 0; from < ROWS; from += LOAD_CHUNK) {
+            jdbc.update("insert into " + table + """
+                     (id, shipment_id, ts, status, lat, lng, event_id)
+                    select gen_random_uuid(), md5((i / ?)::text)::uuid,
+                           ?::timestamp + make_interval(secs => i * ?::double precision / ?),
+                           'IN_TRANSIT', 50.0, 8.0, gen_random_uuid()
+                    from generate_series(?::bigint, ?::bigint) i
+                    """, CHECKPOINTS_PER_SHIPMENT, Timestamp.valueOf(START), seconds, ROWS,
+                    from, Math.min(from + LOAD_CHUNK, ROWS) - 1);
+        }
+    }
+
+    private void insert(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("insert into " + table
+                + " (id, shipment_id, ts, status, lat, lng, event_id) values (?, ?, ?, 'IN_TRANSIT', 50.0, 8.0, ?)")) {
+            statement.setObject(1, UUID.randomUUID());
+            statement.setObject(2, UUID.randomUUID());
+            statement.setTimestamp(3, Timestamp.valueOf(START.plusMonths(MONTHS).minusDays(1)));
+            statement.setObject(4, UUID.randomUUID());
+            statement.executeUpdate();
+        }
+    }
+
+    private void timeline(Connection connection, String table, boolean since) throws SQLException {
+        long shipment = ThreadLocalRandom.current().nextLong(ROWS / CHECKPOINTS_PER_SHIPMENT);
+        long seconds = Duration.between(START, START.plusMonths(MONTHS)).toSeconds();
+        LocalDateTime first = START.plusSeconds(shipment * CHECKPOINTS_PER_SHIPMENT * seconds / ROWS);
+        String sql = "select * from " + table + " where shipment_id = md5(?)::uuid"
+                + (since ? " and ts > ?" : "") + " order by ts";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, String.valueOf(shipment));
+            if (since) {
+                statement.setTimestamp(2, Timestamp.valueOf(first));
+            }
+            int rows = 0;
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    rows++;
+                }
+            }
+            assertTrue(rows > 0 && rows <= CHECKPOINTS_PER_SHIPMENT, sql);
+        }
+    }
+
+    private long[] measure(Operation operation) throws SQLException {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        long[] nanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private void print(String operation, long[] nanos) {
+        System.out.printf("  %-15s p50 %,8d us   p99 %,8d us%n", operation,
+                nanos[nanos.length / 2] / 1000, nanos[nanos.length * 99 / 100] / 1000);
+    }
+
+    private interface Operation {
+        void run() throws SQLException;
+    }
+}
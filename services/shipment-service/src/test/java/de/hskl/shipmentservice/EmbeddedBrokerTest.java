@@ -0,0 +1,92 @@
+package de.hskl.shipmentservice;
+
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import de.hskl.shipmentservice.PubSub.EmbeddedBroker;
+import de.hskl.shipmentservice.PubSub.IngestMode;
+import de.hskl.shipmentservice.config.PubSubSubscriberProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmbeddedBrokerTest {
+    private EmbeddedBroker broker;
+
+    @AfterEach
+    void tearDown() {
+        broker.shutdown();
+    }
+
+    @Test
+    void publish_shouldDeliverUntilAcked() throws Exception {
+        broker = broker(10, 10, 600_000);
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(3);
+        broker.subscribe("test-sub", message -> {
+            received.add(message.getPubsubMessage().getData().toStringUtf8());
+            delivered.countDown();
+            if (delivered.getCount() == 2) {
+                message.nack();
+            } else {
+                message.ack();
+            }
+        });
+
+        broker.publish("test-topic", "first".getBytes());
+        broker.publish("test-topic", "second".getBytes());
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("first", "first", "second"), received);
+    }
+
+    @Test
+    void publish_whenFull_shouldRejectUntilMessagesAreAcked() throws Exception {
+        broker = broker(1, 10, 600_000);
+
+        broker.publish("test-topic", "first".getBytes());
+
+        assertThrows(IllegalStateException.class, () -> broker.publish("test-topic", "second".getBytes()));
+        assertThrows(IllegalArgumentException.class, () -> broker.publish("other-topic", "third".getBytes()));
+    }
+
+    @Test
+    void subscribe_shouldRespectMaxOutstandingMessages() throws Exception {
+        broker = broker(10, 1, 600_000);
+        List<BasicAcknowledgeablePubsubMessage> held = new CopyOnWriteArrayList<>();
+        broker.subscribe("test-sub", held::add);
+
+        broker.publish("test-topic", "first".getBytes());
+        broker.publish("test-topic", "second".getBytes());
+        Thread.sleep(200);
+
+        assertEquals(1, held.size());
+        assertEquals(1, broker.backlog());
+        held.getFirst().ack();
+        Thread.sleep(200);
+        assertEquals(2, held.size());
+    }
+
+    @Test
+    void subscribe_shouldRedeliverAfterAckDeadline() throws Exception {
+        broker = broker(10, 10, 100);
+        CountDownLatch delivered = new CountDownLatch(2);
+        broker.subscribe("test-sub", message -> delivered.countDown());
+
+        broker.publish("test-topic", "never acked".getBytes());
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+    }
+
+    private EmbeddedBroker broker(int capacity, long maxOutstanding, long ackDeadlineMs) {
+        PubSubSubscriberProperties properties = new PubSubSubscriberProperties(
+                "test-sub", IngestMode.INLINE, null, null,
+                new PubSubSubscriberProperties.FlowControl(maxOutstanding, 1_000_000), 1, 1, null);
+        return new EmbeddedBroker(properties, new SimpleMeterRegistry(), "test-topic", capacity, ackDeadlineMs, 10);
+    }
+}
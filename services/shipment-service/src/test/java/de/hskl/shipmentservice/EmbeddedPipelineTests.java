@@ -0,0 +1,43 @@
+package de.hskl.shipmentservice;
+
+import de.hskl.shipmentservice.PubSub.EmbeddedBroker;
+import de.hskl.shipmentservice.dto.CreateShipmentDto;
+import de.hskl.shipmentservice.dto.ShipmentDetailDto;
+import de.hskl.shipmentservice.repository.CheckpointRepository;
+import de.hskl.shipmentservice.service.ShipmentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles({"test", "embedded"})
+class EmbeddedPipelineTests {
+    @Autowired
+    private EmbeddedBroker broker;
+    @Autowired
+    private ShipmentService shipmentService;
+    @Autowired
+    private CheckpointRepository checkpointRepository;
+
+    @Test
+    void publishedTrackingUpdate_shouldBeAppliedWithoutPubSub() throws Exception {
+        ShipmentDetailDto shipment = shipmentService.createShipment(new CreateShipmentDto(
+                "Sender", "Receiver", "Musterstraße 1", "Musterstadt", Instant.now().plusSeconds(86_400)), "user-123");
+
+        broker.publish("tracking-updates",
+                ("{\"shipmentId\":\"" + shipment.id() + "\",\"status\":\"IN_TRANSIT\",\"message\":\"Scanned\"}").getBytes());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (checkpointRepository.findByShipmentIdInOrderByTimestampAsc(List.of(shipment.id())).size() < 2
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals("IN_TRANSIT", shipmentService.getShipment(shipment.id(), "user-123", false).currentStatus());
+    }
+}
@@ -0,0 +1,239 @@
+package de.hskl.shipmentservice;
+
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.pubsub.v1.PubsubMessage;
+import de.hskl.shipmentservice.PubSub.IngestMode;
+import de.hskl.shipmentservice.PubSub.PartitionedIngestExecutor;
+import de.hskl.shipmentservice.PubSub.TrackingMessageProcessor;
+import de.hskl.shipmentservice.PubSub.TrackingUpdateCodec;
+import de.hskl.shipmentservice.config.PubSubSubscriberProperties;
+import de.hskl.shipmentservice.entity.TrackingUpdate;
+import de.hskl.shipmentservice.service.QuarantineService;
+import de.hskl.shipmentservice.service.ShipmentService;
+import de.hskl.shipmentservice.service.TrackingEventDeduplicator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PartitionedIngestExecutorTest {
+    @Mock
+    private ShipmentService shipmentService;
+    @Mock
+    private QuarantineService quarantineService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PartitionedIngestExecutor executor;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        executor.stop();
+    }
+
+    @Test
+    void submit_shouldApplyUpdatesOfOneShipmentInOrder() throws Exception {
+        executor = start(4, 100);
+        List<UUID> shipments = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        Map<UUID, List<String>> applied = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(shipments.size() * 50);
+
+        doAnswer(invocation -> {
+            TrackingUpdate update = invocation.getArgument(0);
+            applied.computeIfAbsent(update.getShipmentId(), id -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(update.getMessage());
+            done.countDown();
+            return null;
+        }).when(shipmentService).updateShipment(any());
+
+        for (int i = 0; i < 50; i++) {
+            for (UUID shipmentId : shipments) {
+                executor.submit(update(shipmentId, String.valueOf(i)), message());
+            }
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (UUID shipmentId : shipments) {
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                expected.add(String.valueOf(i));
+            }
+            assertEquals(expected, applied.get(shipmentId));
+        }
+    }
+
+    @Test
+    void submit_shouldRetryFailingUpdateOnItsLaneAndQuarantineItAfterMaxAttempts() {
+        executor = start(2, 10);
+        UUID failing = UUID.randomUUID();
+        lenient().doThrow(new RuntimeException("DB down")).when(shipmentService).updateShipment(argThat(update -> failing.equals(update.getShipmentId())));
+        BasicAcknowledgeablePubsubMessage ok = message();
+        BasicAcknowledgeablePubsubMessage failed = message();
+
+        executor.submit(update(UUID.randomUUID(), "ok"), ok);
+        executor.submit(update(failing, "failed"), failed);
+
+        verify(ok, timeout(1000)).ack();
+        verify(quarantineService, timeout(1000)).quarantine(any(), any(), any(), any(), eq(5));
+        verify(failed, timeout(1000)).ack();
+        verify(failed, never()).nack();
+        verify(shipmentService, times(5)).updateShipment(argThat(update -> failing.equals(update.getShipmentId())));
+    }
+
+    @Test
+    void submit_whenUpdateFailsRetryably_shouldHoldBackLaterUpdatesOfItsShipment() throws Exception {
+        executor = start(1, 10);
+        UUID shipmentId = UUID.randomUUID();
+        List<String> attempted = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+        doAnswer(invocation -> {
+            String message = invocation.<TrackingUpdate>getArgument(0).getMessage();
+            attempted.add(message);
+            done.countDown();
+            if ("1".equals(message) && attempted.size() == 1) {
+                throw new QueryTimeoutException("DB busy");
+            }
+            return null;
+        }).when(shipmentService).updateShipment(any());
+        BasicAcknowledgeablePubsubMessage first = message();
+        BasicAcknowledgeablePubsubMessage second = message();
+
+        executor.submit(update(shipmentId, "1"), first);
+        executor.submit(update(shipmentId, "2"), second);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("1", "1", "2"), attempted);
+        verify(first, timeout(1000)).ack();
+        verify(second, timeout(1000)).ack();
+        verify(first, never()).nack();
+    }
+
+    @Test
+    void submit_shouldLetStatusChangesOvertakePositionUpdatesOfOtherShipments() throws Exception {
+        executor = create(1, 100, 0);
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(5);
+        doAnswer(invocation -> {
+            applied.add(invocation.<TrackingUpdate>getArgument(0).getMessage());
+            done.countDown();
+            return null;
+        }).when(shipmentService).updateShipment(any());
+
+        executor.submit(update(a, "IN_TRANSIT", "a1"), message());
+        executor.submit(update(b, "IN_TRANSIT", "b1"), message());
+        executor.submit(update(a, "IN_TRANSIT", "a2"), message());
+        executor.submit(update(b, "IN_TRANSIT", "b2"), message());
+        executor.submit(update(a, "DELIVERED", "a3"), message());
+        executor.start();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a1", "b1", "a2", "a3", "b2"), applied);
+        assertEquals(3.0, meterRegistry.get("shipment.ingest.updates").tag("priority", "high").counter().count());
+    }
+
+    @Test
+    void submit_shouldCoalescePositionUpdatesUnderBacklog() {
+        executor = create(1, 100, 3);
+        UUID shipmentId = UUID.randomUUID();
+        when(shipmentService.applyTrackingUpdates(anyList())).thenReturn(Set.of());
+        List<BasicAcknowledgeablePubsubMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            BasicAcknowledgeablePubsubMessage message = message();
+            messages.add(message);
+            executor.submit(update(shipmentId, String.valueOf(i)), message);
+        }
+        executor.start();
+
+        verify(shipmentService, timeout(1000)).updateShipment(argThat(update -> "0".equals(update.getMessage())));
+        verify(shipmentService, timeout(1000)).applyTrackingUpdates(argThat(updates -> updates.size() == 4));
+        messages.forEach(message -> verify(message, timeout(1000)).ack());
+        assertEquals(4.0, meterRegistry.get("shipment.ingest.coalesced").counter().count());
+    }
+
+    @Test
+    void laneOf_shouldBeStablePerShipment() {
+        executor = start(8, 10);
+        UUID shipmentId = UUID.randomUUID();
+
+        int lane = executor.laneOf(shipmentId);
+
+        assertEquals(lane, executor.laneOf(UUID.fromString(shipmentId.toString())));
+        assertTrue(lane >= 0 && lane < 8);
+    }
+
+    @Test
+    void constructor_shouldRegisterBacklogGaugePerLane() {
+        executor = start(3, 10);
+
+        assertEquals(3, meterRegistry.get("shipment.ingest.lane.backlog").gauges().size());
+        assertEquals(0.0, meterRegistry.get("shipment.ingest.lane.backlog").tag("lane", "2").gauge().value());
+    }
+
+    @Test
+    void backlogGauge_shouldCountQueuedUpdates() {
+        executor = create(1, 10, 0);
+        for (int i = 0; i < 3; i++) {
+            executor.submit(update(UUID.randomUUID(), String.valueOf(i)), message());
+        }
+
+        assertEquals(3.0, meterRegistry.get("shipment.ingest.lane.backlog").tag("lane", "0").gauge().value());
+
+        executor.start();
+        verify(shipmentService, timeout(1000).times(3)).updateShipment(any());
+        assertEquals(0.0, meterRegistry.get("shipment.ingest.lane.backlog").tag("lane", "0").gauge().value());
+    }
+
+    private PartitionedIngestExecutor start(int lanes, int queueDepth) {
+        PartitionedIngestExecutor started = create(lanes, queueDepth, 0);
+        started.start();
+        return started;
+    }
+
+    private PartitionedIngestExecutor create(int lanes, int queueDepth, int coalesceThreshold) {
+        PubSubSubscriberProperties properties = new PubSubSubscriberProperties(
+                "test-sub", IngestMode.PARTITIONED, null,
+                new PubSubSubscriberProperties.Partitions(lanes, queueDepth, coalesceThreshold, 10), null, 1, 1,
+                new PubSubSubscriberProperties.Retry(5, 10, 100));
+        TrackingMessageProcessor processor = new TrackingMessageProcessor(
+                shipmentService, new TrackingUpdateCodec(), quarantineService,
+                new TrackingEventDeduplicator(meterRegistry, 1000), properties);
+        return new PartitionedIngestExecutor(processor, meterRegistry, properties);
+    }
+
+    private BasicAcknowledgeablePubsubMessage message() {
+        BasicAcknowledgeablePubsubMessage message = mock(BasicAcknowledgeablePubsubMessage.class);
+        lenient().when(message.getPubsubMessage()).thenReturn(PubsubMessage.newBuilder()
+                .setMessageId(UUID.randomUUID().toString())
+                .build());
+        return message;
+    }
+
+    private TrackingUpdate update(UUID shipmentId, String message) {
+        return update(shipmentId, "IN_TRANSIT", message);
+    }
+
+    private TrackingUpdate update(UUID shipmentId, String status, String message) {
+        TrackingUpdate update = new TrackingUpdate();
+        update.setShipmentId(shipmentId);
+        update.setStatus(status);
+        update.setMessage(message);
+        return update;
+    }
+}
@@ -2,41 +2,55 @@ package de.hskl.shipmentservice;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import de.hskl.shipmentservice.PubSub.TrackingMessageProcessor;
+import de.hskl.shipmentservice.PubSub.TrackingUpdateCodec;
+import de.hskl.shipmentservice.config.PubSubSubscriberConfig;
 import de.hskl.shipmentservice.controller.PubSubPushController;
+import de.hskl.shipmentservice.entity.TrackingUpdate;
+import de.hskl.shipmentservice.service.QuarantineService;
 import de.hskl.shipmentservice.service.ShipmentService;
+import de.hskl.shipmentservice.service.TrackingEventDeduplicator;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Instant;
 import java.util.Base64;
 import java.util.Map;
 import java.util.UUID;
 
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(PubSubPushController.class)
+@Import({TrackingUpdateCodec.class, TrackingMessageProcessor.class, PubSubSubscriberConfig.class})
 @ActiveProfiles("prod")
 public class PubSubPushControllerTest {
     @Autowired
     private MockMvc mockMvc;
     @MockitoBean
     private ShipmentService shipmentService;
+    @MockitoBean
+    private QuarantineService quarantineService;
+    @MockitoBean
+    private TrackingEventDeduplicator deduplicator;
 
     private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
 
     @Test
     void receivePushMessage_shouldProcessValidMessage() throws Exception {
+        UUID shipmentId = UUID.randomUUID();
         String trackingPayload = objectMapper.writeValueAsString(Map.of(
-                "shipmentId", UUID.randomUUID().toString(),
+                "shipmentId", shipmentId.toString(),
                 "status", "IN_TRANSIT",
                 "message", "Package scanned",
                 "lat", 50.0,
@@ -54,7 +68,7 @@ public class PubSubPushControllerTest {
                 "subscription", "projects/test/subscriptions/tracking-updates-sub"
         ));
 
-        doNothing().when(shipmentService).updateShipment(anyString());
+        doNothing().when(shipmentService).updateShipment(any(TrackingUpdate.class));
 
         mockMvc.perform(post("/pubsub/push")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -62,7 +76,9 @@ public class PubSubPushControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("Message processed"));
 
-        verify(shipmentService, times(1)).updateShipment(anyString());
+        verify(shipmentService, times(1)).updateShipment(argThat(update ->
+                shipmentId.equals(update.getShipmentId()) && "IN_TRANSIT".equals(update.getStatus())
+                        && Instant.parse("2026-01-01T00:00:00Z").equals(update.getTimestamp())));
     }
 
     @Test
@@ -75,27 +91,41 @@ public class PubSubPushControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("Invalid message format"));
 
-        verify(shipmentService, never()).updateShipment(anyString());
+        verify(shipmentService, never()).updateShipment(any(TrackingUpdate.class));
     }
 
     @Test
-    void receivePushMessage_whenProcessingFails_shouldReturn500() throws Exception {
+    void receivePushMessage_withUnreadablePayload_shouldQuarantineAndAck() throws Exception {
         String trackingPayload = "{ \"shipmentId\": \"invalid-uuid\" }";
-        String encodedPayload = Base64.getEncoder().encodeToString(trackingPayload.getBytes());
 
-        String pushMessage = objectMapper.writeValueAsString(Map.of(
-                "message", Map.of(
-                        "data", encodedPayload,
-                        "messageId", "12345"
-                )
-        ));
+        mockMvc.perform(post("/pubsub/push")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(pushMessage(trackingPayload)))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Message quarantined"));
 
-        doThrow(new com.fasterxml.jackson.core.JsonProcessingException("Parse error") {})
-                .when(shipmentService).updateShipment(anyString());
+        verify(shipmentService, never()).updateShipment(any(TrackingUpdate.class));
+        verify(quarantineService).quarantine(eq("12345"), any(), eq(trackingPayload.getBytes()), any(), eq(1));
+    }
+
+    @Test
+    void receivePushMessage_whenProcessingFails_shouldReturn500() throws Exception {
+        doThrow(new QueryTimeoutException("DB busy")).when(shipmentService).updateShipment(any(TrackingUpdate.class));
 
         mockMvc.perform(post("/pubsub/push")
                         .contentType(MediaType.APPLICATION_JSON)
-                        .content(pushMessage))
+                        .content(pushMessage("{ \"shipmentId\": \"" + UUID.randomUUID() + "\" }")))
                 .andExpect(status().isInternalServerError());
+
+        verify(quarantineService, never()).quarantine(any(), any(), any(), any(), anyInt());
+    }
+
+    private String pushMessage(String trackingPayload) throws Exception {
+        return objectMapper.writeValueAsString(Map.of(
+                "message", Map.of(
+                        "data", Base64.getEncoder().encodeToString(trackingPayload.getBytes()),
+                        "messageId", "12345"
+                )
+        ));
     }
 }
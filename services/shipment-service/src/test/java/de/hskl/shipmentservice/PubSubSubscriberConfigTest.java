@@ -0,0 +1,55 @@
+package de.hskl.shipmentservice;
+
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.core.InstantiatingExecutorProvider;
+import com.google.cloud.spring.pubsub.core.PubSubConfiguration;
+import com.google.cloud.spring.pubsub.support.DefaultSubscriberFactory;
+import de.hskl.shipmentservice.PubSub.IngestMode;
+import de.hskl.shipmentservice.config.PubSubSubscriberConfig;
+import de.hskl.shipmentservice.config.PubSubSubscriberEndpoint;
+import de.hskl.shipmentservice.config.PubSubSubscriberProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PubSubSubscriberConfigTest {
+    private final PubSubSubscriberProperties properties = new PubSubSubscriberProperties(
+            "tracking-updates-sub",
+            IngestMode.PARTITIONED,
+            new PubSubSubscriberProperties.Batch(200, 50),
+            new PubSubSubscriberProperties.Partitions(6, 500, 100, 200),
+            new PubSubSubscriberProperties.FlowControl(5000, 50_000_000),
+            3,
+            8,
+            new PubSubSubscriberProperties.Retry(5, 1000, 60000)
+    );
+
+    @Test
+    void apply_shouldOverrideSubscriberFactorySettings() {
+        PubSubConfiguration pubSubConfiguration = new PubSubConfiguration();
+        pubSubConfiguration.initialize("test-project");
+        DefaultSubscriberFactory factory = new DefaultSubscriberFactory(() -> "test-project", pubSubConfiguration);
+
+        PubSubSubscriberConfig.apply(factory, properties);
+
+        FlowControlSettings flowControl = factory.getFlowControlSettings("tracking-updates-sub");
+        assertEquals(5000L, flowControl.getMaxOutstandingElementCount());
+        assertEquals(50_000_000L, flowControl.getMaxOutstandingRequestBytes());
+        InstantiatingExecutorProvider executorProvider =
+                (InstantiatingExecutorProvider) factory.getExecutorProvider("tracking-updates-sub");
+        assertEquals(8, executorProvider.getExecutorThreadCount());
+    }
+
+    @Test
+    void endpoint_shouldReportEffectiveSettings() {
+        Map<String, Object> settings = new PubSubSubscriberEndpoint(properties).settings();
+
+        assertEquals("tracking-updates-sub", settings.get("subscription"));
+        assertEquals(IngestMode.PARTITIONED, settings.get("ingestMode"));
+        assertEquals(3, settings.get("parallelPullCount"));
+        assertEquals(Map.of("lanes", 6, "queueDepth", 500, "coalesceThreshold", 100, "coalesceMaxSize", 200),
+                settings.get("partitions"));
+    }
+}
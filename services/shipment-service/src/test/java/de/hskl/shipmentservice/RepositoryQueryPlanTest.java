@@ -0,0 +1,256 @@
+package de.hskl.shipmentservice;
+
+import de.hskl.shipmentservice.repository.CheckpointArchiveRepository;
+import de.hskl.shipmentservice.repository.CheckpointRepository;
+import de.hskl.shipmentservice.repository.QuarantinedMessageRepository;
+import de.hskl.shipmentservice.repository.ShipmentRepository;
+import de.hskl.shipmentservice.repository.TrackingViewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs EXPLAIN for the SQL behind every repository query against a Postgres with the Flyway schema and
+ * a few hundred thousand seeded rows, and fails if one of them falls back to a sequential scan of a
+ * non-empty table.
+ * A new query method has to be added to {@link #QUERIES} (or {@link #EXEMPT} with a reason).
+ * Needs Docker, skipped otherwise.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=none"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+public class RepositoryQueryPlanTest {
+    private static final int SHIPMENTS = 200_000;
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:16-alpine");
+
+    private static final Map<String, String> QUERIES = Map.ofEntries(
+            Map.entry("ShipmentRepository.findPageByCreatedAt", """
+                    select id, tracking_id, sender, receiver, current_status, expected_delivery, created_at, updated_at
+                    from shipments where owner_user_id = 'user-42' and (created_at, id) < (now(), md5('42')::uuid)
+                    order by created_at desc, id desc fetch first 51 rows only
+                    """),
+            Map.entry("ShipmentRepository.findPageByCreatedAtAndStatus", """
+                    select id, tracking_id, sender, receiver, current_status, expected_delivery, created_at, updated_at
+                    from shipments where owner_user_id = 'user-42' and current_status = 3
+                      and (created_at, id) < (now(), md5('42')::uuid)
+                    order by created_at desc, id desc fetch first 51 rows only
+                    """),
+            Map.entry("ShipmentRepository.findPageByUpdatedAt", """
+                    select id, tracking_id, sender, receiver, current_status, expected_delivery, created_at, updated_at
+                    from shipments where owner_user_id = 'user-42' and (updated_at, id) < (now(), md5('42')::uuid)
+                    order by updated_at desc, id desc fetch first 51 rows only
+                    """),
+            Map.entry("ShipmentRepository.findPageByUpdatedAtAndStatus", """
+                    select id, tracking_id, sender, receiver, current_status, expected_delivery, created_at, updated_at
+                    from shipments where owner_user_id = 'user-42' and current_status = 3
+                      and (updated_at, id) < (now(), md5('42')::uuid)
+                    order by updated_at desc, id desc fetch first 51 rows only
+                    """),
+            Map.entry("ShipmentRepository.findByTrackingId",
+                    "select * from shipments where tracking_id = 'PKG-00004242'"),
+            Map.entry("ShipmentRepository.existsByTrackingId",
+                    "select id from shipments where tracking_id = 'PKG-00004242' fetch first 1 rows only"),
+            Map.entry("ShipmentRepository.findByTrackingIdIn",
+                    "select * from shipments where tracking_id in ('PKG-00004242', 'PKG-00004343')"),
+            Map.entry("ShipmentRepository.findIdByTrackingId",
+                    "select id from shipments where tracking_id = 'PKG-00004242'"),
+            Map.entry("ShipmentRepository.findUpdatedAtByTrackingId",
+                    """
+                    select greatest(s.updated_at, coalesce(v.updated_at, s.updated_at))
+                    from shipments s left join tracking_views v on v.shipment_id = s.id
+                    where s.tracking_id = 'PKG-00004242'
+                    """),
+            Map.entry("ShipmentRepository.findCreatedAtById",
+                    "select created_at from shipments where id = md5('42')::uuid"),
+            Map.entry("ShipmentRepository.findVersionById",
+                    """
+                    select s.owner_user_id, greatest(s.updated_at, coalesce(v.updated_at, s.updated_at))
+                    from shipments s left join tracking_views v on v.shipment_id = s.id
+                    where s.id = md5('42')::uuid
+                    """),
+            Map.entry("ShipmentRepository.findLatestUpdateByOwner",
+                    "select max(updated_at) from shipments where owner_user_id = 'user-42'"),
+            Map.entry("ShipmentRepository.touch",
+                    "update shipments set updated_at = now() where id = md5('42')::uuid"),
+            Map.entry("ShipmentRepository.lockForCheckpoint",
+                    "select id from shipments where id = md5('42')::uuid for no key update"),
+            Map.entry("ShipmentRepository.findByIdInAndUpdatedAtAfter",
+                    "select * from shipments where id in (md5('42')::uuid, md5('43')::uuid) and updated_at > now() - interval '10 seconds'"),
+            Map.entry("ShipmentRepository.findExistingIds",
+                    "select id from shipments where id in (md5('42')::uuid, md5('43')::uuid)"),
+            Map.entry("ShipmentRepository.streamTrackingIdsCreatedSince",
+                    "select tracking_id from shipments where created_at >= now() - interval '1 minute'"),
+            Map.entry("ShipmentRepository.applyTrackingUpdate", """
+                    update shipments set current_status = 5, last_lat = 50.0, last_lng = 8.0,
+                        last_event_at = now(), updated_at = now()
+                    where id = md5('42')::uuid and (last_event_at is null or last_event_at <= now())
+                    """),
+            Map.entry("ShipmentRepository.lockArchivable", """
+                    select * from shipments
+                    where current_status = 5 and timeline_archived_at is null
+                      and last_event_at < now() - interval '30 days'
+                    order by last_event_at limit 200 for update skip locked
+                    """),
+            Map.entry("ShipmentRepository.lockPage",
+                    "select * from shipments where id > md5('42')::uuid order by id limit 500 for update"),
+            Map.entry("ShipmentRepository.markTimelineArchived",
+                    "update shipments set timeline_archived_at = now() where id in (md5('42')::uuid, md5('43')::uuid)"),
+            Map.entry("CheckpointRepository.findByShipmentIdAndTimestampGreaterThanEqualOrderByTimestampAsc",
+                    "select * from checkpoints where shipment_id = md5('42')::uuid and ts >= now() - interval '1 day' order by ts"),
+            Map.entry("CheckpointRepository.findFirstByShipmentIdOrderByTimestampDesc",
+                    "select * from checkpoints where shipment_id = md5('42')::uuid order by ts desc fetch first 1 rows only"),
+            Map.entry("CheckpointRepository.findByShipmentIdAndTimestampGreaterThanEqualAndIdGreaterThanOrderByIdAsc", """
+                    select * from checkpoints
+                    where shipment_id = md5('42')::uuid and ts >= now() - interval '1 day' and id > md5('c42')::uuid
+                    order by id
+                    """),
+            Map.entry("CheckpointRepository.findByShipmentIdInOrderByTimestampAsc",
+                    "select * from checkpoints where shipment_id in (md5('42')::uuid, md5('43')::uuid) order by ts"),
+            Map.entry("CheckpointRepository.findLatestByShipmentIdIn", """
+                    select id, shipment_id, ts, status, message, message_code, lat, lng, event_id
+                    from (select c.*, row_number() over (partition by c.shipment_id order by c.ts desc) as rn
+                          from checkpoints c where c.shipment_id in (md5('42')::uuid, md5('43')::uuid)) ranked
+                    where rn <= 3 order by shipment_id, ts
+                    """),
+            Map.entry("CheckpointRepository.existsByEventId",
+                    "select id from checkpoints where event_id = md5('e42')::uuid fetch first 1 rows only"),
+            Map.entry("CheckpointRepository.deleteByShipmentIdIn",
+                    "delete from checkpoints where shipment_id in (md5('42')::uuid, md5('43')::uuid)"),
+            Map.entry("TrackingViewRepository.findByTrackingId",
+                    "select * from tracking_views where tracking_id = 'PKG-00004242'"),
+            Map.entry("TrackingViewRepository.lockByShipmentIdIn", """
+                    select * from tracking_views where shipment_id in (md5('42')::uuid, md5('43')::uuid)
+                    order by shipment_id for update
+                    """),
+            Map.entry("QuarantinedMessageRepository.findFirstByMessageId",
+                    "select * from quarantined_messages where message_id = '42' fetch first 1 rows only")
+    );
+
+    private static final Map<String, String> EXEMPT = Map.of(
+            "QuarantinedMessageRepository.findAllByOrderByQuarantinedAtAsc",
+            "admin listing, reads the oldest entries of a table that is emptied by replay"
+    );
+
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+
+    private static boolean seeded;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        if (seeded) {
+            return;
+        }
+        jdbcTemplate.update("""
+                insert into shipments (id, tracking_id, owner_user_id, sender, receiver, receiver_street, receiver_city,
+                                       current_status, created_at, updated_at, last_event_at)
+                select md5(i::text)::uuid, 'PKG-' || lpad(i::text, 8, '0'), 'user-' || (i % 2000), 'Sender',
+                       'Receiver', 'Musterstraße 1', 'Musterstadt', 3,
+                       now() - make_interval(secs => i), now(), now()
+                from generate_series(1, ?) i
+                """, SHIPMENTS);
+        jdbcTemplate.update("""
+                insert into checkpoints (id, shipment_id, ts, status, event_id)
+                select md5('c' || i)::uuid, md5((i % ? + 1)::text)::uuid, now() - make_interval(secs => i),
+                       3, md5('e' || i)::uuid
+                from generate_series(1, ?) i
+                """, SHIPMENTS, SHIPMENTS * 2);
+        jdbcTemplate.update("""
+                insert into tracking_views (shipment_id, tracking_id, status, checkpoint_count, timeline, updated_at)
+                select id, tracking_id, current_status, 2, '[]'::bytea, updated_at
+                from shipments
+                """);
+        jdbcTemplate.update("""
+                insert into quarantined_messages (id, message_id, error, attempts)
+                select md5('q' || i)::uuid, i::text, 'poison', 1
+                from generate_series(1, 20000) i
+                """);
+        jdbcTemplate.execute("analyze");
+        seeded = true;
+    }
+
+    @Test
+    void repositoryQueries_shouldNotScanWholeTables() {
+        List<String> seqScans = new ArrayList<>();
+        QUERIES.forEach((query, sql) -> {
+            String plan = jdbcTemplate.queryForList("explain " + sql, String.class).stream()
+                    .collect(Collectors.joining("\n"));
+            if (scansNonEmptyRelation(plan)) {
+                seqScans.add(query + ":\n" + plan);
+            }
+        });
+
+        assertTrue(seqScans.isEmpty(), () -> "Sequential scans:\n" + String.join("\n\n", seqScans));
+    }
+
+    @Test
+    void checkpointQueriesWithTimeRange_shouldPrunePartitions() {
+        jdbcTemplate.execute("""
+                create table checkpoints_2000_01 partition of checkpoints
+                for values from ('2000-01-01') to ('2000-02-01')
+                """);
+        try {
+            for (String query : List.of("CheckpointRepository.findByShipmentIdAndTimestampGreaterThanEqualOrderByTimestampAsc",
+                    "CheckpointRepository.findByShipmentIdAndTimestampGreaterThanEqualAndIdGreaterThanOrderByIdAsc")) {
+                String plan = String.join("\n", jdbcTemplate.queryForList("explain " + QUERIES.get(query), String.class));
+
+                assertFalse(plan.contains("checkpoints_2000_01"), query + ":\n" + plan);
+            }
+        } finally {
+            jdbcTemplate.execute("drop table checkpoints_2000_01");
+        }
+    }
+
+    @Test
+    void everyRepositoryQuery_shouldHaveAPlanCheck() {
+        Set<String> declared = Stream.of(ShipmentRepository.class, CheckpointRepository.class, CheckpointArchiveRepository.class,
+                        QuarantinedMessageRepository.class, TrackingViewRepository.class)
+                .flatMap(repository -> Arrays.stream(repository.getDeclaredMethods()))
+                .map(method -> method.getDeclaringClass().getSimpleName() + "." + method.getName())
+                .collect(Collectors.toCollection(TreeSet::new));
+        Set<String> checked = new TreeSet<>(QUERIES.keySet());
+        checked.addAll(EXEMPT.keySet());
+
+        assertEquals(declared, checked);
+    }
+
+    /**
+     * A sequential scan of an empty table, e.g. a checkpoint partition of an upcoming month, costs nothing.
+     */
+    private boolean scansNonEmptyRelation(String plan) {
+        Matcher matcher = SEQ_SCAN.matcher(plan);
+        while (matcher.find()) {
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "select exists (select 1 from " + matcher.group(1) + ")", Boolean.class))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -5,7 +5,11 @@ import de.hskl.shipmentservice.controller.ShipmentController;
 import de.hskl.shipmentservice.dto.CreateShipmentDto;
 import de.hskl.shipmentservice.dto.ShipmentDetailDto;
 import de.hskl.shipmentservice.dto.ShipmentListItemDto;
+import de.hskl.shipmentservice.dto.ShipmentPageDto;
+import de.hskl.shipmentservice.dto.ShipmentTrackingDto;
+import de.hskl.shipmentservice.dto.ShipmentView;
 import de.hskl.shipmentservice.exceptions.GlobalExceptionHandler;
+import de.hskl.shipmentservice.service.ShipmentExportService;
 import de.hskl.shipmentservice.service.ShipmentService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,15 +18,21 @@ import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.OutputStream;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.*;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -38,6 +48,9 @@ public class ShipmentControllerTest {
     @MockitoBean
     private ShipmentService shipmentService;
 
+    @MockitoBean
+    private ShipmentExportService shipmentExportService;
+
     private CreateShipmentDto testCreateDto;
     private ShipmentDetailDto testDetailDto;
     private UUID testShipmentId;
@@ -47,9 +60,11 @@ public class ShipmentControllerTest {
 
     private static final String TEST_USER_ID = "test-user-123";
     private static final String TEST_ROLE = "SENDER";
+    private static final Instant VERSION = Instant.parse("2026-03-01T10:00:00.123456Z");
 
     @BeforeEach
     void setUp() {
+        when(shipmentService.getListVersion(anyString())).thenReturn(VERSION);
         testShipmentId = UUID.randomUUID();
 
         testCreateDto = new CreateShipmentDto(
@@ -71,6 +86,7 @@ public class ShipmentControllerTest {
                 testCreateDto.expectedDelivery(),
                 null,
                 null,
+                Instant.now(),
                 List.of()
         );
     }
@@ -94,21 +110,108 @@ public class ShipmentControllerTest {
 
     @Test
     void getShipment_whenExists_shouldReturnOk() throws Exception {
-        when(shipmentService.getShipment(eq(testShipmentId), anyString(), anyBoolean())).thenReturn(testDetailDto);
+        when(shipmentService.getShipmentVersion(eq(testShipmentId), anyString(), anyBoolean())).thenReturn(VERSION);
+        when(shipmentService.getShipment(eq(testShipmentId), anyString(), anyBoolean(), eq(ShipmentView.FULL), any())).thenReturn(testDetailDto);
 
         mockMvc.perform(get("/" + testShipmentId)
                         .header(USER_ID_HEADER, TEST_USER_ID)
                         .header(USER_ROLE_HEADER, TEST_ROLE)
                 )
                 .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
                 .andExpect(jsonPath("$.id").value(testShipmentId.toString()))
                 .andExpect(jsonPath("$.sender").value("Test Sender"));
     }
 
+    @Test
+    void getShipment_withCurrentEtag_shouldReturn304WithoutLoading() throws Exception {
+        when(shipmentService.getShipmentVersion(eq(testShipmentId), anyString(), anyBoolean())).thenReturn(VERSION);
+        when(shipmentService.getShipment(eq(testShipmentId), anyString(), anyBoolean(), eq(ShipmentView.FULL), any())).thenReturn(testDetailDto);
+
+        String etag = mockMvc.perform(get("/" + testShipmentId).header(USER_ID_HEADER, TEST_USER_ID))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/" + testShipmentId)
+                        .header(USER_ID_HEADER, TEST_USER_ID)
+                        .header("If-None-Match", etag)
+                )
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(shipmentService, times(1)).getShipment(any(), any(), anyBoolean(), any(), any());
+
+        when(shipmentService.getShipmentVersion(eq(testShipmentId), anyString(), anyBoolean()))
+                .thenReturn(VERSION.plusMillis(1));
+        mockMvc.perform(get("/" + testShipmentId)
+                        .header(USER_ID_HEADER, TEST_USER_ID)
+                        .header("If-None-Match", etag)
+                )
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getTracking_withCurrentEtag_shouldReturn304() throws Exception {
+        when(shipmentService.getTrackingVersion("PKG-1234ABCD")).thenReturn(VERSION);
+
+        String etag = mockMvc.perform(get("/track/PKG-1234ABCD"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/track/PKG-1234ABCD").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        verify(shipmentService, times(1)).getTrackingInfo("PKG-1234ABCD", ShipmentView.FULL, null);
+    }
+
+    @Test
+    void getTrackingBatch_shouldReturnMapOfKnownTrackingIds() throws Exception {
+        ShipmentTrackingDto tracking = new ShipmentTrackingDto("PKG-1234ABCD", "IN_TRANSIT", null, List.of());
+        when(shipmentService.getTrackingInfos(List.of("PKG-1234ABCD", "PKG-0000AAAA"), 3))
+                .thenReturn(Map.of("PKG-1234ABCD", tracking));
+
+        mockMvc.perform(post("/track/batch")
+                        .param("latest", "3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"PKG-1234ABCD\", \"PKG-0000AAAA\"]")
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['PKG-1234ABCD'].status").value("IN_TRANSIT"))
+                .andExpect(jsonPath("$['PKG-0000AAAA']").doesNotExist());
+    }
+
+    @Test
+    void getTracking_withSummaryView_shouldPassViewAndUseOwnEtag() throws Exception {
+        when(shipmentService.getTrackingVersion("PKG-1234ABCD")).thenReturn(VERSION);
+        when(shipmentService.getTrackingInfo("PKG-1234ABCD", ShipmentView.SUMMARY, null))
+                .thenReturn(new ShipmentTrackingDto("PKG-1234ABCD", "IN_TRANSIT", null, null));
+
+        String fullEtag = mockMvc.perform(get("/track/PKG-1234ABCD"))
+                .andReturn().getResponse().getHeader("ETag");
+        String summaryEtag = mockMvc.perform(get("/track/PKG-1234ABCD").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("IN_TRANSIT"))
+                .andExpect(jsonPath("$.checkpoints").doesNotExist())
+                .andReturn().getResponse().getHeader("ETag");
+
+        assertNotEquals(fullEtag, summaryEtag);
+    }
+
+    @Test
+    void getShipment_withUnknownViewOrAfterOnSummary_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/" + testShipmentId).header(USER_ID_HEADER, TEST_USER_ID).param("view", "compact"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/" + testShipmentId)
+                        .header(USER_ID_HEADER, TEST_USER_ID)
+                        .param("view", "summary")
+                        .param("after", "01900000-0000-7000-8000-000000000001")
+                )
+                .andExpect(status().isBadRequest());
+
+        verify(shipmentService, never()).getShipmentVersion(any(), any(), anyBoolean());
+    }
+
     @Test
     void getShipment_whenNotFound_shouldReturn404() throws Exception {
         UUID nonExistentId = UUID.randomUUID();
-        when(shipmentService.getShipment(eq(nonExistentId), anyString(), anyBoolean())).thenThrow(new GlobalExceptionHandler.ShipmentNotFoundException(nonExistentId));
+        when(shipmentService.getShipmentVersion(eq(nonExistentId), anyString(), anyBoolean())).thenThrow(new GlobalExceptionHandler.ShipmentNotFoundException(nonExistentId));
 
         mockMvc.perform(get("/" + nonExistentId)
                         .header(USER_ID_HEADER, TEST_USER_ID)
@@ -119,7 +222,7 @@ public class ShipmentControllerTest {
 
     @Test
     void getShipment_whenUnauthorized_shouldReturn403() throws Exception {
-        when(shipmentService.getShipment(eq(testShipmentId), anyString(), anyBoolean())).thenThrow(new GlobalExceptionHandler.AccessDeniedException("Forbidden"));
+        when(shipmentService.getShipmentVersion(eq(testShipmentId), anyString(), anyBoolean())).thenThrow(new GlobalExceptionHandler.AccessDeniedException("Forbidden"));
 
         mockMvc.perform(get("/" + testShipmentId)
                         .header(USER_ID_HEADER, TEST_USER_ID)
@@ -128,6 +231,21 @@ public class ShipmentControllerTest {
                 .andExpect(status().isForbidden());
     }
 
+    @Test
+    void getTracking_withAfter_shouldPassCursorAndUseOwnEtag() throws Exception {
+        UUID after = UUID.fromString("01900000-0000-7000-8000-000000000001");
+        when(shipmentService.getTrackingVersion("PKG-1234ABCD")).thenReturn(VERSION);
+
+        String fullEtag = mockMvc.perform(get("/track/PKG-1234ABCD"))
+                .andReturn().getResponse().getHeader("ETag");
+        String afterEtag = mockMvc.perform(get("/track/PKG-1234ABCD").param("after", after.toString()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        verify(shipmentService).getTrackingInfo("PKG-1234ABCD", ShipmentView.FULL, after);
+        assertNotEquals(fullEtag, afterEtag);
+    }
+
     @Test
     void listShipments_shouldReturnList() throws Exception {
         ShipmentListItemDto item1 = new ShipmentListItemDto(
@@ -137,7 +255,8 @@ public class ShipmentControllerTest {
                 "Receiver 1",
                 "CREATED",
                 Instant.now(),
-                Instant.now().minus(2, ChronoUnit.DAYS)
+                Instant.now().minus(2, ChronoUnit.DAYS),
+                Instant.now().minus(1, ChronoUnit.DAYS)
         );
         ShipmentListItemDto item2 = new ShipmentListItemDto(
                 UUID.randomUUID(),
@@ -146,22 +265,41 @@ public class ShipmentControllerTest {
                 "Receiver 2",
                 "IN_TRANSIT",
                 Instant.now(),
-                Instant.now().minus(2, ChronoUnit.DAYS)
+                Instant.now().minus(2, ChronoUnit.DAYS),
+                Instant.now().minus(1, ChronoUnit.DAYS)
         );
 
-        when(shipmentService.listForUser(anyString())).thenReturn(List.of(item1, item2));
+        when(shipmentService.listForUser(TEST_USER_ID, "createdAt", null, null, 50))
+                .thenReturn(new ShipmentPageDto(List.of(item1, item2), null));
 
         mockMvc.perform(get("/")
                         .header(USER_ID_HEADER, TEST_USER_ID)
                 )
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(ShipmentController.NEXT_CURSOR_HEADER))
                 .andExpect(jsonPath("$[0].sender").value("Sender 1"))
                 .andExpect(jsonPath("$[1].sender").value("Sender 2"));
     }
 
+    @Test
+    void listShipments_withCurrentEtag_shouldReturn304() throws Exception {
+        when(shipmentService.listForUser(anyString(), anyString(), any(), any(), anyInt()))
+                .thenReturn(new ShipmentPageDto(List.of(), null));
+
+        String etag = mockMvc.perform(get("/").header(USER_ID_HEADER, TEST_USER_ID))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/").header(USER_ID_HEADER, TEST_USER_ID).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/").header(USER_ID_HEADER, TEST_USER_ID).header("If-None-Match", etag)
+                        .param("status", "DELIVERED"))
+                .andExpect(status().isOk());
+    }
+
     @Test
     void listShipments_whenEmpty_shouldReturnEmptyArray() throws Exception {
-        when(shipmentService.listForUser(anyString())).thenReturn(List.of());
+        when(shipmentService.listForUser(anyString(), anyString(), any(), any(), anyInt()))
+                .thenReturn(new ShipmentPageDto(List.of(), null));
 
         mockMvc.perform(get("/")
                         .header(USER_ID_HEADER, TEST_USER_ID)
@@ -170,4 +308,78 @@ public class ShipmentControllerTest {
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$").isEmpty());
     }
+
+    @Test
+    void listShipments_withMorePages_shouldReturnNextCursorHeader() throws Exception {
+        when(shipmentService.listForUser(TEST_USER_ID, "updatedAt", "IN_TRANSIT", "abc", 10))
+                .thenReturn(new ShipmentPageDto(List.of(), "next"));
+
+        mockMvc.perform(get("/")
+                        .header(USER_ID_HEADER, TEST_USER_ID)
+                        .param("sort", "updatedAt")
+                        .param("status", "IN_TRANSIT")
+                        .param("cursor", "abc")
+                        .param("limit", "10")
+                )
+                .andExpect(status().isOk())
+                .andExpect(header().string(ShipmentController.NEXT_CURSOR_HEADER, "next"));
+    }
+
+    @Test
+    void listShipments_withInvalidCursor_shouldReturn400() throws Exception {
+        when(shipmentService.listForUser(anyString(), anyString(), any(), any(), anyInt()))
+                .thenThrow(new GlobalExceptionHandler.InvalidRequestException("Malformed cursor"));
+
+        mockMvc.perform(get("/")
+                        .header(USER_ID_HEADER, TEST_USER_ID)
+                        .param("cursor", "garbage")
+                )
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void export_shouldStreamNdjson() throws Exception {
+        Instant since = Instant.parse("2026-03-01T00:00:00Z");
+        when(shipmentExportService.export(eq(TEST_USER_ID), eq(since), any())).thenAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(2).write("{\"trackingId\":\"PKG-1234ABCD\"}\n".getBytes());
+            return 1L;
+        });
+
+        MvcResult result = mockMvc.perform(get("/export")
+                        .header(USER_ID_HEADER, TEST_USER_ID)
+                        .param("updatedSince", "2026-03-01T00:00:00Z")
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"trackingId\":\"PKG-1234ABCD\"}\n"));
+    }
+
+    @Test
+    void streamTracking_shouldResumeAfterLastEventId() throws Exception {
+        UUID lastEventId = UUID.fromString("01900000-0000-7000-8000-000000000001");
+        SseEmitter emitter = new SseEmitter();
+        emitter.send(SseEmitter.event().comment("connected"));
+        when(shipmentService.streamTracking("PKG-1234ABCD", lastEventId)).thenReturn(emitter);
+
+        mockMvc.perform(get("/track/PKG-1234ABCD/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", lastEventId.toString())
+                )
+                .andExpect(request().asyncStarted())
+                .andExpect(header().string("X-Accel-Buffering", "no"));
+
+        verify(shipmentService).streamTracking("PKG-1234ABCD", lastEventId);
+    }
+
+    @Test
+    void streamTracking_withInvalidLastEventId_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/track/PKG-1234ABCD/stream").header("Last-Event-ID", "garbage"))
+                .andExpect(status().isBadRequest());
+
+        verify(shipmentService, never()).streamTracking(any(), any());
+    }
 }
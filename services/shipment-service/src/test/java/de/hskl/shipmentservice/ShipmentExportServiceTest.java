@@ -0,0 +1,136 @@
+package de.hskl.shipmentservice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.hskl.shipmentservice.entity.Checkpoint;
+import de.hskl.shipmentservice.entity.Shipment;
+import de.hskl.shipmentservice.entity.ShipmentStatus;
+import de.hskl.shipmentservice.repository.CheckpointRepository;
+import de.hskl.shipmentservice.repository.ShipmentRepository;
+import de.hskl.shipmentservice.service.ShipmentExportService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jackson.autoconfigure.JacksonAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "shipment.export.chunk-size=2")
+@ActiveProfiles("test")
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import(ShipmentExportService.class)
+public class ShipmentExportServiceTest {
+    @Autowired
+    private ShipmentExportService exportService;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private CheckpointRepository checkpointRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    @BeforeEach
+    void setUp() {
+        Shipment older = shipment("PKG-EXPORT01", "user-123", now.minus(2, ChronoUnit.DAYS));
+        checkpoint(older, ShipmentStatus.CREATED, now.minus(3, ChronoUnit.DAYS));
+        checkpoint(older, ShipmentStatus.IN_TRANSIT, now.minus(2, ChronoUnit.DAYS));
+        checkpoint(older, ShipmentStatus.DELIVERED, now.minus(1, ChronoUnit.DAYS));
+        shipment("PKG-EXPORT02", "user-123", now);
+        Shipment foreign = shipment("PKG-EXPORT03", "user-456", now);
+        checkpoint(foreign, ShipmentStatus.CREATED, now);
+        entityManager.flush();
+    }
+
+    @Test
+    void export_shouldWriteOneLinePerShipmentWithTimeline() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = exportService.export("user-123", null, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(2, exported);
+        assertEquals(2, lines.size());
+
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertEquals("PKG-EXPORT01", first.get("trackingId").asText());
+        assertEquals(now.minus(2, ChronoUnit.DAYS).toString(), first.get("updatedAt").asText());
+        assertEquals(3, first.get("timeline").size());
+        assertEquals("CREATED", first.get("timeline").get(0).get("status").asText());
+        assertEquals(now.minus(3, ChronoUnit.DAYS).toString(), first.get("timeline").get(0).get("timestamp").asText());
+
+        JsonNode second = objectMapper.readTree(lines.get(1));
+        assertEquals("PKG-EXPORT02", second.get("trackingId").asText());
+        assertEquals(0, second.get("timeline").size());
+    }
+
+    @Test
+    void export_withUpdatedSince_shouldSkipOlderShipments() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export("user-123", now.minus(1, ChronoUnit.HOURS), out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(1, lines.size());
+        assertEquals("PKG-EXPORT02", objectMapper.readTree(lines.get(0)).get("trackingId").asText());
+    }
+
+    @Test
+    void export_withMoreShipmentsThanChunkSize_shouldExportEachOnceInOrder() throws Exception {
+        shipment("PKG-EXPORT04", "user-123", now);
+        shipment("PKG-EXPORT05", "user-123", now.plusSeconds(1));
+        entityManager.flush();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = exportService.export("user-123", null, out);
+
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).lines().toList()) {
+            lines.add(objectMapper.readTree(line));
+        }
+        assertEquals(4, exported);
+        assertEquals(4, lines.stream().map(line -> line.get("id").asText()).distinct().count());
+        assertEquals("PKG-EXPORT01", lines.get(0).get("trackingId").asText());
+        assertEquals(3, lines.get(0).get("timeline").size());
+        assertEquals("PKG-EXPORT05", lines.get(3).get("trackingId").asText());
+    }
+
+    private Shipment shipment(String trackingId, String owner, Instant updatedAt) {
+        return shipmentRepository.save(Shipment.builder()
+                .trackingId(trackingId)
+                .ownerUserId(owner)
+                .sender("Test Sender")
+                .receiver("Test Receiver")
+                .receiverStreet("Musterstraße 1")
+                .receiverCity("Musterstadt")
+                .currentStatus(ShipmentStatus.CREATED)
+                .createdAt(updatedAt)
+                .updatedAt(updatedAt)
+                .build());
+    }
+
+    private void checkpoint(Shipment shipment, ShipmentStatus status, Instant ts) {
+        checkpointRepository.save(Checkpoint.builder()
+                .shipment(shipment)
+                .timestamp(ts)
+                .status(status)
+                .build());
+    }
+}
@@ -0,0 +1,141 @@
+package de.hskl.shipmentservice;
+
+import de.hskl.shipmentservice.entity.ShipmentStatus;
+import de.hskl.shipmentservice.entity.TrackingUpdate;
+import de.hskl.shipmentservice.repository.ShipmentRepository;
+import de.hskl.shipmentservice.service.ShipmentHeadWriteBehind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ShipmentHeadWriteBehindTest {
+    @Mock
+    private ShipmentRepository shipmentRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UUID shipmentId = UUID.randomUUID();
+    private final Instant start = Instant.parse("2026-01-01T10:00:00Z");
+
+    private ShipmentHeadWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        writeBehind = new ShipmentHeadWriteBehind(shipmentRepository, transactionTemplate, meterRegistry, true, 1000, 500);
+    }
+
+    @Test
+    void tryDefer_withFirstOrChangedStatus_shouldRequireImmediateWrite() {
+        assertFalse(writeBehind.tryDefer(update("PICKED_UP", 50.0), start));
+        assertFalse(writeBehind.tryDefer(update("IN_TRANSIT", 50.1), start.plusSeconds(5)));
+    }
+
+    @Test
+    void flush_shouldWriteOnlyNewestOfCoalescedPositions() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<Integer>>getArgument(0).doInTransaction(null));
+        when(shipmentRepository.applyTrackingUpdate(any(), any(), any(), any(), any(), any())).thenReturn(1);
+
+        writeBehind.tryDefer(update("IN_TRANSIT", 50.0), start);
+        assertTrue(writeBehind.tryDefer(update("IN_TRANSIT", 50.1), start.plusSeconds(5)));
+        assertTrue(writeBehind.tryDefer(update("IN_TRANSIT", 50.3), start.plusSeconds(15)));
+        assertTrue(writeBehind.tryDefer(update("IN_TRANSIT", 50.2), start.plusSeconds(10)));
+
+        writeBehind.flush();
+
+        verify(shipmentRepository, times(1)).applyTrackingUpdate(
+                eq(shipmentId), eq(ShipmentStatus.IN_TRANSIT), eq(50.3), eq(8.0), eq(start.plusSeconds(15)), any(Instant.class));
+        assertEquals(3.0, counter("buffered"));
+        assertEquals(2.0, counter("coalesced"));
+        assertEquals(1.0, counter("flushed"));
+        verify(shipmentRepository, never()).touch(any(), any());
+    }
+
+    @Test
+    void flush_whenHeadAlreadyNewer_shouldStillMarkShipmentChanged() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<Integer>>getArgument(0).doInTransaction(null));
+        when(shipmentRepository.applyTrackingUpdate(any(), any(), any(), any(), any(), any())).thenReturn(0);
+
+        writeBehind.tryDefer(update("IN_TRANSIT", 50.0), start);
+        assertTrue(writeBehind.tryDefer(update("IN_TRANSIT", 50.1), start.plusSeconds(5)));
+        writeBehind.flush();
+
+        verify(shipmentRepository).touch(eq(shipmentId), any(Instant.class));
+    }
+
+    @Test
+    void flush_whenBatchFails_shouldKeepItsHeadsForTheNextFlush() {
+        writeBehind = new ShipmentHeadWriteBehind(shipmentRepository, transactionTemplate, meterRegistry, true, 1000, 1);
+        when(transactionTemplate.execute(any()))
+                .thenThrow(new QueryTimeoutException("lock timeout"))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<Integer>>getArgument(0).doInTransaction(null));
+        when(shipmentRepository.applyTrackingUpdate(any(), any(), any(), any(), any(), any())).thenReturn(1);
+        UUID other = new UUID(Long.MAX_VALUE, 0); // sortiert nach shipmentId, wird also als zweites geschrieben
+        TrackingUpdate otherUpdate = update("IN_TRANSIT", 51.0);
+        otherUpdate.setShipmentId(other);
+
+        writeBehind.tryDefer(update("IN_TRANSIT", 50.0), start);
+        writeBehind.tryDefer(update("IN_TRANSIT", 50.1), start.plusSeconds(5));
+        writeBehind.tryDefer(otherUpdate, start);
+        writeBehind.tryDefer(otherUpdate, start.plusSeconds(5));
+        writeBehind.flush();
+
+        verify(shipmentRepository, never()).applyTrackingUpdate(eq(shipmentId), any(), any(), any(), any(), any());
+        verify(shipmentRepository).applyTrackingUpdate(eq(other), any(), any(), any(), any(), any());
+        assertEquals(1.0, counter("flushed"));
+
+        writeBehind.flush();
+
+        verify(shipmentRepository).applyTrackingUpdate(
+                eq(shipmentId), eq(ShipmentStatus.IN_TRANSIT), eq(50.1), eq(8.0), eq(start.plusSeconds(5)), any(Instant.class));
+        verify(shipmentRepository, times(1)).applyTrackingUpdate(eq(other), any(), any(), any(), any(), any());
+        assertEquals(2.0, counter("flushed"));
+    }
+
+    @Test
+    void flush_withNothingPending_shouldNotTouchDatabase() {
+        writeBehind.flush();
+
+        verifyNoInteractions(transactionTemplate, shipmentRepository);
+    }
+
+    @Test
+    void tryDefer_whenDisabled_shouldNeverDefer() {
+        writeBehind = new ShipmentHeadWriteBehind(shipmentRepository, transactionTemplate, meterRegistry, false, 1000, 500);
+
+        writeBehind.tryDefer(update("IN_TRANSIT", 50.0), start);
+
+        assertFalse(writeBehind.tryDefer(update("IN_TRANSIT", 50.1), start.plusSeconds(5)));
+    }
+
+    private double counter(String result) {
+        return meterRegistry.get("shipment.write_behind.updates").tag("result", result).counter().count();
+    }
+
+    private TrackingUpdate update(String status, Double lat) {
+        TrackingUpdate update = new TrackingUpdate();
+        update.setShipmentId(shipmentId);
+        update.setStatus(status);
+        update.setLat(lat);
+        update.setLng(8.0);
+        return update;
+    }
+}
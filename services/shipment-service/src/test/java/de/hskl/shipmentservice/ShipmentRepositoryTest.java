@@ -0,0 +1,275 @@
+package de.hskl.shipmentservice;
+
+import de.hskl.shipmentservice.dto.ShipmentCursor;
+import de.hskl.shipmentservice.dto.ShipmentListItemDto;
+import de.hskl.shipmentservice.dto.ShipmentSort;
+import de.hskl.shipmentservice.entity.Checkpoint;
+import de.hskl.shipmentservice.entity.CheckpointMessage;
+import de.hskl.shipmentservice.entity.Shipment;
+import de.hskl.shipmentservice.entity.ShipmentStatus;
+import de.hskl.shipmentservice.entity.TrackingView;
+import de.hskl.shipmentservice.repository.CheckpointRepository;
+import de.hskl.shipmentservice.repository.ShipmentRepository;
+import de.hskl.shipmentservice.repository.TrackingViewRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "shipment.message-dictionary.refresh-interval-ms=0")
+@ActiveProfiles("test")
+public class ShipmentRepositoryTest {
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private CheckpointRepository checkpointRepository;
+
+    @Autowired
+    private TrackingViewRepository trackingViewRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Shipment shipment;
+    private Instant headEventAt;
+
+    @BeforeEach
+    void setUp() {
+        headEventAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        shipment = shipmentRepository.save(Shipment.builder()
+                .trackingId("PKG-1234ABCD")
+                .ownerUserId("user-123")
+                .sender("Test Sender")
+                .receiver("Test Receiver")
+                .receiverStreet("Musterstraße 1")
+                .receiverCity("Musterstadt")
+                .currentStatus(ShipmentStatus.IN_TRANSIT)
+                .lastEventAt(headEventAt)
+                .createdAt(headEventAt)
+                .updatedAt(headEventAt)
+                .build());
+        entityManager.flush();
+    }
+
+    @Test
+    void applyTrackingUpdate_withNewerEvent_shouldMoveHead() {
+        Instant eventAt = headEventAt.plusSeconds(60);
+
+        int updated = shipmentRepository.applyTrackingUpdate(shipment.getId(), ShipmentStatus.DELIVERED, 50.0, 8.0, eventAt, Instant.now());
+        entityManager.clear();
+
+        assertEquals(1, updated);
+        Shipment reloaded = shipmentRepository.findById(shipment.getId()).orElseThrow();
+        assertEquals(ShipmentStatus.DELIVERED, reloaded.getCurrentStatus());
+        assertEquals(50.0, reloaded.getLastLat());
+        assertEquals(eventAt, reloaded.getLastEventAt());
+    }
+
+    @Test
+    void applyTrackingUpdate_withOlderEvent_shouldKeepHead() {
+        int updated = shipmentRepository.applyTrackingUpdate(
+                shipment.getId(), ShipmentStatus.PICKED_UP, 49.0, 7.0, headEventAt.minusSeconds(60), Instant.now());
+        entityManager.clear();
+
+        assertEquals(0, updated);
+        Shipment reloaded = shipmentRepository.findById(shipment.getId()).orElseThrow();
+        assertEquals(ShipmentStatus.IN_TRANSIT, reloaded.getCurrentStatus());
+        assertEquals(headEventAt, reloaded.getLastEventAt());
+    }
+
+    @Test
+    void applyTrackingUpdate_withRedeliveredEvent_shouldBeIdempotent() {
+        int updated = shipmentRepository.applyTrackingUpdate(
+                shipment.getId(), ShipmentStatus.IN_TRANSIT, 50.0, 8.0, headEventAt, Instant.now());
+
+        assertEquals(1, updated);
+    }
+
+    @Test
+    void findExistingIds_shouldReturnOnlyExistingShipments() {
+        Set<UUID> existing = shipmentRepository.findExistingIds(List.of(shipment.getId(), UUID.randomUUID()));
+
+        assertEquals(Set.of(shipment.getId()), existing);
+    }
+
+    @Test
+    void checkpoints_shouldRejectRepeatedEventId() {
+        UUID eventId = UUID.randomUUID();
+        checkpointRepository.saveAndFlush(checkpoint(eventId));
+
+        assertTrue(checkpointRepository.existsByEventId(eventId));
+        assertThrows(DataIntegrityViolationException.class, () -> checkpointRepository.saveAndFlush(checkpoint(eventId)));
+    }
+
+    @Test
+    void shipments_shouldRejectRepeatedTrackingId() {
+        assertTrue(shipmentRepository.existsByTrackingId("PKG-1234ABCD"));
+        assertFalse(shipmentRepository.existsByTrackingId("PKG-0000AAAA"));
+
+        Shipment duplicate = Shipment.builder()
+                .trackingId("PKG-1234ABCD")
+                .sender("Other Sender")
+                .receiver("Other Receiver")
+                .receiverStreet("Musterstraße 2")
+                .receiverCity("Musterstadt")
+                .currentStatus(ShipmentStatus.CREATED)
+                .createdAt(headEventAt)
+                .updatedAt(headEventAt)
+                .build();
+        assertThrows(DataIntegrityViolationException.class, () -> shipmentRepository.saveAndFlush(duplicate));
+    }
+
+    @Test
+    void findPageByCreatedAt_shouldPageThroughTiesWithoutGapsOrRepeats() {
+        Instant createdAt = headEventAt.minusSeconds(3600);
+        for (int i = 0; i < 5; i++) {
+            shipmentRepository.save(Shipment.builder()
+                    .trackingId("PKG-PAGE000" + i)
+                    .ownerUserId("user-123")
+                    .sender("Sender " + i)
+                    .receiver("Receiver")
+                    .receiverStreet("Musterstraße 1")
+                    .receiverCity("Musterstadt")
+                    .currentStatus(i % 2 == 0 ? ShipmentStatus.IN_TRANSIT : ShipmentStatus.DELIVERED)
+                    .createdAt(i < 3 ? createdAt : createdAt.minusSeconds(i))
+                    .updatedAt(createdAt)
+                    .build());
+        }
+        entityManager.flush();
+
+        ShipmentCursor cursor = ShipmentCursor.start(ShipmentSort.CREATED_AT);
+        List<UUID> seen = new ArrayList<>();
+        List<ShipmentListItemDto> page;
+        do {
+            page = shipmentRepository.findPageByCreatedAt("user-123", cursor.after(), cursor.afterId(), Limit.of(2));
+            page.forEach(item -> seen.add(item.id()));
+            if (!page.isEmpty()) {
+                cursor = ShipmentCursor.after(ShipmentSort.CREATED_AT, page.getLast());
+            }
+        } while (page.size() == 2);
+
+        assertEquals(6, seen.size());
+        assertEquals(6, Set.copyOf(seen).size());
+        assertEquals(shipment.getId(), seen.getFirst());
+
+        List<ShipmentListItemDto> delivered = shipmentRepository.findPageByCreatedAtAndStatus("user-123", ShipmentStatus.DELIVERED,
+                ShipmentCursor.start(ShipmentSort.CREATED_AT).after(), ShipmentCursor.start(ShipmentSort.CREATED_AT).afterId(),
+                Limit.of(10));
+        assertEquals(2, delivered.size());
+    }
+
+    @Test
+    void save_shouldGenerateTimeOrderedVersion7Ids() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            UUID id = checkpointRepository.save(checkpoint(null)).getId();
+            assertEquals(7, id.version());
+            ids.add(id.toString());
+        }
+
+        assertEquals(7, shipment.getId().version());
+        // Postgres vergleicht UUIDs byteweise, das entspricht der Reihenfolge der Hex-Darstellung
+        assertEquals(ids.stream().sorted().toList(), ids);
+        assertTrue(shipment.getId().toString().compareTo(ids.getFirst()) < 0);
+    }
+
+    @Test
+    void findById_withExistingVersion4Id_shouldStillWork() {
+        UUID legacyId = UUID.randomUUID();
+        entityManager.createNativeQuery("""
+                        insert into checkpoints (id, shipment_id, ts, status) values (:id, :shipmentId, :ts, 1)
+                        """)
+                .setParameter("id", legacyId)
+                .setParameter("shipmentId", shipment.getId())
+                .setParameter("ts", headEventAt)
+                .executeUpdate();
+        checkpointRepository.save(checkpoint(null));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(4, legacyId.version());
+        assertTrue(checkpointRepository.findById(legacyId).isPresent());
+        assertEquals(2, checkpointRepository.findByShipmentIdInOrderByTimestampAsc(List.of(shipment.getId())).size());
+    }
+
+    @Test
+    void findLatestByShipmentIdIn_shouldReturnNewestCheckpointsPerShipmentOldestFirst() {
+        for (int i = 0; i < 4; i++) {
+            checkpointRepository.save(Checkpoint.builder()
+                    .shipment(shipment)
+                    .timestamp(headEventAt.plusSeconds(i))
+                    .status(ShipmentStatus.IN_TRANSIT)
+                    .build());
+        }
+        entityManager.flush();
+
+        List<Checkpoint> latest = checkpointRepository.findLatestByShipmentIdIn(List.of(shipment.getId(), UUID.randomUUID()), 2);
+
+        assertEquals(List.of(headEventAt.plusSeconds(2), headEventAt.plusSeconds(3)),
+                latest.stream().map(Checkpoint::getTimestamp).toList());
+        assertEquals(4, checkpointRepository.findByShipmentIdInOrderByTimestampAsc(List.of(shipment.getId())).size());
+    }
+
+    @Test
+    void save_shouldStoreDictionaryMessagesAsCodeAndOthersInline() {
+        entityManager.persist(new CheckpointMessage(1, "Shipment created"));
+        entityManager.flush();
+        Checkpoint frequent = checkpoint(null);
+        frequent.setMessage("Shipment created");
+        Checkpoint rare = checkpoint(null);
+        rare.setMessage("Zugestellt an Nachbar, Hausnummer 3");
+        checkpointRepository.saveAll(List.of(frequent, rare));
+        entityManager.flush();
+        entityManager.clear();
+
+        Object[] frequentRow = (Object[]) entityManager.createNativeQuery(
+                "select message, message_code from checkpoints where id = :id")
+                .setParameter("id", frequent.getId())
+                .getSingleResult();
+        assertNull(frequentRow[0]);
+        assertEquals(1, ((Number) frequentRow[1]).intValue());
+        assertEquals("Shipment created", checkpointRepository.findById(frequent.getId()).orElseThrow().getMessage());
+        assertEquals("Zugestellt an Nachbar, Hausnummer 3",
+                checkpointRepository.findById(rare.getId()).orElseThrow().getMessage());
+    }
+
+    @Test
+    void findVersionById_shouldTakeNewerTrackingViewIntoAccount() {
+        assertEquals(headEventAt, shipmentRepository.findVersionById(shipment.getId()).orElseThrow().updatedAt());
+
+        trackingViewRepository.save(TrackingView.builder()
+                .shipmentId(shipment.getId())
+                .trackingId(shipment.getTrackingId())
+                .status(ShipmentStatus.IN_TRANSIT)
+                .timeline(new byte[]{'[', ']'})
+                .updatedAt(headEventAt.plusSeconds(5))
+                .build());
+        entityManager.flush();
+
+        assertEquals(headEventAt.plusSeconds(5), shipmentRepository.findVersionById(shipment.getId()).orElseThrow().updatedAt());
+        assertEquals(headEventAt.plusSeconds(5), shipmentRepository.findUpdatedAtByTrackingId("PKG-1234ABCD").orElseThrow());
+    }
+
+    private Checkpoint checkpoint(UUID eventId) {
+        return Checkpoint.builder()
+                .shipment(shipment)
+                .timestamp(headEventAt)
+                .status(ShipmentStatus.IN_TRANSIT)
+                .eventId(eventId)
+                .build();
+    }
+}
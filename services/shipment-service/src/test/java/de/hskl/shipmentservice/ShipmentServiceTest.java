@@ -3,34 +3,61 @@ package de.hskl.shipmentservice;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import de.hskl.shipmentservice.dto.CheckpointDto;
+import de.hskl.shipmentservice.dto.CheckpointTrackingDto;
 import de.hskl.shipmentservice.dto.CreateShipmentDto;
 import de.hskl.shipmentservice.dto.ShipmentDetailDto;
+import de.hskl.shipmentservice.dto.ShipmentCursor;
 import de.hskl.shipmentservice.dto.ShipmentListItemDto;
+import de.hskl.shipmentservice.dto.ShipmentPageDto;
+import de.hskl.shipmentservice.dto.ShipmentSort;
+import de.hskl.shipmentservice.dto.ShipmentTrackingDto;
+import de.hskl.shipmentservice.dto.ShipmentVersion;
+import de.hskl.shipmentservice.dto.ShipmentView;
 import de.hskl.shipmentservice.entity.Checkpoint;
+import de.hskl.shipmentservice.entity.CheckpointArchive;
 import de.hskl.shipmentservice.entity.Shipment;
+import de.hskl.shipmentservice.entity.ShipmentStatus;
+import de.hskl.shipmentservice.entity.TrackingUpdate;
+import de.hskl.shipmentservice.entity.TrackingView;
 import de.hskl.shipmentservice.exceptions.GlobalExceptionHandler;
+import de.hskl.shipmentservice.repository.CheckpointArchiveRepository;
 import de.hskl.shipmentservice.repository.CheckpointRepository;
 import de.hskl.shipmentservice.repository.ShipmentRepository;
+import de.hskl.shipmentservice.service.CheckpointArchiveCodec;
+import de.hskl.shipmentservice.service.ShipmentHeadWriteBehind;
 import de.hskl.shipmentservice.service.ShipmentService;
+import de.hskl.shipmentservice.service.TrackingCache;
+import de.hskl.shipmentservice.service.TrackingEventDeduplicator;
+import de.hskl.shipmentservice.service.TrackingIdFilter;
+import de.hskl.shipmentservice.service.TrackingStreamRegistry;
+import de.hskl.shipmentservice.service.TrackingViewService;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,6 +68,27 @@ public class ShipmentServiceTest {
     @Mock
     private CheckpointRepository checkpointRepository;
 
+    @Mock
+    private ShipmentHeadWriteBehind headWriteBehind;
+
+    @Mock
+    private TrackingEventDeduplicator deduplicator;
+
+    @Mock
+    private TrackingCache trackingCache;
+
+    @Mock
+    private TrackingIdFilter trackingIdFilter;
+
+    @Mock
+    private TrackingStreamRegistry trackingStreams;
+
+    @Mock
+    private CheckpointArchiveRepository checkpointArchiveRepository;
+
+    @Mock
+    private TrackingViewService trackingViews;
+
     @InjectMocks
     private ShipmentService shipmentService;
 
@@ -51,6 +99,7 @@ public class ShipmentServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(trackingIdFilter.mightExist(anyString())).thenReturn(true);
         testShipmentId = UUID.randomUUID();
 
         testCreateDto = new CreateShipmentDto(
@@ -69,17 +118,17 @@ public class ShipmentServiceTest {
                 .receiverCity(testCreateDto.receiverCity())
                 .sender(testCreateDto.sender())
                 .receiver(testCreateDto.receiver())
-                .currentStatus("CREATED")
+                .currentStatus(ShipmentStatus.CREATED)
                 .expectedDelivery(testCreateDto.expectedDelivery())
                 .createdAt(Instant.now())
                 .updatedAt(Instant.now())
                 .build();
 
         testCheckpoint = Checkpoint.builder()
-                .id(UUID.randomUUID())
+                .id(checkpointId(100))
                 .shipment(testShipment)
                 .timestamp(Instant.now())
-                .status("CREATED")
+                .status(ShipmentStatus.CREATED)
                 .message("Shipment created")
                 .build();
     }
@@ -113,7 +162,7 @@ public class ShipmentServiceTest {
 
         Shipment savedShipment = shipmentCaptor.getValue();
         assertEquals("user-123", savedShipment.getOwnerUserId());
-        assertEquals("CREATED", savedShipment.getCurrentStatus());
+        assertEquals(ShipmentStatus.CREATED, savedShipment.getCurrentStatus());
         assertNotNull(savedShipment.getCreatedAt());
         assertNotNull(savedShipment.getUpdatedAt());
     }
@@ -129,15 +178,29 @@ public class ShipmentServiceTest {
         verify(checkpointRepository).save(checkpointCaptor.capture());
 
         Checkpoint savedCheckpoint = checkpointCaptor.getValue();
-        assertEquals("CREATED", savedCheckpoint.getStatus());
+        assertEquals(ShipmentStatus.CREATED, savedCheckpoint.getStatus());
         assertEquals("Shipment created", savedCheckpoint.getMessage());
         assertNotNull(savedCheckpoint.getTimestamp());
     }
 
+    @Test
+    void createShipment_shouldAddTrackingViewInSameCall() {
+        when(shipmentRepository.save(any(Shipment.class))).thenReturn(testShipment);
+        when(checkpointRepository.save(any(Checkpoint.class))).thenReturn(testCheckpoint);
+
+        shipmentService.createShipment(testCreateDto, "user-123");
+
+        ArgumentCaptor<Shipment> shipmentCaptor = ArgumentCaptor.forClass(Shipment.class);
+        ArgumentCaptor<Checkpoint> checkpointCaptor = ArgumentCaptor.forClass(Checkpoint.class);
+        verify(shipmentRepository).save(shipmentCaptor.capture());
+        verify(checkpointRepository).save(checkpointCaptor.capture());
+        verify(trackingViews).create(shipmentCaptor.getValue(), List.of(checkpointCaptor.getValue()));
+    }
+
     @Test
     void getShipment_whenOwnerRequests_shouldReturnShipment() {
         when(shipmentRepository.findById(testShipmentId)).thenReturn(Optional.of(testShipment));
-        when(checkpointRepository.findByShipmentIdOrderByTimestampAsc(testShipmentId)).thenReturn(List.of(testCheckpoint));
+        when(checkpointRepository.findByShipmentIdAndTimestampGreaterThanEqualOrderByTimestampAsc(eq(testShipmentId), any())).thenReturn(List.of(testCheckpoint));
 
         ShipmentDetailDto result = shipmentService.getShipment(
                 testShipmentId,
@@ -152,10 +215,20 @@ public class ShipmentServiceTest {
         assertEquals(1, result.timeline().size());
     }
 
+    @Test
+    void getShipment_shouldReadTimelineFromShipmentCreationOn() {
+        when(shipmentRepository.findById(testShipmentId)).thenReturn(Optional.of(testShipment));
+
+        shipmentService.getShipment(testShipmentId, "user-123", false);
+
+        verify(checkpointRepository).findByShipmentIdAndTimestampGreaterThanEqualOrderByTimestampAsc(
+                testShipmentId, testShipment.getCreatedAt().minus(1, ChronoUnit.DAYS));
+    }
+
     @Test
     void getShipment_whenAdminRequests_shouldReturnShipment() {
         when(shipmentRepository.findById(testShipmentId)).thenReturn(Optional.of(testShipment));
-        when(checkpointRepository.findByShipmentIdOrderByTimestampAsc(testShipmentId)).thenReturn(List.of(testCheckpoint));
+        when(checkpointRepository.findByShipmentIdAndTimestampGreaterThanEqualOrderByTimestampAsc(eq(testShipmentId), any())).thenReturn(List.of(testCheckpoint));
 
         ShipmentDetailDto result = shipmentService.getShipment(
                 testShipmentId,
@@ -197,35 +270,692 @@ public class ShipmentServiceTest {
     }
 
     @Test
-    void listForUser_shouldReturnUserShipments() {
-        Shipment shipment2 = Shipment.builder()
-                .id(UUID.randomUUID())
-                .trackingId("PKG-ABCD1234")
-                .ownerUserId("user-123")
-                .sender("Sender 2")
-                .receiver("Receiver 2")
-                .receiverStreet("Receiver Street")
-                .receiverCity("Receiver City")
-                .currentStatus("IN TRANSIT")
-                .createdAt(Instant.now())
-                .build();
+    void listForUser_shouldReturnFirstPageWithCursor() {
+        ShipmentListItemDto first = listItem(Instant.parse("2026-03-02T10:00:00Z"));
+        ShipmentListItemDto second = listItem(Instant.parse("2026-03-01T10:00:00Z"));
+        ShipmentListItemDto third = listItem(Instant.parse("2026-02-28T10:00:00Z"));
+        when(shipmentRepository.findPageByCreatedAt(eq("user-123"), any(), any(), eq(Limit.of(3))))
+                .thenReturn(List.of(first, second, third));
+
+        ShipmentPageDto page = shipmentService.listForUser("user-123", "createdAt", null, null, 2);
+
+        assertEquals(List.of(first, second), page.items());
+        ShipmentCursor next = ShipmentCursor.decode(page.nextCursor(), ShipmentSort.CREATED_AT);
+        assertEquals(second.createdAt(), next.after());
+        assertEquals(second.id(), next.afterId());
+    }
+
+    @Test
+    void listForUser_withCursorAndStatus_shouldContinueAfterCursor() {
+        ShipmentListItemDto last = listItem(Instant.parse("2026-03-01T10:00:00Z"));
+        String cursor = ShipmentCursor.after(ShipmentSort.UPDATED_AT, last).encode();
+        when(shipmentRepository.findPageByUpdatedAtAndStatus(
+                "user-123", ShipmentStatus.IN_TRANSIT, last.updatedAt(), last.id(), Limit.of(51))).thenReturn(List.of());
+
+        ShipmentPageDto page = shipmentService.listForUser("user-123", "updatedAt", "IN_TRANSIT", cursor, 50);
+
+        assertTrue(page.items().isEmpty());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void listForUser_shouldCapPageSize() {
+        when(shipmentRepository.findPageByCreatedAt(any(), any(), any(), any())).thenReturn(List.of());
+
+        shipmentService.listForUser("user-123", "createdAt", null, null, 100_000);
+
+        verify(shipmentRepository).findPageByCreatedAt(any(), any(), any(), eq(Limit.of(ShipmentService.MAX_PAGE_SIZE + 1)));
+    }
+
+    @Test
+    void listForUser_withCursorOfOtherSort_shouldRejectRequest() {
+        String cursor = ShipmentCursor.after(ShipmentSort.CREATED_AT, listItem(Instant.now())).encode();
+
+        assertThrows(GlobalExceptionHandler.InvalidRequestException.class,
+                () -> shipmentService.listForUser("user-123", "updatedAt", null, cursor, 50));
+        assertThrows(GlobalExceptionHandler.InvalidRequestException.class,
+                () -> shipmentService.listForUser("user-123", "createdAt", null, "not-a-cursor", 50));
+        verifyNoInteractions(shipmentRepository);
+    }
+
+    @Test
+    void updateShipment_shouldUpdateHeadConditionallyAndAppendCheckpoint() {
+        TrackingUpdate update = trackingUpdate(testShipmentId, "IN_TRANSIT", 50.0, 8.0);
+
+        when(shipmentRepository.applyTrackingUpdate(eq(testShipmentId), eq(ShipmentStatus.IN_TRANSIT), eq(50.0), eq(8.0),
+                eq(update.getTimestamp()), any(Instant.class))).thenReturn(1);
+        when(shipmentRepository.getReferenceById(testShipmentId)).thenReturn(testShipment);
+
+        shipmentService.updateShipment(update);
+
+        ArgumentCaptor<Checkpoint> checkpointCaptor = ArgumentCaptor.forClass(Checkpoint.class);
+        verify(checkpointRepository).save(checkpointCaptor.capture());
+        assertEquals(ShipmentStatus.IN_TRANSIT, checkpointCaptor.getValue().getStatus());
+        assertEquals(update.getTimestamp(), checkpointCaptor.getValue().getTimestamp());
+        verify(trackingViews).append(eq(List.of(checkpointCaptor.getValue())), any(Instant.class));
+        verify(shipmentRepository, never()).findById(any());
+        verify(shipmentRepository, never()).existsById(any());
+        verify(shipmentRepository, never()).save(any());
+    }
+
+    @Test
+    void updateShipment_withStaleEvent_shouldStillAppendCheckpoint() {
+        TrackingUpdate update = trackingUpdate(testShipmentId, "PICKED_UP", 50.0, 8.0);
+
+        when(shipmentRepository.applyTrackingUpdate(any(), any(), any(), any(), any(), any())).thenReturn(0);
+        when(shipmentRepository.touch(eq(testShipmentId), any())).thenReturn(1);
+        when(shipmentRepository.getReferenceById(testShipmentId)).thenReturn(testShipment);
+
+        shipmentService.updateShipment(update);
+
+        verify(checkpointRepository, times(1)).save(any(Checkpoint.class));
+        verify(shipmentRepository).touch(eq(testShipmentId), any(Instant.class));
+    }
+
+    @Test
+    void updateShipment_withEventLongBeforeShipmentCreation_shouldRejectIt() {
+        TrackingUpdate update = trackingUpdate(testShipmentId, "IN_TRANSIT", 50.0, 8.0);
+        update.setTimestamp(Instant.now().minus(3, ChronoUnit.DAYS));
+        when(shipmentRepository.findCreatedAtById(testShipmentId)).thenReturn(Optional.of(Instant.now().minus(1, ChronoUnit.HOURS)));
+
+        assertThrows(IllegalArgumentException.class, () -> shipmentService.updateShipment(update));
+        verify(shipmentRepository, never()).applyTrackingUpdate(any(), any(), any(), any(), any(), any());
+        verify(checkpointRepository, never()).save(any());
+    }
 
-        when(shipmentRepository.findByOwnerUserId("user-123")).thenReturn(List.of(testShipment, shipment2));
+    @Test
+    void updateShipment_withoutTimestamp_shouldRejectIt() {
+        TrackingUpdate update = trackingUpdate(testShipmentId, "IN_TRANSIT", 50.0, 8.0);
+        update.setTimestamp(null);
+
+        assertThrows(IllegalArgumentException.class, () -> shipmentService.updateShipment(update));
+        verify(shipmentRepository, never()).applyTrackingUpdate(any(), any(), any(), any(), any(), any());
+        verify(checkpointRepository, never()).save(any());
+    }
+
+    @Test
+    void updateShipment_withOldEventOfOldShipment_shouldAppendIt() {
+        TrackingUpdate update = trackingUpdate(testShipmentId, "IN_TRANSIT", 50.0, 8.0);
+        update.setTimestamp(Instant.now().minus(3, ChronoUnit.DAYS));
+        when(shipmentRepository.findCreatedAtById(testShipmentId)).thenReturn(Optional.of(Instant.now().minus(4, ChronoUnit.DAYS)));
+        when(shipmentRepository.applyTrackingUpdate(any(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(shipmentRepository.getReferenceById(testShipmentId)).thenReturn(testShipment);
+
+        shipmentService.updateShipment(update);
+
+        verify(checkpointRepository).save(any(Checkpoint.class));
+    }
+
+    @Test
+    void updateShipment_whenShipmentMissing_shouldThrowEntityNotFound() {
+        TrackingUpdate update = trackingUpdate(testShipmentId, "IN_TRANSIT", 50.0, 8.0);
+
+        when(shipmentRepository.applyTrackingUpdate(any(), any(), any(), any(), any(), any())).thenReturn(0);
+        when(shipmentRepository.touch(eq(testShipmentId), any())).thenReturn(0);
+
+        assertThrows(EntityNotFoundException.class, () -> shipmentService.updateShipment(update));
+        verify(checkpointRepository, never()).save(any());
+    }
+
+    @Test
+    void updateShipment_whenHeadUpdateDeferred_shouldAppendCheckpointWithoutUpdatingShipment() {
+        TrackingUpdate update = trackingUpdate(testShipmentId, "IN_TRANSIT", 50.0, 8.0);
+
+        when(headWriteBehind.tryDefer(update, update.getTimestamp())).thenReturn(true);
+        when(shipmentRepository.lockForCheckpoint(testShipmentId)).thenReturn(Optional.of(testShipmentId));
+        when(shipmentRepository.getReferenceById(testShipmentId)).thenReturn(testShipment);
+        when(trackingViews.append(any(), any())).thenReturn(Set.of(testShipmentId));
+
+        shipmentService.updateShipment(update);
 
-        List<ShipmentListItemDto> result = shipmentService.listForUser("user-123");
+        verify(shipmentRepository, never()).applyTrackingUpdate(any(), any(), any(), any(), any(), any());
+        verify(shipmentRepository, never()).touch(any(), any());
+        verify(checkpointRepository, times(1)).save(any(Checkpoint.class));
+    }
+
+    @Test
+    void updateShipment_whenHeadUpdateDeferredWithoutTrackingView_shouldBumpUpdatedAt() {
+        TrackingUpdate update = trackingUpdate(testShipmentId, "IN_TRANSIT", 50.0, 8.0);
+
+        when(headWriteBehind.tryDefer(update, update.getTimestamp())).thenReturn(true);
+        when(shipmentRepository.lockForCheckpoint(testShipmentId)).thenReturn(Optional.of(testShipmentId));
+        when(shipmentRepository.getReferenceById(testShipmentId)).thenReturn(testShipment);
+        when(trackingViews.append(any(), any())).thenReturn(Set.of());
 
-        assertEquals(2, result.size());
-        assertEquals("Test Sender", result.get(0).sender());
-        assertEquals("Sender 2", result.get(1).sender());
-        verify(shipmentRepository, times(1)).findByOwnerUserId("user-123");
+        shipmentService.updateShipment(update);
+
+        verify(shipmentRepository).touch(eq(testShipmentId), any(Instant.class));
+    }
+
+    @Test
+    void applyTrackingUpdates_shouldCheckShipmentsOnceAndSaveCheckpointsTogether() {
+        TrackingUpdate older = trackingUpdate(testShipmentId, "PICKED_UP", 50.0, 8.0);
+        TrackingUpdate newer = trackingUpdate(testShipmentId, "IN_TRANSIT", 51.0, 9.0);
+        newer.setTimestamp(older.getTimestamp().plusSeconds(60));
+
+        when(shipmentRepository.findExistingIds(Set.of(testShipmentId))).thenReturn(Set.of(testShipmentId));
+        when(shipmentRepository.getReferenceById(testShipmentId)).thenReturn(testShipment);
+
+        Set<UUID> unknown = shipmentService.applyTrackingUpdates(List.of(newer, older));
+
+        assertTrue(unknown.isEmpty());
+        verify(shipmentRepository, times(1)).applyTrackingUpdate(any(), any(), any(), any(), any(), any());
+        verify(shipmentRepository).applyTrackingUpdate(eq(testShipmentId), eq(ShipmentStatus.IN_TRANSIT), eq(51.0), eq(9.0),
+                eq(newer.getTimestamp()), any(Instant.class));
+
+        ArgumentCaptor<List<Checkpoint>> checkpointCaptor = ArgumentCaptor.forClass(List.class);
+        verify(checkpointRepository, times(1)).saveAll(checkpointCaptor.capture());
+        assertEquals(2, checkpointCaptor.getValue().size());
+        verify(trackingViews).append(eq(checkpointCaptor.getValue()), any(Instant.class));
+        InOrder order = inOrder(checkpointRepository, trackingStreams);
+        order.verify(checkpointRepository).saveAll(any());
+        order.verify(trackingStreams, times(2)).publish(eq(testShipmentId), any());
+        verify(shipmentRepository, never()).findById(any());
     }
 
     @Test
-    void listForUser_whenNoShipments_shouldReturnEmptyList() {
-        when(shipmentRepository.findByOwnerUserId("user-123")).thenReturn(List.of());
+    void applyTrackingUpdates_shouldReportUnknownShipments() {
+        UUID unknownId = UUID.randomUUID();
+
+        when(shipmentRepository.findExistingIds(any())).thenReturn(Set.of(testShipmentId));
+        when(shipmentRepository.getReferenceById(testShipmentId)).thenReturn(testShipment);
+
+        Set<UUID> unknown = shipmentService.applyTrackingUpdates(List.of(
+                trackingUpdate(testShipmentId, "IN_TRANSIT", 50.0, 8.0),
+                trackingUpdate(unknownId, "IN_TRANSIT", 50.0, 8.0)
+        ));
+
+        assertEquals(Set.of(unknownId), unknown);
+
+        ArgumentCaptor<List<Checkpoint>> checkpointCaptor = ArgumentCaptor.forClass(List.class);
+        verify(checkpointRepository).saveAll(checkpointCaptor.capture());
+        assertEquals(1, checkpointCaptor.getValue().size());
+    }
+
+    @Test
+    void updateShipment_shouldStoreAndRememberEventId() {
+        TrackingUpdate update = trackingUpdate(testShipmentId, "IN_TRANSIT", 50.0, 8.0);
+        update.setEventId(UUID.randomUUID());
+
+        when(shipmentRepository.applyTrackingUpdate(any(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(shipmentRepository.getReferenceById(testShipmentId)).thenReturn(testShipment);
 
-        List<ShipmentListItemDto> result = shipmentService.listForUser("user-123");
+        shipmentService.updateShipment(update);
+
+        ArgumentCaptor<Checkpoint> checkpointCaptor = ArgumentCaptor.forClass(Checkpoint.class);
+        verify(checkpointRepository).save(checkpointCaptor.capture());
+        assertEquals(update.getEventId(), checkpointCaptor.getValue().getEventId());
+        verify(deduplicator).remember(update.getEventId());
+    }
+
+    @Test
+    void applyTrackingUpdates_shouldApplyRepeatedEventIdOnce() {
+        TrackingUpdate update = trackingUpdate(testShipmentId, "IN_TRANSIT", 50.0, 8.0);
+        update.setEventId(UUID.randomUUID());
+
+        when(shipmentRepository.findExistingIds(any())).thenReturn(Set.of(testShipmentId));
+        when(shipmentRepository.getReferenceById(testShipmentId)).thenReturn(testShipment);
+
+        shipmentService.applyTrackingUpdates(List.of(update, update));
+
+        ArgumentCaptor<List<Checkpoint>> checkpointCaptor = ArgumentCaptor.forClass(List.class);
+        verify(checkpointRepository).saveAll(checkpointCaptor.capture());
+        assertEquals(1, checkpointCaptor.getValue().size());
+        verify(deduplicator).rememberAll(Set.of(update.getEventId()));
+    }
+
+    @Test
+    void isEventApplied_shouldConsultUniqueIndex() {
+        UUID eventId = UUID.randomUUID();
+        when(checkpointRepository.existsByEventId(eventId)).thenReturn(true);
+
+        assertTrue(shipmentService.isEventApplied(eventId));
+        assertFalse(shipmentService.isEventApplied(null));
+        verify(deduplicator).remember(eventId);
+    }
+
+    @Test
+    void updateShipment_shouldInvalidateCachedTracking() {
+        TrackingUpdate update = trackingUpdate(testShipmentId, "IN_TRANSIT", 50.0, 8.0);
+
+        when(shipmentRepository.applyTrackingUpdate(any(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(shipmentRepository.getReferenceById(testShipmentId)).thenReturn(testShipment);
+
+        shipmentService.updateShipment(update);
+
+        verify(trackingCache).invalidate(testShipmentId);
+    }
+
+    @Test
+    void updateShipment_shouldPublishCheckpointToStreams() {
+        TrackingUpdate update = trackingUpdate(testShipmentId, "IN_TRANSIT", 50.0, 8.0);
+
+        when(shipmentRepository.applyTrackingUpdate(any(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(shipmentRepository.getReferenceById(testShipmentId)).thenReturn(testShipment);
+
+        shipmentService.updateShipment(update);
+
+        ArgumentCaptor<CheckpointTrackingDto> published = ArgumentCaptor.forClass(CheckpointTrackingDto.class);
+        verify(trackingStreams).publish(eq(testShipmentId), published.capture());
+        assertEquals("IN_TRANSIT", published.getValue().status());
+        assertEquals(update.getTimestamp(), published.getValue().timestamp());
+    }
+
+    @Test
+    void streamTracking_shouldSubscribeWithCheckpointsAfterCursorAsBacklog() {
+        UUID after = checkpointId(1);
+        when(shipmentRepository.findByTrackingId("PKG-1234ABCD")).thenReturn(testShipment);
+        when(checkpointRepository.findByShipmentIdAndTimestampGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+                eq(testShipmentId), any(), eq(after))).thenReturn(List.of(testCheckpoint));
+        ArgumentCaptor<Supplier<List<CheckpointTrackingDto>>> backlog = ArgumentCaptor.forClass(Supplier.class);
+        when(trackingStreams.subscribe(eq(testShipmentId), backlog.capture())).thenReturn(new SseEmitter());
+
+        shipmentService.streamTracking("PKG-1234ABCD", after);
+
+        assertEquals(List.of(CheckpointTrackingDto.from(testCheckpoint)), backlog.getValue().get());
+    }
+
+    @Test
+    void streamTracking_whenUnknown_shouldThrowNotFound() {
+        when(shipmentRepository.findIdByTrackingId("PKG-0000AAAA")).thenReturn(Optional.empty());
+
+        assertThrows(GlobalExceptionHandler.TrackingNotFoundException.class,
+                () -> shipmentService.streamTracking("PKG-0000AAAA", null));
+        verifyNoInteractions(trackingStreams);
+    }
+
+    @Test
+    void getCheckpointsWrittenSince_shouldReadCheckpointsOfUpdatedShipmentsFromFirstIdOfThatTime() {
+        Instant since = Instant.parse("2026-03-01T08:00:00Z");
+        UUID firstId = new UUID(since.toEpochMilli() << 16 | 0x7000, Long.MIN_VALUE);
+        when(shipmentRepository.findByIdInAndUpdatedAtAfter(List.of(testShipmentId), since)).thenReturn(List.of(testShipment));
+        when(checkpointRepository.findByShipmentIdAndTimestampGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+                eq(testShipmentId), any(), eq(firstId))).thenReturn(List.of(testCheckpoint));
+
+        Map<UUID, List<CheckpointTrackingDto>> result =
+                shipmentService.getCheckpointsWrittenSince(List.of(testShipmentId), since);
+
+        assertEquals(Map.of(testShipmentId, List.of(CheckpointTrackingDto.from(testCheckpoint))), result);
+    }
+
+    @Test
+    void getTrackingInfos_shouldUseCacheAndLoadRestWithOneQueryEach() {
+        ShipmentTrackingDto cached = new ShipmentTrackingDto("PKG-CACHED01", "DELIVERED", null, List.of());
+        when(trackingCache.get(anyString())).thenAnswer(invocation ->
+                "PKG-CACHED01".equals(invocation.getArgument(0)) ? cached : null);
+        when(trackingCache.stamp()).thenReturn(7L);
+        when(shipmentRepository.findByTrackingIdIn(Set.of("PKG-1234ABCD", "PKG-0000AAAA"))).thenReturn(List.of(testShipment));
+        when(checkpointRepository.findByShipmentIdInOrderByTimestampAsc(Set.of(testShipmentId)))
+                .thenReturn(List.of(testCheckpoint));
+
+        Map<String, ShipmentTrackingDto> result = shipmentService.getTrackingInfos(
+                List.of("PKG-1234ABCD", "PKG-0000AAAA", "PKG-CACHED01", "PKG-1234ABCD"), null);
+
+        assertEquals(List.of("PKG-1234ABCD", "PKG-CACHED01"), List.copyOf(result.keySet()));
+        assertSame(cached, result.get("PKG-CACHED01"));
+        assertEquals(1, result.get("PKG-1234ABCD").checkpoints().size());
+        verify(trackingCache).put(eq("PKG-1234ABCD"), eq(testShipmentId), any(), eq(result.get("PKG-1234ABCD")), eq(7L));
+        verify(shipmentRepository, never()).findByTrackingId(any());
+        verify(checkpointRepository, never()).findByShipmentIdAndTimestampGreaterThanEqualOrderByTimestampAsc(any(), any());
+    }
+
+    @Test
+    void getTrackingInfos_withLatest_shouldLimitTimelinesWithoutCaching() {
+        Checkpoint older = Checkpoint.builder().shipment(testShipment).timestamp(Instant.parse("2026-03-01T08:00:00Z"))
+                .status(ShipmentStatus.CREATED).build();
+        Checkpoint newer = Checkpoint.builder().shipment(testShipment).timestamp(Instant.parse("2026-03-01T09:00:00Z"))
+                .status(ShipmentStatus.IN_TRANSIT).build();
+        ShipmentTrackingDto cached = new ShipmentTrackingDto("PKG-CACHED01", "IN_TRANSIT", null,
+                List.of(CheckpointTrackingDto.from(older), CheckpointTrackingDto.from(newer)));
+        when(trackingCache.get(anyString())).thenAnswer(invocation ->
+                "PKG-CACHED01".equals(invocation.getArgument(0)) ? cached : null);
+        when(shipmentRepository.findByTrackingIdIn(Set.of("PKG-1234ABCD"))).thenReturn(List.of(testShipment));
+        when(checkpointRepository.findLatestByShipmentIdIn(Set.of(testShipmentId), 1)).thenReturn(List.of(newer));
+
+        Map<String, ShipmentTrackingDto> result = shipmentService.getTrackingInfos(
+                List.of("PKG-CACHED01", "PKG-1234ABCD"), 1);
+
+        assertEquals(List.of(CheckpointTrackingDto.from(newer)), result.get("PKG-CACHED01").checkpoints());
+        assertEquals(List.of(CheckpointTrackingDto.from(newer)), result.get("PKG-1234ABCD").checkpoints());
+        verify(trackingCache, never()).put(any(), any(), any(), any(), anyLong());
+    }
+
+    @Test
+    void getTrackingInfos_withTooManyIds_shouldRejectRequest() {
+        List<String> trackingIds = java.util.stream.IntStream.range(0, 201).mapToObj(i -> "PKG-" + i).toList();
+
+        assertThrows(GlobalExceptionHandler.InvalidRequestException.class,
+                () -> shipmentService.getTrackingInfos(trackingIds, null));
+        verifyNoInteractions(shipmentRepository, checkpointRepository);
+    }
+
+    @Test
+    void getTrackingInfo_whenCached_shouldNotQueryDatabase() {
+        ShipmentTrackingDto cached = new ShipmentTrackingDto("PKG-1234ABCD", "IN_TRANSIT", null, List.of());
+        when(trackingCache.get("PKG-1234ABCD")).thenReturn(cached);
+
+        assertSame(cached, shipmentService.getTrackingInfo("PKG-1234ABCD"));
+        verifyNoInteractions(shipmentRepository, checkpointRepository);
+    }
+
+    @Test
+    void getTrackingInfo_whenNotCached_shouldLoadAndCacheWithStamp() {
+        when(trackingCache.stamp()).thenReturn(7L);
+        when(shipmentRepository.findByTrackingId("PKG-1234ABCD")).thenReturn(testShipment);
+        when(checkpointRepository.findByShipmentIdAndTimestampGreaterThanEqualOrderByTimestampAsc(eq(testShipmentId), any())).thenReturn(List.of(testCheckpoint));
+
+        ShipmentTrackingDto tracking = shipmentService.getTrackingInfo("PKG-1234ABCD");
+
+        assertEquals(1, tracking.checkpoints().size());
+        verify(trackingCache).put("PKG-1234ABCD", testShipmentId, testShipment.getUpdatedAt(), tracking, 7L);
+    }
+
+    @Test
+    void getTrackingInfo_whenTrackingViewStored_shouldServeAndCacheItWithoutNormalizedReads() {
+        Instant at = Instant.parse("2026-03-01T08:00:00Z");
+        TrackingView trackingView = trackingView(2);
+        List<CheckpointTrackingDto> timeline = List.of(
+                new CheckpointTrackingDto(checkpointId(1), at, "CREATED", "Shipment created", null, null),
+                new CheckpointTrackingDto(checkpointId(2), at.plusSeconds(60), "IN_TRANSIT", null, 50.0, 8.0));
+        when(trackingCache.stamp()).thenReturn(7L);
+        when(trackingViews.find("PKG-1234ABCD")).thenReturn(Optional.of(trackingView));
+        when(trackingViews.timeline(trackingView)).thenReturn(timeline);
+
+        ShipmentTrackingDto tracking = shipmentService.getTrackingInfo("PKG-1234ABCD");
+
+        assertEquals(new ShipmentTrackingDto("PKG-1234ABCD", "IN_TRANSIT", null, timeline), tracking);
+        verify(trackingCache).put("PKG-1234ABCD", testShipmentId, trackingView.getUpdatedAt(), tracking, 7L);
+        verifyNoInteractions(shipmentRepository, checkpointRepository, checkpointArchiveRepository);
+    }
+
+    @Test
+    void getTrackingInfo_whenStoredTimelineTruncated_shouldOnlyServeLatestCheckpointFromIt() {
+        Instant at = Instant.parse("2026-03-01T08:00:00Z");
+        TrackingView trackingView = trackingView(5);
+        List<CheckpointTrackingDto> newest = List.of(
+                new CheckpointTrackingDto(checkpointId(4), at, "IN_TRANSIT", null, 50.0, 8.0),
+                new CheckpointTrackingDto(checkpointId(5), at.plusSeconds(60), "IN_TRANSIT", null, 50.1, 8.1));
+        when(trackingViews.find("PKG-1234ABCD")).thenReturn(Optional.of(trackingView));
+        when(trackingViews.timeline(trackingView)).thenReturn(newest);
+        when(shipmentRepository.findByTrackingId("PKG-1234ABCD")).thenReturn(testShipment);
+        when(checkpointRepository.findByShipmentIdAndTimestampGreaterThanEqualOrderByTimestampAsc(eq(testShipmentId), any())).thenReturn(List.of(testCheckpoint));
+        when(checkpointRepository.findByShipmentIdAndTimestampGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+                eq(testShipmentId), any(), eq(checkpointId(4)))).thenReturn(List.of(testCheckpoint));
+
+        // ein späteres Event mit älterem Zeitstempel kann im gekürzten Verlauf fehlen
+        ShipmentTrackingDto after = shipmentService.getTrackingInfo("PKG-1234ABCD", checkpointId(4));
+        ShipmentTrackingDto latest = shipmentService.getTrackingInfo("PKG-1234ABCD", ShipmentView.LATEST_CHECKPOINT, null);
+        ShipmentTrackingDto full = shipmentService.getTrackingInfo("PKG-1234ABCD");
+
+        assertEquals(List.of(CheckpointTrackingDto.from(testCheckpoint)), after.checkpoints());
+        assertEquals(List.of(newest.getLast()), latest.checkpoints());
+        assertEquals(List.of(CheckpointTrackingDto.from(testCheckpoint)), full.checkpoints());
+        verify(shipmentRepository, times(2)).findByTrackingId("PKG-1234ABCD");
+    }
+
+    @Test
+    void getTrackingInfo_whenTimelineArchived_shouldMergeArchiveWithLaterCheckpoints() {
+        Instant archivedAt = Instant.parse("2026-03-01T08:00:00Z");
+        testShipment.setTimelineArchivedAt(archivedAt);
+        testCheckpoint.setTimestamp(archivedAt.plusSeconds(60));
+        when(shipmentRepository.findByTrackingId("PKG-1234ABCD")).thenReturn(testShipment);
+        when(checkpointRepository.findByShipmentIdAndTimestampGreaterThanEqualOrderByTimestampAsc(eq(testShipmentId), any())).thenReturn(List.of(testCheckpoint));
+        when(checkpointArchiveRepository.findById(testShipmentId)).thenReturn(Optional.of(archive(
+                archivedCheckpoint(archivedAt.minusSeconds(7200), ShipmentStatus.CREATED),
+                archivedCheckpoint(archivedAt.minusSeconds(3600), ShipmentStatus.DELIVERED))));
+
+        ShipmentTrackingDto tracking = shipmentService.getTrackingInfo("PKG-1234ABCD");
+
+        assertEquals(List.of("CREATED", "DELIVERED", "CREATED"),
+                tracking.checkpoints().stream().map(CheckpointTrackingDto::status).toList());
+    }
+
+    @Test
+    void getShipment_latestCheckpoint_whenTimelineArchived_shouldReturnNewestOfArchive() {
+        Instant archivedAt = Instant.parse("2026-03-01T08:00:00Z");
+        testShipment.setTimelineArchivedAt(archivedAt);
+        when(shipmentRepository.findById(testShipmentId)).thenReturn(Optional.of(testShipment));
+        when(checkpointArchiveRepository.findById(testShipmentId)).thenReturn(Optional.of(archive(
+                archivedCheckpoint(archivedAt.minusSeconds(7200), ShipmentStatus.CREATED),
+                archivedCheckpoint(archivedAt.minusSeconds(3600), ShipmentStatus.DELIVERED))));
+
+        ShipmentDetailDto result = shipmentService.getShipment(testShipmentId, "user-123", false,
+                ShipmentView.LATEST_CHECKPOINT, null);
+
+        assertEquals(List.of("DELIVERED"), result.timeline().stream().map(CheckpointDto::status).toList());
+    }
+
+    @Test
+    void getShipment_whenTimelineNotArchived_shouldNotReadArchive() {
+        when(shipmentRepository.findById(testShipmentId)).thenReturn(Optional.of(testShipment));
+        when(checkpointRepository.findByShipmentIdAndTimestampGreaterThanEqualOrderByTimestampAsc(eq(testShipmentId), any())).thenReturn(List.of(testCheckpoint));
+
+        shipmentService.getShipment(testShipmentId, "user-123", false);
+
+        verifyNoInteractions(checkpointArchiveRepository);
+    }
+
+    @Test
+    void getTrackingInfo_withAfter_shouldReadTimeOrderedIdsWithoutCaching() {
+        UUID after = checkpointId(1);
+        Checkpoint legacy = Checkpoint.builder().id(UUID.randomUUID()).shipment(testShipment).timestamp(Instant.now()).build();
+        when(shipmentRepository.findByTrackingId("PKG-1234ABCD")).thenReturn(testShipment);
+        when(checkpointRepository.findByShipmentIdAndTimestampGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+                testShipmentId, testShipment.getCreatedAt().minus(1, ChronoUnit.DAYS), after))
+                .thenReturn(List.of(testCheckpoint, legacy));
+
+        ShipmentTrackingDto tracking = shipmentService.getTrackingInfo("PKG-1234ABCD", after);
+
+        assertEquals(List.of(CheckpointTrackingDto.from(testCheckpoint)), tracking.checkpoints());
+        verify(checkpointRepository, never()).findByShipmentIdAndTimestampGreaterThanEqualOrderByTimestampAsc(any(), any());
+        verify(trackingCache, never()).put(any(), any(), any(), any(), anyLong());
+    }
+
+    @Test
+    void getTrackingInfo_withAfter_whenCached_shouldReturnLaterWrittenCheckpointsInWriteOrder() {
+        Instant at = Instant.parse("2026-03-01T08:00:00Z");
+        ShipmentTrackingDto cached = new ShipmentTrackingDto("PKG-1234ABCD", "IN_TRANSIT", null, List.of(
+                new CheckpointTrackingDto(checkpointId(1), at, "CREATED", null, null, null),
+                new CheckpointTrackingDto(checkpointId(4), at.plusSeconds(30), "PICKED_UP", null, null, null),
+                new CheckpointTrackingDto(checkpointId(2), at.plusSeconds(60), "IN_TRANSIT", null, null, null),
+                new CheckpointTrackingDto(checkpointId(3), at.plusSeconds(60), "IN_TRANSIT", null, null, null)));
+        when(trackingCache.get("PKG-1234ABCD")).thenReturn(cached);
+
+        ShipmentTrackingDto tracking = shipmentService.getTrackingInfo("PKG-1234ABCD", checkpointId(2));
+
+        assertEquals("IN_TRANSIT", tracking.status());
+        assertEquals(List.of(cached.checkpoints().get(3), cached.checkpoints().get(1)), tracking.checkpoints());
+        verifyNoInteractions(shipmentRepository, checkpointRepository);
+    }
+
+    @Test
+    void getTrackingInfo_withCursorFromBeforeTimeOrderedIds_shouldReturnWholeTimeline() {
+        ShipmentTrackingDto cached = new ShipmentTrackingDto("PKG-1234ABCD", "IN_TRANSIT", null, List.of(
+                new CheckpointTrackingDto(UUID.randomUUID(), Instant.now(), "CREATED", null, null, null)));
+        when(trackingCache.get("PKG-1234ABCD")).thenReturn(cached);
+
+        assertSame(cached, shipmentService.getTrackingInfo("PKG-1234ABCD", UUID.randomUUID()));
+    }
+
+    @Test
+    void getShipment_withSummaryView_shouldOnlyReadHeadRow() {
+        when(shipmentRepository.findById(testShipmentId)).thenReturn(Optional.of(testShipment));
+
+        ShipmentDetailDto detail = shipmentService.getShipment(testShipmentId, "user-123", false, ShipmentView.SUMMARY, null);
+
+        assertNull(detail.timeline());
+        assertEquals("CREATED", detail.currentStatus());
+        verifyNoInteractions(checkpointRepository);
+    }
+
+    @Test
+    void getShipment_withLatestCheckpointView_shouldLoadOnlyNewestCheckpoint() {
+        when(shipmentRepository.findById(testShipmentId)).thenReturn(Optional.of(testShipment));
+        when(checkpointRepository.findFirstByShipmentIdOrderByTimestampDesc(testShipmentId))
+                .thenReturn(Optional.of(testCheckpoint));
+
+        ShipmentDetailDto detail = shipmentService.getShipment(
+                testShipmentId, "user-123", false, ShipmentView.LATEST_CHECKPOINT, null);
+
+        assertEquals(List.of(CheckpointDto.from(testCheckpoint)), detail.timeline());
+        verify(checkpointRepository, never()).findByShipmentIdAndTimestampGreaterThanEqualOrderByTimestampAsc(any(), any());
+    }
+
+    @Test
+    void getTrackingInfo_withSummaryView_shouldNotLoadOrCacheTimeline() {
+        when(shipmentRepository.findByTrackingId("PKG-1234ABCD")).thenReturn(testShipment);
+
+        ShipmentTrackingDto tracking = shipmentService.getTrackingInfo("PKG-1234ABCD", ShipmentView.SUMMARY, null);
+
+        assertNull(tracking.checkpoints());
+        verifyNoInteractions(checkpointRepository);
+        verify(trackingCache, never()).put(any(), any(), any(), any(), anyLong());
+    }
+
+    @Test
+    void getTrackingInfo_withLatestCheckpointView_whenCached_shouldCutCachedTimeline() {
+        Instant at = Instant.parse("2026-03-01T08:00:00Z");
+        ShipmentTrackingDto cached = new ShipmentTrackingDto("PKG-1234ABCD", "IN_TRANSIT", null, List.of(
+                new CheckpointTrackingDto(checkpointId(1), at, "PICKED_UP", null, null, null),
+                new CheckpointTrackingDto(checkpointId(2), at.plusSeconds(60), "IN_TRANSIT", null, null, null)));
+        when(trackingCache.get("PKG-1234ABCD")).thenReturn(cached);
+
+        ShipmentTrackingDto tracking = shipmentService.getTrackingInfo("PKG-1234ABCD", ShipmentView.LATEST_CHECKPOINT, null);
+
+        assertEquals(List.of(cached.checkpoints().get(1)), tracking.checkpoints());
+        verifyNoInteractions(shipmentRepository, checkpointRepository);
+    }
+
+    @Test
+    void getShipment_withAfter_shouldOnlyLoadLaterWrittenCheckpoints() {
+        UUID after = checkpointId(1);
+        when(shipmentRepository.findById(testShipmentId)).thenReturn(Optional.of(testShipment));
+        when(checkpointRepository.findByShipmentIdAndTimestampGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+                eq(testShipmentId), any(), eq(after))).thenReturn(List.of());
+
+        ShipmentDetailDto detail = shipmentService.getShipment(testShipmentId, "user-123", false, after);
+
+        assertTrue(detail.timeline().isEmpty());
+        assertEquals("CREATED", detail.currentStatus());
+        verify(checkpointRepository, never()).findByShipmentIdAndTimestampGreaterThanEqualOrderByTimestampAsc(any(), any());
+    }
+
+    @Test
+    void getTrackingVersion_whenCached_shouldNotQueryDatabase() {
+        Instant version = Instant.parse("2026-03-01T10:00:00Z");
+        when(trackingCache.version("PKG-1234ABCD")).thenReturn(version);
+
+        assertEquals(version, shipmentService.getTrackingVersion("PKG-1234ABCD"));
+        verifyNoInteractions(shipmentRepository);
+    }
+
+    @Test
+    void getTrackingVersion_whenUnknown_shouldThrowNotFound() {
+        when(shipmentRepository.findUpdatedAtByTrackingId("PKG-UNKNOWN0")).thenReturn(Optional.empty());
+
+        assertThrows(GlobalExceptionHandler.TrackingNotFoundException.class,
+                () -> shipmentService.getTrackingVersion("PKG-UNKNOWN0"));
+    }
+
+    @Test
+    void getShipmentVersion_whenNotOwner_shouldThrowAccessDenied() {
+        when(shipmentRepository.findVersionById(testShipmentId))
+                .thenReturn(Optional.of(new ShipmentVersion("user-123", testShipment.getUpdatedAt())));
+
+        assertEquals(testShipment.getUpdatedAt(), shipmentService.getShipmentVersion(testShipmentId, "user-123", false));
+        assertEquals(testShipment.getUpdatedAt(), shipmentService.getShipmentVersion(testShipmentId, "other", true));
+        assertThrows(GlobalExceptionHandler.AccessDeniedException.class,
+                () -> shipmentService.getShipmentVersion(testShipmentId, "other", false));
+    }
+
+    @Test
+    void getListVersion_withoutShipments_shouldReturnEpoch() {
+        when(shipmentRepository.findLatestUpdateByOwner("user-123")).thenReturn(null);
+
+        assertEquals(Instant.EPOCH, shipmentService.getListVersion("user-123"));
+    }
+
+    @Test
+    void getTrackingInfo_whenFilterRejects_shouldThrowWithoutQuery() {
+        when(trackingIdFilter.mightExist("PKG-UNKNOWN0")).thenReturn(false);
+
+        GlobalExceptionHandler.TrackingNotFoundException ex = assertThrows(
+                GlobalExceptionHandler.TrackingNotFoundException.class,
+                () -> shipmentService.getTrackingInfo("PKG-UNKNOWN0"));
+
+        assertEquals(0, ex.getStackTrace().length);
+        verifyNoInteractions(shipmentRepository, checkpointRepository, trackingCache);
+    }
+
+    @Test
+    void createShipment_shouldAddTrackingIdToFilter() {
+        ShipmentDetailDto result = shipmentService.createShipment(testCreateDto, "user-123");
+
+        verify(trackingIdFilter).add(result.trackingId());
+    }
+
+    @Test
+    void createShipment_whenTrackingIdTaken_shouldDrawAnother() {
+        when(shipmentRepository.existsByTrackingId(anyString())).thenReturn(true, false);
+
+        shipmentService.createShipment(testCreateDto, "user-123");
+
+        verify(shipmentRepository, times(2)).existsByTrackingId(anyString());
+        verify(shipmentRepository).save(any(Shipment.class));
+    }
+
+    @Test
+    void createShipment_whenNoTrackingIdFree_shouldFail() {
+        when(shipmentRepository.existsByTrackingId(anyString())).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> shipmentService.createShipment(testCreateDto, "user-123"));
+        verify(shipmentRepository, never()).save(any());
+    }
+
+    /**
+     * Time-ordered (version 7) checkpoint id, ordered by {@code n}.
+     */
+    private static UUID checkpointId(long n) {
+        return new UUID(0x0190_0000_0000_7000L | n, 0x8000_0000_0000_0000L);
+    }
+
+    private ShipmentListItemDto listItem(Instant at) {
+        return new ShipmentListItemDto(UUID.randomUUID(), "PKG-1234ABCD", "Test Sender", "Test Receiver",
+                "IN_TRANSIT", null, at, at.plusSeconds(60));
+    }
+
+    private TrackingUpdate trackingUpdate(UUID shipmentId, String status, Double lat, Double lng) {
+        TrackingUpdate update = new TrackingUpdate();
+        update.setShipmentId(shipmentId);
+        update.setStatus(status);
+        update.setMessage("Package scanned");
+        update.setLat(lat);
+        update.setLng(lng);
+        update.setTimestamp(Instant.now());
+        return update;
+    }
+
+    private TrackingView trackingView(int checkpointCount) {
+        return TrackingView.builder()
+                .shipmentId(testShipmentId)
+                .trackingId("PKG-1234ABCD")
+                .status(ShipmentStatus.IN_TRANSIT)
+                .checkpointCount(checkpointCount)
+                .timeline(new byte[0])
+                .updatedAt(Instant.parse("2026-03-01T08:01:00Z"))
+                .build();
+    }
+
+    private CheckpointArchive archive(Checkpoint... checkpoints) {
+        return CheckpointArchive.builder()
+                .shipmentId(testShipmentId)
+                .checkpointCount(checkpoints.length)
+                .data(CheckpointArchiveCodec.encode(List.of(checkpoints)))
+                .archivedAt(Instant.now())
+                .build();
+    }
 
-        assertTrue(result.isEmpty());
+    private static Checkpoint archivedCheckpoint(Instant timestamp, ShipmentStatus status) {
+        return Checkpoint.builder().timestamp(timestamp).status(status).build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+package de.hskl.shipmentservice;
+
+import de.hskl.shipmentservice.dto.ShipmentTrackingDto;
+import de.hskl.shipmentservice.service.TrackingCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrackingCacheTest {
+    private static final Instant VERSION = Instant.parse("2026-03-01T10:00:00Z");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TrackingCache cache = new TrackingCache(meterRegistry, true, 2, 60_000);
+
+    @Test
+    void get_shouldCountHitsAndMisses() {
+        UUID shipmentId = UUID.randomUUID();
+        cache.put("PKG-1", shipmentId, VERSION, tracking("PKG-1"), cache.stamp());
+
+        assertNotNull(cache.get("PKG-1"));
+        assertNull(cache.get("PKG-2"));
+        assertEquals(VERSION, cache.version("PKG-1"));
+
+        assertEquals(1.0, meterRegistry.get("shipment.tracking_cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("shipment.tracking_cache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void put_shouldEvictLeastRecentlyUsedBeyondMaxSize() {
+        cache.put("PKG-1", UUID.randomUUID(), VERSION, tracking("PKG-1"), cache.stamp());
+        cache.put("PKG-2", UUID.randomUUID(), VERSION, tracking("PKG-2"), cache.stamp());
+        cache.get("PKG-1");
+        cache.put("PKG-3", UUID.randomUUID(), VERSION, tracking("PKG-3"), cache.stamp());
+
+        assertNotNull(cache.get("PKG-1"));
+        assertNull(cache.get("PKG-2"));
+        assertEquals(1.0, meterRegistry.get("shipment.tracking_cache.evictions").counter().count());
+    }
+
+    @Test
+    void get_afterTtl_shouldDropEntry() throws InterruptedException {
+        TrackingCache cache = new TrackingCache(meterRegistry, true, 2, 1);
+        cache.put("PKG-1", UUID.randomUUID(), VERSION, tracking("PKG-1"), cache.stamp());
+
+        Thread.sleep(5);
+
+        assertNull(cache.version("PKG-1"));
+        assertNull(cache.get("PKG-1"));
+    }
+
+    @Test
+    void invalidate_shouldDropEntryOfShipment() {
+        UUID shipmentId = UUID.randomUUID();
+        cache.put("PKG-1", shipmentId, VERSION, tracking("PKG-1"), cache.stamp());
+
+        cache.invalidate(shipmentId);
+
+        assertNull(cache.get("PKG-1"));
+    }
+
+    @Test
+    void put_shouldIgnoreResponseReadBeforeInvalidation() {
+        UUID shipmentId = UUID.randomUUID();
+        long stamp = cache.stamp();
+
+        cache.invalidate(shipmentId);
+        cache.put("PKG-1", shipmentId, VERSION, tracking("PKG-1"), stamp);
+        assertNull(cache.get("PKG-1"));
+
+        cache.put("PKG-1", shipmentId, VERSION, tracking("PKG-1"), cache.stamp());
+        assertNotNull(cache.get("PKG-1"));
+    }
+
+    private ShipmentTrackingDto tracking(String trackingId) {
+        return new ShipmentTrackingDto(trackingId, "IN_TRANSIT", null, List.of());
+    }
+}
@@ -0,0 +1,125 @@
+package de.hskl.shipmentservice;
+
+import de.hskl.shipmentservice.repository.ShipmentRepository;
+import de.hskl.shipmentservice.service.TrackingIdFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TrackingIdFilterTest {
+    @Mock
+    private ShipmentRepository shipmentRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TrackingIdFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        filter = new TrackingIdFilter(shipmentRepository, transactionTemplate, meterRegistry, true, 10_000, 0.01);
+    }
+
+    @Test
+    void mightExist_beforeLoad_shouldAllowEveryId() {
+        assertTrue(filter.mightExist("PKG-UNKNOWN0"));
+        verifyNoInteractions(shipmentRepository);
+    }
+
+    @Test
+    void refresh_shouldRejectIdsThatWereNeverIssued() {
+        List<String> issued = IntStream.range(0, 10_000).mapToObj(i -> "PKG-" + String.format("%08d", i)).toList();
+        when(shipmentRepository.streamTrackingIdsCreatedSince(any()))
+                .thenReturn(issued.stream())
+                .thenAnswer(invocation -> Stream.empty());
+
+        filter.refresh();
+
+        assertTrue(issued.stream().allMatch(filter::mightExist));
+        long falsePositives = IntStream.range(0, 10_000)
+                .filter(i -> filter.mightExist("PKG-X" + String.format("%07d", i)))
+                .count();
+        assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+        assertEquals(10_000 - falsePositives,
+                meterRegistry.get("shipment.tracking_filter.rejected").counter().count());
+    }
+
+    @Test
+    void add_shouldMakeNewIdVisibleImmediately() {
+        when(shipmentRepository.streamTrackingIdsCreatedSince(any())).thenReturn(Stream.empty());
+        filter.refresh();
+
+        filter.add("PKG-NEW00001");
+
+        assertTrue(filter.mightExist("PKG-NEW00001"));
+    }
+
+    @Test
+    void refresh_afterLoad_shouldOnlyReadRecentlyCreatedIds() {
+        when(shipmentRepository.streamTrackingIdsCreatedSince(any()))
+                .thenReturn(Stream.empty())
+                .thenReturn(Stream.of("PKG-REPLICA1"));
+        Instant before = Instant.now();
+
+        filter.refresh();
+        filter.refresh();
+
+        ArgumentCaptor<Instant> since = ArgumentCaptor.forClass(Instant.class);
+        verify(shipmentRepository, times(2)).streamTrackingIdsCreatedSince(since.capture());
+        assertEquals(Instant.EPOCH, since.getAllValues().get(0));
+        assertTrue(since.getAllValues().get(1).isAfter(before.minusSeconds(120)));
+        assertTrue(filter.mightExist("PKG-REPLICA1"));
+    }
+
+    @Test
+    void mightExist_withIdCreatedByOtherReplicaSinceRefresh_shouldReadRecentIdsBeforeRejecting() {
+        when(shipmentRepository.streamTrackingIdsCreatedSince(any()))
+                .thenReturn(Stream.empty())
+                .thenReturn(Stream.of("PKG-REPLICA1"))
+                .thenReturn(Stream.empty());
+        filter.refresh();
+
+        assertTrue(filter.mightExist("PKG-REPLICA1"));
+        assertFalse(filter.mightExist("PKG-UNKNOWN0"));
+
+        ArgumentCaptor<Instant> since = ArgumentCaptor.forClass(Instant.class);
+        verify(shipmentRepository, times(3)).streamTrackingIdsCreatedSince(since.capture());
+        assertTrue(since.getAllValues().get(1).isAfter(Instant.now().minusSeconds(120)));
+    }
+
+    @Test
+    void refresh_shouldNotCountIdsReadAgainByTheOverlap() {
+        when(shipmentRepository.streamTrackingIdsCreatedSince(any()))
+                .thenReturn(Stream.of("PKG-00000001", "PKG-00000002"))
+                .thenReturn(Stream.of("PKG-00000002"))
+                .thenReturn(Stream.of("PKG-00000002", "PKG-00000003"));
+
+        filter.refresh();
+        filter.refresh();
+        filter.refresh();
+
+        assertEquals(3, meterRegistry.get("shipment.tracking_filter.ids").gauge().value());
+    }
+}
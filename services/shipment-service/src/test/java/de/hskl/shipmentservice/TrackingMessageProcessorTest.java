@@ -0,0 +1,207 @@
+package de.hskl.shipmentservice;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Timestamp;
+import com.google.pubsub.v1.PubsubMessage;
+import de.hskl.shipmentservice.PubSub.IngestMode;
+import de.hskl.shipmentservice.PubSub.TrackingMessageProcessor;
+import de.hskl.shipmentservice.PubSub.TrackingUpdateCodec;
+import de.hskl.shipmentservice.config.PubSubSubscriberProperties;
+import de.hskl.shipmentservice.entity.TrackingUpdate;
+import de.hskl.shipmentservice.service.QuarantineService;
+import de.hskl.shipmentservice.service.ShipmentService;
+import de.hskl.shipmentservice.service.TrackingEventDeduplicator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TrackingMessageProcessorTest {
+    @Mock
+    private ShipmentService shipmentService;
+    @Mock
+    private QuarantineService quarantineService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PubSubSubscriberProperties.Retry retry = new PubSubSubscriberProperties.Retry(3, 10, 100);
+
+    private TrackingEventDeduplicator deduplicator;
+    private TrackingMessageProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        deduplicator = new TrackingEventDeduplicator(meterRegistry, 1000);
+        processor = new TrackingMessageProcessor(shipmentService, new TrackingUpdateCodec(), quarantineService, deduplicator,
+                new PubSubSubscriberProperties("test-sub", IngestMode.INLINE, null, null, null, 1, 1, retry));
+    }
+
+    @AfterEach
+    void tearDown() {
+        processor.shutdown();
+    }
+
+    @Test
+    void handle_shouldAckAppliedMessage() {
+        BasicAcknowledgeablePubsubMessage message = message("m-1", payload(UUID.randomUUID()));
+
+        processor.handle(message);
+
+        verify(shipmentService).updateShipment(any());
+        verify(message).ack();
+        verifyNoInteractions(quarantineService);
+    }
+
+    @Test
+    void handle_withoutTimestamp_shouldTakePublishTimeAsEventTime() {
+        BasicAcknowledgeablePubsubMessage message = mock(BasicAcknowledgeablePubsubMessage.class);
+        when(message.getPubsubMessage()).thenReturn(PubsubMessage.newBuilder()
+                .setMessageId("m-1")
+                .setData(ByteString.copyFromUtf8(payload(UUID.randomUUID())))
+                .setPublishTime(Timestamp.newBuilder().setSeconds(1_767_261_600L).setNanos(5_000_000))
+                .build());
+
+        processor.handle(message);
+
+        verify(shipmentService).updateShipment(argThat(update ->
+                Instant.parse("2026-01-01T10:00:00.005Z").equals(update.getTimestamp())));
+        verify(message).ack();
+    }
+
+    @Test
+    void handle_withUnreadablePayload_shouldQuarantineAndAck() {
+        BasicAcknowledgeablePubsubMessage message = message("m-1", "not json");
+
+        processor.handle(message);
+
+        verify(quarantineService).quarantine(eq("m-1"), any(), eq("not json".getBytes()), isA(JsonParseException.class), eq(1));
+        verify(message).ack();
+        verify(message, never()).nack();
+        verifyNoInteractions(shipmentService);
+    }
+
+    @Test
+    void handle_withNullPayload_shouldQuarantineAndAck() {
+        BasicAcknowledgeablePubsubMessage message = message("m-1", "null");
+
+        processor.handle(message);
+
+        verify(quarantineService).quarantine(eq("m-1"), any(), eq("null".getBytes()), isA(MismatchedInputException.class), eq(1));
+        verify(message).ack();
+        verify(message, never()).nack();
+        verifyNoInteractions(shipmentService);
+    }
+
+    @Test
+    void handle_withUnknownShipment_shouldQuarantineAndAck() {
+        doThrow(new EntityNotFoundException("Shipment not found")).when(shipmentService).updateShipment(any());
+        BasicAcknowledgeablePubsubMessage message = message("m-1", payload(UUID.randomUUID()));
+
+        processor.handle(message);
+
+        verify(quarantineService).quarantine(eq("m-1"), any(), any(), isA(EntityNotFoundException.class), eq(1));
+        verify(message).ack();
+    }
+
+    @Test
+    void handle_withRetryableFailure_shouldNackWithBackoffUntilMaxAttempts() {
+        doThrow(new QueryTimeoutException("DB busy")).when(shipmentService).updateShipment(any());
+        BasicAcknowledgeablePubsubMessage message = message("m-1", payload(UUID.randomUUID()));
+
+        processor.handle(message);
+        processor.handle(message);
+        verify(message, timeout(1000).times(2)).nack();
+        verifyNoInteractions(quarantineService);
+
+        processor.handle(message);
+
+        verify(quarantineService).quarantine(eq("m-1"), any(), any(), isA(QueryTimeoutException.class), eq(3));
+        verify(message).ack();
+    }
+
+    @Test
+    void process_shouldReportOutcomeForPushDelivery() {
+        UUID shipmentId = UUID.randomUUID();
+        doThrow(new QueryTimeoutException("DB busy")).doNothing().when(shipmentService).updateShipment(any());
+
+        assertEquals(TrackingMessageProcessor.Outcome.RETRY, processor.process("m-1", null, payload(shipmentId).getBytes()));
+        assertEquals(TrackingMessageProcessor.Outcome.APPLIED, processor.process("m-1", null, payload(shipmentId).getBytes()));
+        assertEquals(TrackingMessageProcessor.Outcome.QUARANTINED, processor.process("m-2", null, "[]".getBytes()));
+    }
+
+    @Test
+    void handle_shouldDropRedeliveredMessageBeforeTouchingTheDatabase() {
+        BasicAcknowledgeablePubsubMessage first = message("m-1", payload(UUID.randomUUID()));
+        BasicAcknowledgeablePubsubMessage redelivery = message("m-1", payload(UUID.randomUUID()));
+        doAnswer(invocation -> {
+            TrackingUpdate update = invocation.getArgument(0);
+            deduplicator.remember(update.getEventId());
+            return null;
+        }).when(shipmentService).updateShipment(any());
+
+        processor.handle(first);
+        processor.handle(redelivery);
+
+        verify(shipmentService, times(1)).updateShipment(any());
+        verify(redelivery).ack();
+        assertEquals(1.0, meterRegistry.get("shipment.ingest.dedupe").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("shipment.ingest.dedupe").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void handle_whenConcurrentRedeliveryHitsUniqueIndex_shouldAck() {
+        doThrow(new DataIntegrityViolationException("ux_checkpoints_event_id")).when(shipmentService).updateShipment(any());
+        when(shipmentService.isEventApplied(any())).thenReturn(true);
+        BasicAcknowledgeablePubsubMessage message = message("m-1", payload(UUID.randomUUID()));
+
+        processor.handle(message);
+
+        verify(message).ack();
+        verifyNoInteractions(quarantineService);
+    }
+
+    @Test
+    void isPermanent_shouldInspectCauseChain() {
+        assertTrue(TrackingMessageProcessor.isPermanent(new RuntimeException(new EntityNotFoundException("gone"))));
+        assertTrue(TrackingMessageProcessor.isPermanent(new DataIntegrityViolationException("status null")));
+        assertFalse(TrackingMessageProcessor.isPermanent(new QueryTimeoutException("DB busy")));
+        assertFalse(TrackingMessageProcessor.isPermanent(new RuntimeException("unknown")));
+    }
+
+    @Test
+    void backoff_shouldGrowExponentiallyAndBeCapped() {
+        assertEquals(10, retry.backoffMs(1));
+        assertEquals(40, retry.backoffMs(3));
+        assertEquals(100, retry.backoffMs(10));
+        assertEquals(100, retry.backoffMs(Integer.MAX_VALUE));
+    }
+
+    private BasicAcknowledgeablePubsubMessage message(String messageId, String data) {
+        BasicAcknowledgeablePubsubMessage message = mock(BasicAcknowledgeablePubsubMessage.class);
+        when(message.getPubsubMessage()).thenReturn(PubsubMessage.newBuilder()
+                .setMessageId(messageId)
+                .setData(ByteString.copyFromUtf8(data))
+                .build());
+        return message;
+    }
+
+    private String payload(UUID shipmentId) {
+        return "{\"shipmentId\":\"" + shipmentId + "\",\"status\":\"IN_TRANSIT\"}";
+    }
+}
@@ -0,0 +1,191 @@
+package de.hskl.shipmentservice;
+
+import de.hskl.shipmentservice.dto.CheckpointTrackingDto;
+import de.hskl.shipmentservice.exceptions.GlobalExceptionHandler;
+import de.hskl.shipmentservice.service.TrackingStreamRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrackingStreamRegistryTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TrackingStreamRegistry registry = new TrackingStreamRegistry(meterRegistry, 2, 4, 60_000);
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void publish_shouldSendBacklogThenNewCheckpointsToSubscribersOfShipment() throws Exception {
+        UUID shipmentId = UUID.randomUUID();
+        RecordingEmitter emitter = new RecordingEmitter();
+        RecordingEmitter other = new RecordingEmitter();
+        registry.subscribe(shipmentId, emitter, () -> List.of(checkpoint(1)));
+        registry.subscribe(UUID.randomUUID(), other, List::of);
+
+        registry.publish(shipmentId, checkpoint(2));
+
+        assertEquals(checkpoint(1), emitter.next());
+        assertEquals(checkpoint(2), emitter.next());
+        assertNull(other.events.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(1.0, meterRegistry.get("shipment.tracking_stream.events").counter().count());
+    }
+
+    @Test
+    void resend_shouldSkipCheckpointsAlreadySentUntilForgotten() throws Exception {
+        UUID shipmentId = UUID.randomUUID();
+        RecordingEmitter emitter = new RecordingEmitter();
+        registry.subscribe(shipmentId, emitter, List::of);
+        registry.publish(shipmentId, checkpoint(1));
+
+        registry.resend(shipmentId, List.of(checkpoint(1), checkpoint(2)));
+
+        assertEquals(checkpoint(1), emitter.next());
+        assertEquals(checkpoint(2), emitter.next());
+        assertNull(emitter.events.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(List.of(shipmentId), registry.shipmentIds());
+
+        registry.forget(Instant.EPOCH.plusMillis(1));
+        registry.resend(shipmentId, List.of(checkpoint(2)));
+        assertEquals(checkpoint(2), emitter.next());
+    }
+
+    @Test
+    void publish_withoutSubscribers_shouldDoNothing() {
+        registry.publish(UUID.randomUUID(), checkpoint(1));
+
+        assertEquals(0.0, meterRegistry.get("shipment.tracking_stream.events").counter().count());
+    }
+
+    @Test
+    void publish_whenBufferOfSlowConsumerIsFull_shouldEvictIt() {
+        UUID shipmentId = UUID.randomUUID();
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(release);
+        registry.subscribe(shipmentId, emitter, List::of);
+
+        for (int i = 0; i < 6; i++) {
+            registry.publish(shipmentId, checkpoint(i));
+        }
+        release.countDown();
+
+        assertEquals(0, registry.size());
+        assertEquals(1.0, evictions("slow"));
+    }
+
+    @Test
+    void send_whenWriteFails_shouldEvictSubscriber() throws Exception {
+        UUID shipmentId = UUID.randomUUID();
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.failing = true;
+        registry.subscribe(shipmentId, emitter, List::of);
+        registry.publish(shipmentId, checkpoint(1));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (evictions("error") == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, registry.size());
+        assertEquals(1.0, evictions("error"));
+    }
+
+    @Test
+    void subscribe_withBacklogLongerThanBuffer_shouldSendAllOfItInOrder() throws Exception {
+        UUID shipmentId = UUID.randomUUID();
+        RecordingEmitter emitter = new RecordingEmitter();
+        List<CheckpointTrackingDto> backlog = IntStream.range(0, 10).mapToObj(TrackingStreamRegistryTest::checkpoint).toList();
+
+        registry.subscribe(shipmentId, emitter, () -> backlog);
+        registry.publish(shipmentId, checkpoint(10));
+
+        for (int i = 0; i <= 10; i++) {
+            assertEquals(checkpoint(i), emitter.next());
+        }
+        assertEquals(1, registry.size());
+        assertEquals(0.0, evictions("slow"));
+    }
+
+    @Test
+    void subscribe_whenBacklogFails_shouldReleaseTheSlot() {
+        assertThrows(IllegalStateException.class, () -> registry.subscribe(UUID.randomUUID(), new RecordingEmitter(),
+                () -> {
+                    throw new IllegalStateException("DB down");
+                }));
+
+        assertEquals(0, registry.size());
+        assertEquals(List.of(), registry.shipmentIds());
+    }
+
+    @Test
+    void subscribe_beyondMaxSubscribers_shouldBeRejected() {
+        registry.subscribe(UUID.randomUUID(), new RecordingEmitter(), List::of);
+        registry.subscribe(UUID.randomUUID(), new RecordingEmitter(), List::of);
+
+        assertThrows(GlobalExceptionHandler.ServiceUnavailableException.class,
+                () -> registry.subscribe(UUID.randomUUID(), new RecordingEmitter(), List::of));
+        assertEquals(2, registry.size());
+    }
+
+    private double evictions(String reason) {
+        return meterRegistry.get("shipment.tracking_stream.evictions").tag("reason", reason).counter().count();
+    }
+
+    private static CheckpointTrackingDto checkpoint(int second) {
+        return new CheckpointTrackingDto(new UUID(0, second), Instant.parse("2026-03-01T08:00:00Z").plusSeconds(second),
+                "IN_TRANSIT", null, 50.0, 8.0);
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+        private final CountDownLatch release;
+        private volatile boolean failing;
+
+        RecordingEmitter() {
+            this(new CountDownLatch(0));
+        }
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            List<Object> checkpoints = builder.build().stream()
+                    .map(DataWithMediaType::getData)
+                    .filter(CheckpointTrackingDto.class::isInstance)
+                    .toList();
+            if (checkpoints.isEmpty()) {
+                return;
+            }
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            events.addAll(checkpoints);
+        }
+
+        Object next() throws InterruptedException {
+            return Objects.requireNonNull(events.poll(5, TimeUnit.SECONDS), "no event within 5 s");
+        }
+    }
+}
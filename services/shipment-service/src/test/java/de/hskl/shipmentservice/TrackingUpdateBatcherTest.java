@@ -0,0 +1,187 @@
+package de.hskl.shipmentservice;
+
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import de.hskl.shipmentservice.PubSub.IngestMode;
+import de.hskl.shipmentservice.PubSub.TrackingMessageProcessor;
+import de.hskl.shipmentservice.PubSub.TrackingUpdateBatcher;
+import de.hskl.shipmentservice.PubSub.TrackingUpdateCodec;
+import de.hskl.shipmentservice.config.PubSubSubscriberProperties;
+import de.hskl.shipmentservice.service.QuarantineService;
+import de.hskl.shipmentservice.service.ShipmentService;
+import de.hskl.shipmentservice.service.TrackingEventDeduplicator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TrackingUpdateBatcherTest {
+    @Mock
+    private ShipmentService shipmentService;
+    @Mock
+    private QuarantineService quarantineService;
+
+    private TrackingUpdateBatcher batcher;
+
+    @BeforeEach
+    void setUp() {
+        PubSubSubscriberProperties properties = new PubSubSubscriberProperties(
+                "test-sub", IngestMode.BATCH, new PubSubSubscriberProperties.Batch(3, 20), null, null, 1, 1,
+                new PubSubSubscriberProperties.Retry(5, 10, 100));
+        batcher = new TrackingUpdateBatcher(
+                new TrackingMessageProcessor(shipmentService, new TrackingUpdateCodec(), quarantineService,
+                        new TrackingEventDeduplicator(new SimpleMeterRegistry(), 1000), properties),
+                properties);
+        batcher.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        batcher.stop();
+    }
+
+    @Test
+    void enqueue_shouldApplyFullWindowInOneCallAndAckAfterwards() {
+        when(shipmentService.applyTrackingUpdates(anyList())).thenReturn(Set.of());
+        List<BasicAcknowledgeablePubsubMessage> messages = List.of(
+                message(UUID.randomUUID()), message(UUID.randomUUID()), message(UUID.randomUUID()));
+
+        messages.forEach(batcher::enqueue);
+
+        verify(shipmentService, timeout(1000).times(1)).applyTrackingUpdates(argThat(updates -> updates.size() == 3));
+        messages.forEach(message -> verify(message, timeout(1000)).ack());
+    }
+
+    @Test
+    void enqueue_shouldFlushPartialWindowAfterLinger() {
+        when(shipmentService.applyTrackingUpdates(anyList())).thenReturn(Set.of());
+        BasicAcknowledgeablePubsubMessage message = message(UUID.randomUUID());
+
+        batcher.enqueue(message);
+
+        verify(shipmentService, timeout(1000).times(1)).applyTrackingUpdates(argThat(updates -> updates.size() == 1));
+        verify(message, timeout(1000)).ack();
+    }
+
+    @Test
+    void enqueue_shouldQuarantineUnknownShipmentsOnly() {
+        UUID unknownId = UUID.randomUUID();
+        when(shipmentService.applyTrackingUpdates(anyList())).thenReturn(Set.of(unknownId));
+        BasicAcknowledgeablePubsubMessage known = message(UUID.randomUUID());
+        BasicAcknowledgeablePubsubMessage unknown = message(unknownId);
+
+        batcher.enqueue(known);
+        batcher.enqueue(unknown);
+
+        verify(known, timeout(1000)).ack();
+        verify(unknown, timeout(1000)).ack();
+        verify(quarantineService).quarantine(any(), any(), any(), isA(EntityNotFoundException.class), eq(1));
+        verify(quarantineService, times(1)).quarantine(any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void enqueue_whenTransactionFails_shouldRetryMessagesOneByOne() {
+        when(shipmentService.applyTrackingUpdates(anyList())).thenThrow(new RuntimeException("DB down"));
+        doThrow(new RuntimeException("DB down")).when(shipmentService).updateShipment(any());
+        BasicAcknowledgeablePubsubMessage first = message(UUID.randomUUID());
+        BasicAcknowledgeablePubsubMessage second = message(UUID.randomUUID());
+
+        batcher.enqueue(first);
+        batcher.enqueue(second);
+
+        verify(first, timeout(1000)).nack();
+        verify(second, timeout(1000)).nack();
+        verify(shipmentService, times(2)).updateShipment(any());
+        verify(first, never()).ack();
+        verify(second, never()).ack();
+    }
+
+    @Test
+    void enqueue_whenBatchFailsOnOneMessage_shouldAckTheOthers() {
+        UUID poisoned = UUID.randomUUID();
+        when(shipmentService.applyTrackingUpdates(anyList())).thenThrow(new IllegalArgumentException("bad update"));
+        lenient().doThrow(new IllegalArgumentException("bad update")).when(shipmentService)
+                .updateShipment(argThat(update -> poisoned.equals(update.getShipmentId())));
+        BasicAcknowledgeablePubsubMessage valid = message(UUID.randomUUID());
+        BasicAcknowledgeablePubsubMessage poison = message(poisoned);
+
+        batcher.enqueue(valid);
+        batcher.enqueue(poison);
+
+        verify(valid, timeout(1000)).ack();
+        verify(poison, timeout(1000)).ack();
+        verify(quarantineService).quarantine(any(), any(), any(), isA(IllegalArgumentException.class), eq(1));
+        verify(poison, never()).nack();
+    }
+
+    @Test
+    void enqueue_withNullPayload_shouldQuarantineItAndApplyTheOthers() {
+        when(shipmentService.applyTrackingUpdates(anyList())).thenReturn(Set.of());
+        BasicAcknowledgeablePubsubMessage valid = message(UUID.randomUUID());
+        BasicAcknowledgeablePubsubMessage empty = mock(BasicAcknowledgeablePubsubMessage.class);
+        when(empty.getPubsubMessage()).thenReturn(PubsubMessage.newBuilder()
+                .setMessageId("m-null").setData(ByteString.copyFromUtf8("null")).build());
+
+        batcher.enqueue(empty);
+        batcher.enqueue(valid);
+
+        verify(valid, timeout(1000)).ack();
+        verify(empty, timeout(1000)).ack();
+        verify(quarantineService).quarantine(eq("m-null"), any(), any(), any(), eq(1));
+        verify(shipmentService).applyTrackingUpdates(argThat(updates -> updates.size() == 1));
+    }
+
+    @Test
+    void enqueue_whenWindowFailsUnexpectedly_shouldKeepFlushing() {
+        when(shipmentService.applyTrackingUpdates(anyList())).thenReturn(Set.of());
+        BasicAcknowledgeablePubsubMessage broken = mock(BasicAcknowledgeablePubsubMessage.class);
+        when(broken.getPubsubMessage()).thenThrow(new IllegalStateException("broken message"));
+
+        batcher.enqueue(broken);
+        verify(broken, timeout(1000)).nack();
+
+        BasicAcknowledgeablePubsubMessage valid = message(UUID.randomUUID());
+        batcher.enqueue(valid);
+        verify(valid, timeout(1000)).ack();
+    }
+
+    private BasicAcknowledgeablePubsubMessage message(UUID shipmentId) {
+        BasicAcknowledgeablePubsubMessage message = mock(BasicAcknowledgeablePubsubMessage.class);
+        when(message.getPubsubMessage()).thenReturn(PubsubMessage.newBuilder()
+                .setMessageId(UUID.randomUUID().toString())
+                .setData(ByteString.copyFromUtf8(
+                        "{\"shipmentId\":\"" + shipmentId + "\",\"status\":\"IN_TRANSIT\"}"))
+                .build());
+        return message;
+    }
+
+    @Test
+    void enqueue_shouldQuarantineUnreadableMessageWithoutFailingWindow() {
+        when(shipmentService.applyTrackingUpdates(anyList())).thenReturn(Set.of());
+        BasicAcknowledgeablePubsubMessage valid = message(UUID.randomUUID());
+        BasicAcknowledgeablePubsubMessage unreadable = mock(BasicAcknowledgeablePubsubMessage.class);
+        when(unreadable.getPubsubMessage()).thenReturn(PubsubMessage.newBuilder()
+                .setData(ByteString.copyFromUtf8("not json"))
+                .build());
+
+        batcher.enqueue(valid);
+        batcher.enqueue(unreadable);
+
+        verify(valid, timeout(1000)).ack();
+        verify(unreadable, timeout(1000)).ack();
+        verify(quarantineService).quarantine(any(), any(), any(), any(), eq(1));
+    }
+}
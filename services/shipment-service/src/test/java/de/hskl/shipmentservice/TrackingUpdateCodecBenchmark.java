@@ -0,0 +1,74 @@
+package de.hskl.shipmentservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.protobuf.ByteString;
+import de.hskl.shipmentservice.PubSub.TrackingUpdateCodec;
+import de.hskl.shipmentservice.entity.TrackingUpdate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the former per-message decode path (String copy + new ObjectMapper) with {@link TrackingUpdateCodec}.
+ * Run with {@code mvn test -Dtest=TrackingUpdateCodecBenchmark -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class TrackingUpdateCodecBenchmark {
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 50_000;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final ByteString data = ByteString.copyFromUtf8("{\"shipmentId\":\"" + UUID.randomUUID()
+            + "\",\"status\":\"IN_TRANSIT\",\"message\":\"Package scanned at hub\",\"lat\":50.1109,\"lng\":8.6821,"
+            + "\"timestamp\":\"2026-01-01T10:00:00Z\"}");
+
+    @Test
+    void codecAllocatesAndSpendsLessPerMessage() throws Exception {
+        TrackingUpdateCodec codec = new TrackingUpdateCodec();
+
+        Result legacy = measure(() -> {
+            ObjectMapper mapper = new ObjectMapper();
+            mapper.registerModule(new JavaTimeModule());
+            return mapper.readValue(data.toStringUtf8(), TrackingUpdate.class);
+        });
+        Result shared = measure(() -> codec.decode(data));
+
+        System.out.printf("legacy: %,d B/msg, %,d ns cpu/msg%n", legacy.bytesPerMessage(), legacy.cpuNanosPerMessage());
+        System.out.printf("codec:  %,d B/msg, %,d ns cpu/msg%n", shared.bytesPerMessage(), shared.cpuNanosPerMessage());
+
+        assertTrue(shared.bytesPerMessage() * 10 < legacy.bytesPerMessage());
+        assertTrue(shared.cpuNanosPerMessage() < legacy.cpuNanosPerMessage());
+    }
+
+    private Result measure(Decoder decoder) throws Exception {
+        Object sink = null;
+        for (int i = 0; i < WARMUP; i++) {
+            sink = decoder.decode();
+        }
+
+        long bytes = threads.getCurrentThreadAllocatedBytes();
+        long cpu = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = decoder.decode();
+        }
+        cpu = threads.getCurrentThreadCpuTime() - cpu;
+        bytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+
+        assertTrue(sink != null);
+        return new Result(bytes / ITERATIONS, cpu / ITERATIONS);
+    }
+
+    private interface Decoder {
+        TrackingUpdate decode() throws Exception;
+    }
+
+    private record Result(long bytesPerMessage, long cpuNanosPerMessage) {
+    }
+}
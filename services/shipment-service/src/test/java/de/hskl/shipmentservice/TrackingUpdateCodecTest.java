@@ -0,0 +1,79 @@
+package de.hskl.shipmentservice;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.protobuf.ByteString;
+import de.hskl.shipmentservice.PubSub.TrackingUpdateCodec;
+import de.hskl.shipmentservice.entity.TrackingUpdate;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrackingUpdateCodecTest {
+    private final TrackingUpdateCodec codec = new TrackingUpdateCodec();
+
+    private final UUID shipmentId = UUID.randomUUID();
+    private final String payload = "{\"shipmentId\":\"" + shipmentId + "\",\"status\":\"IN_TRANSIT\","
+            + "\"message\":\"Package scanned\",\"lat\":50.0,\"lng\":8.0,\"timestamp\":\"2026-01-01T10:00:00Z\"}";
+
+    @Test
+    void decode_fromByteString_shouldReadAllFields() throws Exception {
+        TrackingUpdate update = codec.decode(ByteString.copyFromUtf8(payload));
+
+        assertEquals(shipmentId, update.getShipmentId());
+        assertEquals("IN_TRANSIT", update.getStatus());
+        assertEquals("Package scanned", update.getMessage());
+        assertEquals(50.0, update.getLat());
+        assertEquals(8.0, update.getLng());
+        assertEquals(Instant.parse("2026-01-01T10:00:00Z"), update.getTimestamp());
+    }
+
+    @Test
+    void decode_fromBytes_shouldIgnoreUnknownFields() throws Exception {
+        String withExtraField = payload.replace("{", "{\"source\":\"station-7\",");
+
+        TrackingUpdate update = codec.decode(withExtraField.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(shipmentId, update.getShipmentId());
+    }
+
+    @Test
+    void decode_withInvalidPayload_shouldThrowJsonProcessingException() {
+        assertThrows(JsonProcessingException.class,
+                () -> codec.decode(ByteString.copyFromUtf8("{\"shipmentId\":\"invalid-uuid\"}")));
+    }
+
+    @Test
+    void decode_withNullPayload_shouldThrowJsonProcessingException() {
+        assertThrows(JsonProcessingException.class, () -> codec.decode(ByteString.copyFromUtf8("null"), "m-1", null));
+        assertThrows(JsonProcessingException.class, () -> codec.decode("null".getBytes(StandardCharsets.UTF_8), "m-1", null));
+    }
+
+    @Test
+    void decode_withoutTimestamp_shouldTakePublishTime() throws Exception {
+        Instant publishTime = Instant.parse("2026-01-01T09:59:58Z");
+        String withoutTimestamp = payload.replace(",\"timestamp\":\"2026-01-01T10:00:00Z\"", "");
+
+        TrackingUpdate redelivery = codec.decode(ByteString.copyFromUtf8(withoutTimestamp), "m-1", publishTime);
+
+        assertEquals(publishTime, redelivery.getTimestamp());
+        assertEquals(Instant.parse("2026-01-01T10:00:00Z"),
+                codec.decode(ByteString.copyFromUtf8(payload), "m-1", publishTime).getTimestamp());
+    }
+
+    @Test
+    void readPushEnvelope_shouldDecodeBase64Data() throws Exception {
+        String body = "{\"message\":{\"data\":\"" + Base64.getEncoder().encodeToString(payload.getBytes(StandardCharsets.UTF_8))
+                + "\",\"messageId\":\"12345\",\"publishTime\":\"2026-01-01T00:00:00Z\"},\"subscription\":\"sub\"}";
+
+        TrackingUpdateCodec.PushEnvelope envelope = codec.readPushEnvelope(body.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("12345", envelope.message().messageId());
+        assertEquals(Instant.parse("2026-01-01T00:00:00Z"), envelope.message().publishTime());
+        assertEquals(shipmentId, codec.decode(envelope.message().data()).getShipmentId());
+    }
+}
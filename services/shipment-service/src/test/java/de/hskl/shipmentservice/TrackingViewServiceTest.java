@@ -0,0 +1,183 @@
+package de.hskl.shipmentservice;
+
+import de.hskl.shipmentservice.dto.CheckpointTrackingDto;
+import de.hskl.shipmentservice.entity.Checkpoint;
+import de.hskl.shipmentservice.entity.CheckpointArchive;
+import de.hskl.shipmentservice.entity.Shipment;
+import de.hskl.shipmentservice.entity.ShipmentStatus;
+import de.hskl.shipmentservice.entity.TrackingView;
+import de.hskl.shipmentservice.repository.CheckpointArchiveRepository;
+import de.hskl.shipmentservice.repository.CheckpointRepository;
+import de.hskl.shipmentservice.repository.ShipmentRepository;
+import de.hskl.shipmentservice.repository.TrackingViewRepository;
+import de.hskl.shipmentservice.service.CheckpointArchiveCodec;
+import de.hskl.shipmentservice.service.TrackingViewService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jackson.autoconfigure.JacksonAutoConfiguration;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+public class TrackingViewServiceTest {
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+    @Autowired
+    private TrackingViewRepository trackingViewRepository;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private CheckpointRepository checkpointRepository;
+
+    @Autowired
+    private CheckpointArchiveRepository archiveRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    private TrackingViewService trackingViews;
+
+    @BeforeEach
+    void setUp() {
+        trackingViews = service(100, 2);
+    }
+
+    @Test
+    void append_shouldAddCheckpointsAndMoveStatusOnlyForNewerEvents() {
+        Shipment shipment = shipment("PKG-VIEW0001");
+        trackingViews.create(shipment, List.of(save(checkpoint(shipment, NOW, ShipmentStatus.CREATED))));
+
+        Checkpoint inTransit = save(checkpoint(shipment, NOW.plusSeconds(60), ShipmentStatus.IN_TRANSIT));
+        Checkpoint late = save(checkpoint(shipment, NOW.plusSeconds(30), ShipmentStatus.PICKED_UP));
+        trackingViews.append(List.of(inTransit, late), NOW.plusSeconds(90));
+        entityManager.flush();
+        entityManager.clear();
+
+        TrackingView view = trackingViews.find("PKG-VIEW0001").orElseThrow();
+        assertEquals(ShipmentStatus.IN_TRANSIT, view.getStatus());
+        assertEquals(NOW.plusSeconds(60), view.getLastEventAt());
+        assertEquals(NOW.plusSeconds(90), view.getUpdatedAt());
+        assertEquals(3, view.getCheckpointCount());
+        assertEquals(List.of("CREATED", "PICKED_UP", "IN_TRANSIT"),
+                trackingViews.timeline(view).stream().map(CheckpointTrackingDto::status).toList());
+    }
+
+    @Test
+    void append_shouldKeepOnlyNewestCheckpointsButCountAll() {
+        trackingViews = service(2, 2);
+        Shipment shipment = shipment("PKG-VIEW0001");
+        trackingViews.create(shipment, List.of(save(checkpoint(shipment, NOW, ShipmentStatus.CREATED))));
+
+        trackingViews.append(List.of(
+                save(checkpoint(shipment, NOW.plusSeconds(60), ShipmentStatus.PICKED_UP)),
+                save(checkpoint(shipment, NOW.plusSeconds(120), ShipmentStatus.IN_TRANSIT))), NOW);
+        entityManager.flush();
+        entityManager.clear();
+
+        TrackingView view = trackingViews.find("PKG-VIEW0001").orElseThrow();
+        assertEquals(3, view.getCheckpointCount());
+        assertEquals(List.of(NOW.plusSeconds(60), NOW.plusSeconds(120)),
+                trackingViews.timeline(view).stream().map(CheckpointTrackingDto::timestamp).toList());
+    }
+
+    @Test
+    void append_withoutStoredView_shouldSkipShipment() {
+        Shipment shipment = shipment("PKG-VIEW0001");
+
+        trackingViews.append(List.of(save(checkpoint(shipment, NOW, ShipmentStatus.IN_TRANSIT))), NOW);
+        entityManager.flush();
+
+        assertTrue(trackingViewRepository.findById(shipment.getId()).isEmpty());
+        assertEquals(1, checkpointRepository.findByShipmentIdInOrderByTimestampAsc(List.of(shipment.getId())).size());
+    }
+
+    @Test
+    void rebuild_shouldRebuildAllViewsInBatchesIncludingArchivedTimelines() {
+        Shipment plain = shipment("PKG-VIEW0001");
+        save(checkpoint(plain, NOW, ShipmentStatus.CREATED));
+        Shipment stale = shipment("PKG-VIEW0002");
+        trackingViews.create(stale, List.of());
+        save(checkpoint(stale, NOW, ShipmentStatus.CREATED));
+        Shipment archived = shipment("PKG-VIEW0003");
+        archived.setTimelineArchivedAt(NOW);
+        archiveRepository.save(CheckpointArchive.builder()
+                .shipmentId(archived.getId())
+                .checkpointCount(1)
+                .data(CheckpointArchiveCodec.encode(List.of(checkpoint(null, NOW.minusSeconds(60), ShipmentStatus.CREATED))))
+                .archivedAt(NOW)
+                .build());
+        save(checkpoint(archived, NOW, ShipmentStatus.IN_TRANSIT));
+        entityManager.flush();
+        entityManager.clear();
+
+        int rebuilt = trackingViews.rebuild();
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(3, rebuilt);
+        for (String trackingId : List.of("PKG-VIEW0001", "PKG-VIEW0002")) {
+            TrackingView view = trackingViews.find(trackingId).orElseThrow();
+            assertEquals(1, view.getCheckpointCount());
+            assertEquals(List.of("CREATED"), trackingViews.timeline(view).stream().map(CheckpointTrackingDto::status).toList());
+        }
+        TrackingView view = trackingViews.find("PKG-VIEW0003").orElseThrow();
+        assertEquals(2, view.getCheckpointCount());
+        assertEquals(List.of(NOW.minusSeconds(60), NOW),
+                trackingViews.timeline(view).stream().map(CheckpointTrackingDto::timestamp).toList());
+    }
+
+    private TrackingViewService service(int maxCheckpoints, int rebuildBatchSize) {
+        return new TrackingViewService(trackingViewRepository, shipmentRepository, checkpointRepository,
+                archiveRepository, transactionManager, jsonMapper, maxCheckpoints, rebuildBatchSize);
+    }
+
+    private Shipment shipment(String trackingId) {
+        return shipmentRepository.save(Shipment.builder()
+                .trackingId(trackingId)
+                .ownerUserId("user-123")
+                .sender("Test Sender")
+                .receiver("Test Receiver")
+                .receiverStreet("Musterstraße 1")
+                .receiverCity("Musterstadt")
+                .currentStatus(ShipmentStatus.CREATED)
+                .lastEventAt(NOW)
+                .createdAt(NOW)
+                .updatedAt(NOW)
+                .build());
+    }
+
+    private Checkpoint save(Checkpoint checkpoint) {
+        return checkpointRepository.save(checkpoint);
+    }
+
+    private static Checkpoint checkpoint(Shipment shipment, Instant timestamp, ShipmentStatus status) {
+        return Checkpoint.builder()
+                .shipment(shipment)
+                .timestamp(timestamp)
+                .status(status)
+                .lat(50.0)
+                .lng(8.0)
+                .build();
+    }
+}
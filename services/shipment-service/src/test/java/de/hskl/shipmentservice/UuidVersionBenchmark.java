@@ -0,0 +1,94 @@
+package de.hskl.shipmentservice;
+
+import org.hibernate.id.uuid.UuidVersion7Strategy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares random v4 with time-ordered v7 primary keys on a {@code checkpoints}-shaped table: insert
+ * throughput while the table grows past shared_buffers and the size of the primary key index afterwards.
+ * The v7 ids come from the same generator as the entities'.
+ * <p>
+ * Run with {@code mvn test -Dtest=UuidVersionBenchmark -Dbenchmark=true [-Dbenchmark.rows=50000000]}.
+ * Needs Docker.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Testcontainers(disabledWithoutDocker = true)
+public class UuidVersionBenchmark {
+    private static final long ROWS = Long.getLong("benchmark.rows", 20_000_000L);
+    private static final int BATCH = 1_000;
+    private static final int REPORT_EVERY = 2_000_000;
+
+    @Container
+    static final PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:16-alpine")
+            .withCommand("postgres", "-c", "shared_buffers=256MB", "-c", "max_wal_size=8GB");
+
+    @Test
+    void version7InsertsFasterIntoSmallerIndex() throws Exception {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+                postgres.getJdbcUrl() + "&reWriteBatchedInserts=true", postgres.getUsername(), postgres.getPassword(), true);
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            UuidVersion7Strategy version7 = new UuidVersion7Strategy();
+            System.out.printf("%,d rows per table%n", ROWS);
+            run(jdbc, dataSource.getConnection(), "checkpoints_v4", UUID::randomUUID);
+            run(jdbc, dataSource.getConnection(), "checkpoints_v7", () -> version7.generateUuid(null));
+        } finally {
+            dataSource.destroy();
+        }
+    }
+
+    private void run(JdbcTemplate jdbc, Connection connection, String table, Supplier<UUID> ids) throws SQLException {
+        jdbc.execute("create table " + table + """
+                 (id UUID PRIMARY KEY, shipment_id UUID NOT NULL, ts TIMESTAMP NOT NULL, status VARCHAR(50),
+                  message VARCHAR(500), lat DOUBLE PRECISION, lng DOUBLE PRECISION, event_id UUID)
+                """);
+        System.out.printf("%n%s%n", table);
+
+        long total = System.nanoTime();
+        long chunk = System.nanoTime();
+        try (PreparedStatement statement = connection.prepareStatement("insert into " + table
+                + " (id, shipment_id, ts, status, lat, lng, event_id) values (?, ?, ?, 'IN_TRANSIT', 50.0, 8.0, ?)")) {
+            Timestamp ts = Timestamp.from(Instant.parse("2026-01-01T00:00:00Z"));
+            for (long i = 1; i <= ROWS; i++) {
+                statement.setObject(1, ids.get());
+                statement.setObject(2, UUID.randomUUID());
+                statement.setTimestamp(3, ts);
+                statement.setObject(4, UUID.randomUUID());
+                statement.addBatch();
+                if (i % BATCH == 0) {
+                    statement.executeBatch();
+                }
+                if (i % REPORT_EVERY == 0) {
+                    long now = System.nanoTime();
+                    System.out.printf("  up to %,12d rows: %,10.0f rows/s%n", i, REPORT_EVERY * 1e9 / (now - chunk));
+                    chunk = now;
+                }
+            }
+            statement.executeBatch();
+        }
+        System.out.printf("  total %,d s, %,.0f rows/s%n", (System.nanoTime() - total) / 1_000_000_000L,
+                ROWS * 1e9 / (System.nanoTime() - total));
+
+        jdbc.execute("vacuum analyze " + table);
+        System.out.printf("  pkey %s, table %s%n",
+                jdbc.queryForObject("select pg_size_pretty(pg_relation_size(?::regclass))", String.class, table + "_pkey"),
+                jdbc.queryForObject("select pg_size_pretty(pg_relation_size(?::regclass))", String.class, table));
+        assertEquals(ROWS, jdbc.queryForObject("select count(*) from " + table, Long.class));
+    }
+}
@@ -13,6 +13,8 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 public class TrackingEvent {
+    /** Stable id of this event, the shipment-service drops redeliveries of an id it has already applied. */
+    private UUID eventId;
     private UUID shipmentId;
     private String status;
     private String message;
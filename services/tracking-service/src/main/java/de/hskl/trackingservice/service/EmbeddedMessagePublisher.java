@@ -0,0 +1,40 @@
+package de.hskl.trackingservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Publishes to the in-memory broker of the shipment-service ({@code POST /embedded/topics/{topic}/publish}),
+ * so the pipeline runs without the Pub/Sub emulator.
+ */
+@Component
+@Profile("embedded")
+public class EmbeddedMessagePublisher implements MessagePublisher {
+    private final RestClient restClient;
+
+    public EmbeddedMessagePublisher(@Value("${embedded.broker.url:http://localhost:8081}") String brokerUrl) {
+        this.restClient = RestClient.create(brokerUrl);
+    }
+
+    @Override
+    public CompletableFuture<String> publish(String topic, String payload) {
+        try {
+            Map<?, ?> response = restClient.post()
+                    .uri("/embedded/topics/{topic}/publish", topic)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(payload)
+                    .retrieve()
+                    .body(Map.class);
+            return CompletableFuture.completedFuture(response != null ? (String) response.get("messageId") : null);
+        } catch (RestClientException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package de.hskl.trackingservice.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transport the tracking events are published with: Pub/Sub, or the embedded broker of the
+ * shipment-service in the {@code embedded} profile.
+ */
+public interface MessagePublisher {
+    /**
+     * @return future of the id the message was published under
+     */
+    CompletableFuture<String> publish(String topic, String payload);
+}
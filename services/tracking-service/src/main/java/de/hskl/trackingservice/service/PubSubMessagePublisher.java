@@ -0,0 +1,20 @@
+package de.hskl.trackingservice.service;
+
+import com.google.cloud.spring.pubsub.core.PubSubTemplate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+@Component
+@Profile("!embedded")
+@RequiredArgsConstructor
+public class PubSubMessagePublisher implements MessagePublisher {
+    private final PubSubTemplate pubSubTemplate;
+
+    @Override
+    public CompletableFuture<String> publish(String topic, String payload) {
+        return pubSubTemplate.publish(topic, payload);
+    }
+}
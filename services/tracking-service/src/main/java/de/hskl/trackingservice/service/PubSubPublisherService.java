@@ -1,6 +1,5 @@
 package de.hskl.trackingservice.service;
 
-import com.google.cloud.spring.pubsub.core.PubSubTemplate;
 import de.hskl.trackingservice.entity.TrackingEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,7 +15,7 @@ import java.util.concurrent.TimeoutException;
 @RequiredArgsConstructor
 @Slf4j
 public class PubSubPublisherService {
-    private final PubSubTemplate pubSubTemplate;
+    private final MessagePublisher messagePublisher;
     private final ObjectMapper objectMapper;
 
     @Value("${pubsub.topic.tracking-updates}")
@@ -25,7 +24,7 @@ public class PubSubPublisherService {
     public void publishTrackingUpdate(TrackingEvent event) {
         try {
             String json = objectMapper.writeValueAsString(event);
-            pubSubTemplate.publish(topicName, json).get(30, TimeUnit.SECONDS);
+            messagePublisher.publish(topicName, json).get(30, TimeUnit.SECONDS);
             log.info("Published tracking update for shipment: {}", event.getShipmentId());
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
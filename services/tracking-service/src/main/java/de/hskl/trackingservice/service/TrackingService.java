@@ -7,6 +7,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -22,6 +23,7 @@ public class TrackingService {
         }
 
         TrackingEvent event = TrackingEvent.builder()
+                .eventId(UUID.randomUUID())
                 .shipmentId(dto.shipmentId())
                 .status(dto.status())
                 .message(dto.message())
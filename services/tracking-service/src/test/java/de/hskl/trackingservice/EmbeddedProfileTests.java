@@ -0,0 +1,22 @@
+package de.hskl.trackingservice;
+
+import de.hskl.trackingservice.service.EmbeddedMessagePublisher;
+import de.hskl.trackingservice.service.MessagePublisher;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+@SpringBootTest
+@ActiveProfiles({"test", "embedded"})
+class EmbeddedProfileTests {
+    @Autowired
+    private MessagePublisher messagePublisher;
+
+    @Test
+    void contextLoadsWithoutPubSub() {
+        assertInstanceOf(EmbeddedMessagePublisher.class, messagePublisher);
+    }
+}
@@ -2,6 +2,7 @@ package de.hskl.trackingservice;
 
 import com.google.cloud.spring.pubsub.core.PubSubTemplate;
 import de.hskl.trackingservice.entity.TrackingEvent;
+import de.hskl.trackingservice.service.PubSubMessagePublisher;
 import de.hskl.trackingservice.service.PubSubPublisherService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -32,7 +33,7 @@ public class PubSubPublisherServiceTest {
 
     @BeforeEach
     void setUp() {
-        publisherService = new PubSubPublisherService(pubSubTemplate, objectMapper);
+        publisherService = new PubSubPublisherService(new PubSubMessagePublisher(pubSubTemplate), objectMapper);
         ReflectionTestUtils.setField(publisherService, "topicName", "test-topic");
     }
 
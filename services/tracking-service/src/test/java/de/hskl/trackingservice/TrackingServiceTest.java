@@ -1,10 +1,12 @@
 package de.hskl.trackingservice;
 
 import de.hskl.trackingservice.dto.TrackingUpdateDto;
+import de.hskl.trackingservice.entity.TrackingEvent;
 import de.hskl.trackingservice.service.PubSubPublisherService;
 import de.hskl.trackingservice.service.TrackingService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -12,7 +14,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.time.Instant;
 import java.util.UUID;
 
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -41,6 +43,26 @@ public class TrackingServiceTest {
         verify(pubSubPublisher, times(1)).publishTrackingUpdate(any());
     }
 
+    @Test
+    void processTrackingUpdate_shouldAssignEventId() {
+        TrackingUpdateDto dto = new TrackingUpdateDto(
+                UUID.randomUUID(),
+                "IN_TRANSIT",
+                "Package scanned at warehouse",
+                50.1234,
+                8.5678,
+                Instant.now()
+        );
+
+        trackingService.processTrackingUpdate(dto);
+        trackingService.processTrackingUpdate(dto);
+
+        ArgumentCaptor<TrackingEvent> events = ArgumentCaptor.forClass(TrackingEvent.class);
+        verify(pubSubPublisher, times(2)).publishTrackingUpdate(events.capture());
+        assertNotNull(events.getAllValues().get(0).getEventId());
+        assertNotEquals(events.getAllValues().get(0).getEventId(), events.getAllValues().get(1).getEventId());
+    }
+
     @Test
     void processTrackingUpdate_withNullShipmentId_shouldThrowException() {
         TrackingUpdateDto dto = new TrackingUpdateDto(